@@ -7,6 +7,7 @@ from typing import List, Dict
 
 # LangChain 相关导入
 from langchain_community.chat_models import ChatTongyi
+from langchain_community.embeddings import HuggingFaceEmbeddings
 from langchain_core.messages import HumanMessage, AIMessage, SystemMessage
 
 # ================= 配置区域 =================
@@ -15,6 +16,9 @@ os.environ["DASHSCOPE_API_KEY"] = "sk-873463eacac84219b830314fb5f10992"  # 替
 # 定义模型 (使用你指定的 qwen3-max-preview，请确保你的账号有权限调用此版本，否则用 qwen-max)
 LLM_MODEL_NAME = "qwen3-max-preview" # 阿里目前通义千问稳定版通常是 qwen-max, qwen-plus。如果确实有 qwen3-max-preview 请填入
 
+# 向量模型 (与 RAGDEMO 入库时一致，512 维，需与后端 retrieval.dimension 相同)
+EMBEDDING_MODEL_NAME = "BAAI/bge-small-zh-v1.5"
+
 # ===========================================
 
 app = FastAPI()
@@ -24,6 +28,9 @@ class ChatRequest(BaseModel):
     query: str                   
     history: List[Dict[str, str]] = [] 
 
+class EmbedRequest(BaseModel):
+    texts: List[str]
+
 # 2. 定义“暴躁”人设 (System Prompt)
 # 这里的设定决定了 AI 的性格
 # SYSTEM_PROMPT = """
@@ -71,6 +78,9 @@ async def real_ai_generator(query: str, history: List[Dict[str, str]]):
             messages.append(HumanMessage(content=content))
         elif role == "assistant":
             messages.append(AIMessage(content=content))
+        elif role == "system":
+            # 后端附加的会话摘要、知识库参考资料
+            messages.append(SystemMessage(content=content))
     
     # 3. 放入当前问题
     messages.append(HumanMessage(content=query))
@@ -104,6 +114,25 @@ async def chat_stream(request: ChatRequest):
         media_type="text/event-stream"
     )
 
+# 5. 向量接口 (后端知识库检索使用)
+_embeddings = None
+
+def get_embeddings():
+    # 首次调用时再加载模型，不影响对话接口的启动速度
+    global _embeddings
+    if _embeddings is None:
+        _embeddings = HuggingFaceEmbeddings(
+            model_name=EMBEDDING_MODEL_NAME,
+            model_kwargs={'device': 'cpu'},
+            encode_kwargs={'normalize_embeddings': True}
+        )
+    return _embeddings
+
+@app.post("/embed")
+def embed(request: EmbedRequest):
+    # 同步接口，由 FastAPI 放到线程池执行，不阻塞流式对话
+    return {"embeddings": get_embeddings().embed_documents(request.texts)}
+
 if __name__ == "__main__":
     print(f"启动真实 AI 服务 (Model: {LLM_MODEL_NAME})，监听端口 8000...")
     uvicorn.run(app, host="0.0.0.0", port=8000)
\ No newline at end of file
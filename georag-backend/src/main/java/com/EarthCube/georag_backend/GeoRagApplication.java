@@ -3,12 +3,15 @@ package com.EarthCube.georag_backend;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import reactor.core.publisher.Hooks;
 
 @SpringBootApplication
 @MapperScan(basePackages = "com.EarthCube.georag_backend.mapper")
 public class GeoRagApplication {
 
 	public static void main(String[] args) {
+		// 响应式链路切换线程时自动恢复 UserContext 等 ThreadLocal
+		Hooks.enableAutomaticContextPropagation();
 		SpringApplication.run(GeoRagApplication.class, args);
 	}
 
@@ -1,9 +1,22 @@
 package com.EarthCube.georag_backend.common.context;
 
+import io.micrometer.context.ContextRegistry;
+
+import java.util.concurrent.Callable;
+
 public class UserContext {
     // 每一个线程都有自己独立的存储空间，互不干扰
     private static final ThreadLocal<String> USER_ID = new ThreadLocal<>();
 
+    /** 在 Reactor Context / ContextSnapshot 中对应的键 */
+    public static final String CONTEXT_KEY = "georag.userId";
+
+    static {
+        // 注册到 Micrometer Context Propagation，响应式链路 (开启自动传播后) 可在任意线程上读取
+        ContextRegistry.getInstance().registerThreadLocalAccessor(
+                CONTEXT_KEY, USER_ID::get, USER_ID::set, USER_ID::remove);
+    }
+
     /**
      * 设置当前登录用户的 ID
      */
@@ -24,4 +37,44 @@ public class UserContext {
     public static void removeUserId() {
         USER_ID.remove();
     }
+
+    /**
+     * 包装异步任务：捕获提交线程的用户 ID，在执行线程上恢复，执行完还原
+     */
+    public static Runnable wrap(Runnable task) {
+        String userId = getUserId();
+        return () -> {
+            String previous = getUserId();
+            setUserId(userId);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    /**
+     * 包装异步任务 (有返回值)
+     */
+    public static <T> Callable<T> wrap(Callable<T> task) {
+        String userId = getUserId();
+        return () -> {
+            String previous = getUserId();
+            setUserId(userId);
+            try {
+                return task.call();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    private static void restore(String previous) {
+        if (previous == null) {
+            removeUserId();
+        } else {
+            setUserId(previous);
+        }
+    }
 }
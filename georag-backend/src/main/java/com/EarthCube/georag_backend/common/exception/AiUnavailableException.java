@@ -0,0 +1,11 @@
+package com.EarthCube.georag_backend.common.exception;
+
+/**
+ * AI 服务不可用异常（熔断打开或并发调用已达上限，未真正发起调用）
+ */
+public class AiUnavailableException extends RuntimeException {
+
+    public AiUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,44 @@
+package com.EarthCube.georag_backend.common.result;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 游标分页结果
+ * 游标为不透明字符串，前端原样回传即可
+ */
+@Data
+public class CursorResult<T> implements Serializable {
+
+    /**
+     * 当前页数据列表 (按时间升序)
+     */
+    private List<T> records;
+
+    /**
+     * 向前翻页 (更早的数据) 使用的游标，指向本页第一条
+     */
+    private String prevCursor;
+
+    /**
+     * 向后翻页 (更新的数据) 使用的游标，指向本页最后一条
+     */
+    private String nextCursor;
+
+    /**
+     * 沿本次查询方向是否还有更多数据
+     */
+    private Boolean hasMore;
+
+    public CursorResult() {
+    }
+
+    public CursorResult(List<T> records, String prevCursor, String nextCursor, Boolean hasMore) {
+        this.records = records;
+        this.prevCursor = prevCursor;
+        this.nextCursor = nextCursor;
+        this.hasMore = hasMore;
+    }
+}
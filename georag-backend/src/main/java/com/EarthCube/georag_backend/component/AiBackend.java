@@ -0,0 +1,139 @@
+package com.EarthCube.georag_backend.component;
+
+import lombok.Getter;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个 AI 服务实例及其运行时状态
+ * 进行中的流数、首字延迟 EWMA、连续失败次数、摘除 / 慢启动时间，由 AiBackendBalancer 维护
+ */
+public class AiBackend {
+
+    @Getter
+    private final String url;
+
+    @Getter
+    private final WebClient webClient;
+
+    // 进行中的流数
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    // 首字延迟 EWMA (纳秒)，0 表示尚无样本
+    private double ewmaNanos;
+    private long ewmaUpdatedAt;
+
+    private int consecutiveFailures;
+    private int ejections;
+
+    // 摘除到期时间，0 表示未被摘除
+    private volatile long ejectedUntil;
+
+    // 健康检查结果
+    private volatile boolean healthy = true;
+
+    // 慢启动起点 (加入、恢复健康或摘除到期时重置)
+    private volatile long warmingSince;
+
+    AiBackend(String url, WebClient webClient, long now) {
+        this.url = url;
+        this.webClient = webClient;
+        this.warmingSince = now;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release() {
+        outstanding.decrementAndGet();
+    }
+
+    boolean isHealthy() {
+        return healthy;
+    }
+
+    boolean isEjected(long now) {
+        long until = ejectedUntil;
+        if (until == 0) {
+            return false;
+        }
+        if (now < until) {
+            return true;
+        }
+        synchronized (this) {
+            if (ejectedUntil != 0 && now >= ejectedUntil) {
+                ejectedUntil = 0;
+                warmingSince = now;
+            }
+        }
+        return false;
+    }
+
+    boolean isAvailable(long now) {
+        return healthy && !isEjected(now);
+    }
+
+    /**
+     * 健康检查结果，从不健康恢复时重新慢启动
+     */
+    synchronized void markHealthy(boolean ok, long now) {
+        if (ok && !healthy) {
+            warmingSince = now;
+            consecutiveFailures = 0;
+        }
+        healthy = ok;
+    }
+
+    /**
+     * 收到首个 Token：更新首字延迟 EWMA，清零连续失败
+     * 按时间衰减：间隔越久，旧值权重越低
+     */
+    synchronized void recordSuccess(long latencyNanos, long now, long decayNanos) {
+        if (ewmaNanos == 0 || decayNanos <= 0) {
+            ewmaNanos = latencyNanos;
+        } else {
+            double w = Math.exp(-(double) Math.max(0, now - ewmaUpdatedAt) / decayNanos);
+            ewmaNanos = ewmaNanos * w + latencyNanos * (1 - w);
+        }
+        ewmaUpdatedAt = now;
+        consecutiveFailures = 0;
+        ejections = Math.max(0, ejections - 1);
+    }
+
+    /**
+     * 记录一次失败，连续失败达到阈值时摘除
+     *
+     * @return 本次是否触发摘除
+     */
+    synchronized boolean recordFailure(long now, int threshold, long baseEjectNanos, long maxEjectNanos) {
+        consecutiveFailures++;
+        if (threshold <= 0 || consecutiveFailures < threshold || ejectedUntil != 0) {
+            return false;
+        }
+        ejections++;
+        ejectedUntil = now + Math.min(baseEjectNanos * ejections, maxEjectNanos);
+        consecutiveFailures = 0;
+        return true;
+    }
+
+    synchronized double getEwmaNanos() {
+        return ewmaNanos;
+    }
+
+    /**
+     * 慢启动权重：从 0.1 线性升到 1
+     */
+    double weight(long now, long slowStartNanos) {
+        if (slowStartNanos <= 0) {
+            return 1.0;
+        }
+        double progress = (double) (now - warmingSince) / slowStartNanos;
+        return progress >= 1 ? 1.0 : Math.max(0.1, progress);
+    }
+}
@@ -0,0 +1,345 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.config.AiServiceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * AI 服务多实例负载均衡
+ * 1. 从可用实例中随机取两个，选择负载更低的一个 (Power of Two Choices)，
+ *    负载按 ai.service.lb-strategy 计算：进行中的流数，或首字延迟 EWMA × 进行中的流数，再除以慢启动权重
+ * 2. 定时健康检查，不健康的实例不参与选择，恢复后慢启动
+ * 3. 连续失败 (连接失败 / 5xx / 首字超时) 达到阈值的实例被摘除一段时间，多次摘除时长递增
+ * 4. 没有可用实例时退化为在全部实例中选择，避免因误判导致完全不可用
+ * 5. 首个 Token 之前的连接失败重试与对冲请求，见 stream
+ */
+@Slf4j
+@Component
+public class AiBackendBalancer implements DisposableBean {
+
+    private static final String STRATEGY_EWMA = "ewma";
+
+    private static final int HEDGE_SAMPLE_SIZE = 1024;
+    private static final int HEDGE_MIN_SAMPLES = 50;
+    private static final long HEDGE_DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Autowired
+    private AiServiceConfig config;
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private List<AiBackend> backends;
+
+    // 近期首字延迟样本 (纳秒)，用于计算对冲阈值
+    private final long[] ttftSamples = new long[HEDGE_SAMPLE_SIZE];
+    private final AtomicLong ttftSeq = new AtomicLong();
+    private volatile long hedgeDelayNanos;
+    private volatile long hedgeDelayComputedAt;
+
+    private ScheduledExecutorService healthChecker;
+
+    @PostConstruct
+    public void init() {
+        Set<String> urls = new LinkedHashSet<>();
+        if (config.getBackends() != null) {
+            config.getBackends().stream()
+                    .filter(url -> url != null && !url.isBlank())
+                    .map(String::trim)
+                    .forEach(urls::add);
+        }
+        if (urls.isEmpty()) {
+            urls.add(config.getBaseUrl());
+        }
+
+        long now = System.nanoTime();
+        List<AiBackend> list = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            AiBackend backend = new AiBackend(url, webClient.mutate().baseUrl(url).build(), now);
+            list.add(backend);
+            Gauge.builder("georag.ai.backend.outstanding", backend, AiBackend::getOutstanding)
+                    .description("AI 服务实例上进行中的流数")
+                    .tag("backend", url)
+                    .register(meterRegistry);
+            Gauge.builder("georag.ai.backend.available", backend, b -> b.isAvailable(System.nanoTime()) ? 1 : 0)
+                    .description("AI 服务实例是否可用 (健康且未被摘除)")
+                    .tag("backend", url)
+                    .register(meterRegistry);
+        }
+        backends = Collections.unmodifiableList(list);
+        log.info("AI 服务实例: {}, 负载均衡策略: {}", urls, config.getLbStrategy());
+
+        long interval = config.getHealthCheckInterval();
+        if (interval > 0) {
+            healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "ai-backend-health");
+                t.setDaemon(true);
+                return t;
+            });
+            healthChecker.scheduleWithFixedDelay(this::checkHealth, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public List<AiBackend> getBackends() {
+        return backends;
+    }
+
+    /**
+     * 选择一个实例发起流式调用，并跟踪其进行中的流数、首字延迟与失败
+     * 1. 收到首个 Token 之前连接失败，换实例重试 (ai.service.connect-retries)
+     * 2. 开启对冲时，超过近期首字延迟分位仍未出字，向另一实例再发一次，先出字的一方胜出，另一方被取消
+     * 重试与对冲都只发生在首个 Token 之前，已下发给客户端的内容不会重复
+     *
+     * @param call 使用选中实例的 WebClient 发起调用
+     */
+    public Flux<String> stream(Function<WebClient, Flux<String>> call) {
+        return Flux.defer(() -> {
+            // 本次调用已使用过的实例，重试 / 对冲时优先避开
+            Set<AiBackend> tried = ConcurrentHashMap.newKeySet();
+            Flux<String> primary = withRetry(call, tried);
+            if (!Boolean.TRUE.equals(config.getHedgeEnabled()) || backends.size() < 2) {
+                return primary;
+            }
+            AtomicBoolean hedgeFirst = new AtomicBoolean(true);
+            Flux<String> hedge = Mono.delay(hedgeDelay())
+                    .thenMany(Flux.defer(() -> {
+                        hedgeCounter("fired").increment();
+                        return withRetry(call, tried);
+                    }))
+                    .doOnNext(token -> {
+                        if (hedgeFirst.compareAndSet(true, false)) {
+                            hedgeCounter("won").increment();
+                        }
+                    });
+            // 两路都失败时抛出主请求的异常，便于上层按原因处理
+            return Flux.firstWithValue(primary, hedge)
+                    .onErrorMap(NoSuchElementException.class, e -> e.getCause() == null
+                            ? e : Exceptions.unwrapMultiple(e.getCause()).get(0));
+        });
+    }
+
+    /**
+     * 单路调用，收到首个 Token 之前的连接失败按退避重试
+     */
+    private Flux<String> withRetry(Function<WebClient, Flux<String>> call, Set<AiBackend> tried) {
+        Flux<String> attempts = Flux.defer(() -> attempt(call, tried));
+        int retries = config.getConnectRetries();
+        if (retries <= 0) {
+            return attempts;
+        }
+        AtomicBoolean emitted = new AtomicBoolean(false);
+        return attempts
+                .doOnNext(token -> emitted.set(true))
+                .retryWhen(Retry.backoff(retries, Duration.ofMillis(config.getConnectRetryBackoff()))
+                        .filter(e -> !emitted.get() && e instanceof WebClientRequestException)
+                        .doBeforeRetry(signal -> Counter.builder("georag.ai.backend.retries")
+                                .description("AI 服务连接失败重试次数")
+                                .register(meterRegistry)
+                                .increment())
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    /**
+     * 选择实例发起一次调用
+     */
+    private Flux<String> attempt(Function<WebClient, Flux<String>> call, Set<AiBackend> tried) {
+        AiBackend backend = choose(tried);
+        tried.add(backend);
+        long start = System.nanoTime();
+        AtomicBoolean first = new AtomicBoolean(true);
+        backend.acquire();
+        return call.apply(backend.getWebClient())
+                .doOnNext(token -> {
+                    if (first.compareAndSet(true, false)) {
+                        long now = System.nanoTime();
+                        backend.recordSuccess(now - start, now, TimeUnit.MILLISECONDS.toNanos(config.getEwmaDecay()));
+                        recordFirstTokenLatency(now - start);
+                    }
+                })
+                .doOnError(e -> {
+                    // 已开始输出后的中断不计入实例失败，可能是客户端或模型本身的问题
+                    if (first.get() && isBackendFailure(e)) {
+                        onFailure(backend);
+                    }
+                })
+                .doFinally(signal -> backend.release());
+    }
+
+    /**
+     * 选择实例，优先避开 exclude 中的实例
+     */
+    AiBackend choose(Set<AiBackend> exclude) {
+        List<AiBackend> all = backends;
+        if (all.size() == 1) {
+            return all.get(0);
+        }
+        long now = System.nanoTime();
+        List<AiBackend> available = new ArrayList<>(all.size());
+        List<AiBackend> candidates = new ArrayList<>(all.size());
+        for (AiBackend backend : all) {
+            if (backend.isAvailable(now)) {
+                available.add(backend);
+                if (!exclude.contains(backend)) {
+                    candidates.add(backend);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = available.isEmpty() ? all : available;
+        }
+        int size = candidates.size();
+        if (size == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(size);
+        int j = random.nextInt(size - 1);
+        if (j >= i) {
+            j++;
+        }
+        AiBackend a = candidates.get(i);
+        AiBackend b = candidates.get(j);
+        return compare(a, b, now) <= 0 ? a : b;
+    }
+
+    /**
+     * 记录首字延迟样本 (环形缓冲，只保留最近 HEDGE_SAMPLE_SIZE 个)
+     */
+    private void recordFirstTokenLatency(long nanos) {
+        long seq = ttftSeq.getAndIncrement();
+        ttftSamples[(int) (seq % HEDGE_SAMPLE_SIZE)] = nanos;
+    }
+
+    /**
+     * 对冲阈值：近期首字延迟的 hedge-percentile 分位，不低于 hedge-min-delay
+     * 每秒最多重新计算一次
+     */
+    private Duration hedgeDelay() {
+        long now = System.nanoTime();
+        if (now - hedgeDelayComputedAt < HEDGE_DELAY_REFRESH_NANOS && hedgeDelayComputedAt != 0) {
+            return Duration.ofNanos(hedgeDelayNanos);
+        }
+        long min = TimeUnit.MILLISECONDS.toNanos(config.getHedgeMinDelay());
+        int count = (int) Math.min(ttftSeq.get(), HEDGE_SAMPLE_SIZE);
+        long delay = min;
+        if (count >= HEDGE_MIN_SAMPLES) {
+            long[] sorted = Arrays.copyOf(ttftSamples, count);
+            Arrays.sort(sorted);
+            double p = Math.min(1.0, Math.max(0.0, config.getHedgePercentile()));
+            int idx = Math.min(count - 1, (int) Math.ceil(p * count) - 1);
+            delay = Math.max(min, sorted[Math.max(0, idx)]);
+        }
+        hedgeDelayNanos = delay;
+        hedgeDelayComputedAt = now;
+        return Duration.ofNanos(delay);
+    }
+
+    private Counter hedgeCounter(String outcome) {
+        return Counter.builder("georag.ai.backend.hedges")
+                .description("AI 服务对冲请求次数 (fired 发出 / won 先于主请求出字)")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private int compare(AiBackend a, AiBackend b, long now) {
+        long slowStart = TimeUnit.MILLISECONDS.toNanos(config.getSlowStartWindow());
+        double loadA = (a.getOutstanding() + 1) / a.weight(now, slowStart);
+        double loadB = (b.getOutstanding() + 1) / b.weight(now, slowStart);
+        if (STRATEGY_EWMA.equalsIgnoreCase(config.getLbStrategy())) {
+            double ewmaA = a.getEwmaNanos();
+            double ewmaB = b.getEwmaNanos();
+            // 两个实例都有延迟样本时才按延迟加权，否则只比较进行中的流数
+            if (ewmaA > 0 && ewmaB > 0) {
+                loadA *= ewmaA;
+                loadB *= ewmaB;
+            }
+        }
+        return Double.compare(loadA, loadB);
+    }
+
+    private void onFailure(AiBackend backend) {
+        long now = System.nanoTime();
+        boolean ejected = backend.recordFailure(now, config.getOutlierConsecutiveFailures(),
+                TimeUnit.MILLISECONDS.toNanos(config.getOutlierBaseEjectionTime()),
+                TimeUnit.MILLISECONDS.toNanos(config.getOutlierMaxEjectionTime()));
+        if (ejected) {
+            log.warn("AI 服务实例连续失败，暂时摘除: {}", backend.getUrl());
+            Counter.builder("georag.ai.backend.ejections")
+                    .description("AI 服务实例被摘除次数")
+                    .tag("backend", backend.getUrl())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+
+    private static boolean isBackendFailure(Throwable e) {
+        if (e instanceof WebClientRequestException || e instanceof TimeoutException) {
+            return true;
+        }
+        return e instanceof WebClientResponseException
+                && ((WebClientResponseException) e).getStatusCode().is5xxServerError();
+    }
+
+    /**
+     * 健康检查：任何非 5xx 响应都视为存活 (AI 服务没有专门的健康检查接口时，404 也说明进程在正常响应)
+     */
+    private void checkHealth() {
+        Duration timeout = Duration.ofMillis(config.getHealthCheckTimeout());
+        for (AiBackend backend : backends) {
+            backend.getWebClient().get()
+                    .uri(config.getHealthCheckPath())
+                    .exchangeToMono(response -> response.releaseBody()
+                            .thenReturn(!response.statusCode().is5xxServerError()))
+                    .timeout(timeout)
+                    .onErrorReturn(false)
+                    .defaultIfEmpty(false)
+                    .subscribe(ok -> {
+                        if (ok != backend.isHealthy()) {
+                            log.warn("AI 服务实例健康状态变化: {} -> {}", backend.getUrl(), ok ? "UP" : "DOWN");
+                        }
+                        backend.markHealthy(ok, System.nanoTime());
+                    });
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+}
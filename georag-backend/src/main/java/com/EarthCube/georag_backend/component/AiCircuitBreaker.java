@@ -0,0 +1,274 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.common.exception.AiUnavailableException;
+import com.EarthCube.georag_backend.config.AiServiceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * AI 服务熔断器与并发舱壁
+ * 1. 熔断：统计最近 N 次调用 (连接失败 / 5xx / 首字超时记为失败)，失败率超过阈值时打开，
+ *    打开期间直接拒绝；到期后进入半开，放行少量试探调用，全部成功则关闭，任一失败重新打开
+ * 2. 舱壁：同时进行的 AI 调用数有上限，超过直接拒绝，不排队
+ * 对话接口在落库之前调用 isCallPermitted 快速失败；protect 包装实际调用，负责计数与结果统计
+ */
+@Slf4j
+@Component
+public class AiCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 单次调用的许可：正常放行 / 半开试探 / 拒绝
+     */
+    private enum Permit {
+        NORMAL, TRIAL, REJECT
+    }
+
+    private final AiServiceConfig config;
+    private final MeterRegistry meterRegistry;
+
+    private final Semaphore bulkhead;
+
+    // 最近 N 次调用结果的环形缓冲，true 表示失败
+    private final boolean[] window;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private int halfOpenInFlight;
+    private int halfOpenSucceeded;
+
+    public AiCircuitBreaker(AiServiceConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.bulkhead = new Semaphore(config.getBulkheadMaxConcurrentCalls());
+        this.window = new boolean[Math.max(1, config.getCircuitSlidingWindowSize())];
+
+        Gauge.builder("georag.ai.circuit.state", this, b -> b.getState().ordinal())
+                .description("AI 服务熔断状态 (0 关闭 / 1 打开 / 2 半开)")
+                .register(meterRegistry);
+        Gauge.builder("georag.ai.bulkhead.active", bulkhead,
+                        s -> config.getBulkheadMaxConcurrentCalls() - s.availablePermits())
+                .description("正在进行的 AI 调用数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 当前状态 (打开且已到期时视为半开)
+     */
+    public State getState() {
+        State current = state;
+        if (current == State.OPEN && openExpired(System.nanoTime())) {
+            return State.HALF_OPEN;
+        }
+        return current;
+    }
+
+    /**
+     * 是否可以发起 AI 调用，只检查不占用名额，也不计入拒绝次数
+     * 用于对话接口在落库之前快速失败；并发下仍可能在 protect 中被拒绝
+     */
+    public boolean isCallPermitted() {
+        return rejectReason() == null;
+    }
+
+    /**
+     * 调用方据 isCallPermitted 直接拒绝请求 (未进入 protect) 时记一次拒绝
+     */
+    public void recordRejected() {
+        String reason = rejectReason();
+        rejectedCounter(reason != null ? reason : "open").increment();
+    }
+
+    /**
+     * 当前拒绝调用的原因 (bulkhead / open)，可以调用时为 null
+     */
+    private String rejectReason() {
+        if (bulkhead.availablePermits() <= 0) {
+            return "bulkhead";
+        }
+        synchronized (this) {
+            switch (getState()) {
+                case OPEN:
+                    return "open";
+                case HALF_OPEN:
+                    return halfOpenInFlight + halfOpenSucceeded < config.getCircuitHalfOpenCalls() ? null : "open";
+                default:
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * 包装一次 AI 调用：订阅时申请熔断与舱壁名额，拒绝时以 AiUnavailableException 结束
+     * 收到首个 Token 记为成功，首个 Token 之前的服务端故障记为失败，取消不计
+     */
+    public Flux<String> protect(Flux<String> call) {
+        return Flux.defer(() -> {
+            if (!bulkhead.tryAcquire()) {
+                rejectedCounter("bulkhead").increment();
+                return Flux.error(new AiUnavailableException("AI 服务繁忙，请稍后重试"));
+            }
+            Permit permit;
+            synchronized (this) {
+                permit = acquirePermission();
+            }
+            if (permit == Permit.REJECT) {
+                bulkhead.release();
+                rejectedCounter("open").increment();
+                return Flux.error(new AiUnavailableException("AI 服务暂时不可用，请稍后重试"));
+            }
+
+            boolean trial = permit == Permit.TRIAL;
+            AtomicBoolean recorded = new AtomicBoolean(false);
+            return call
+                    .doOnNext(token -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onResult(false, trial);
+                        }
+                    })
+                    .doOnError(e -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onResult(isFailure(e), trial);
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            onResult(false, trial);
+                        }
+                    })
+                    .doFinally(signal -> {
+                        if (recorded.compareAndSet(false, true) && trial) {
+                            // 试探调用被取消，归还试探名额
+                            synchronized (this) {
+                                halfOpenInFlight--;
+                            }
+                        }
+                        bulkhead.release();
+                    });
+        });
+    }
+
+    /**
+     * 申请调用许可 (需持有锁)
+     */
+    private Permit acquirePermission() {
+        if (state == State.OPEN) {
+            if (!openExpired(System.nanoTime())) {
+                return Permit.REJECT;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            // 试探名额已用完时，等待试探结果期间继续拒绝
+            if (halfOpenInFlight + halfOpenSucceeded >= config.getCircuitHalfOpenCalls()) {
+                return Permit.REJECT;
+            }
+            halfOpenInFlight++;
+            return Permit.TRIAL;
+        }
+        return Permit.NORMAL;
+    }
+
+    private synchronized void onResult(boolean failure, boolean trial) {
+        if (trial) {
+            halfOpenInFlight--;
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            if (failure) {
+                open();
+            } else if (++halfOpenSucceeded >= config.getCircuitHalfOpenCalls()) {
+                resetWindow();
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (windowCount == window.length) {
+            if (window[windowPos]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowPos] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowPos = (windowPos + 1) % window.length;
+
+        if (windowCount >= config.getCircuitMinimumCalls()
+                && windowFailures * 100 >= config.getCircuitFailureRateThreshold() * windowCount) {
+            log.warn("AI 服务失败率过高 ({}/{}), 熔断打开", windowFailures, windowCount);
+            open();
+        }
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        halfOpenSucceeded = 0;
+        resetWindow();
+        transitionTo(State.OPEN);
+    }
+
+    private boolean openExpired(long now) {
+        return now - openedAt >= TimeUnit.MILLISECONDS.toNanos(config.getCircuitOpenDuration());
+    }
+
+    private void resetWindow() {
+        windowPos = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+
+    private void transitionTo(State next) {
+        State previous = state;
+        state = next;
+        if (previous == next) {
+            return;
+        }
+        if (next == State.HALF_OPEN) {
+            halfOpenSucceeded = 0;
+        }
+        log.info("AI 服务熔断状态: {} -> {}", previous, next);
+        Counter.builder("georag.ai.circuit.transitions")
+                .description("AI 服务熔断状态切换次数")
+                .tags("from", previous.name(), "to", next.name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("georag.ai.circuit.rejected")
+                .description("熔断 / 舱壁拒绝的 AI 调用数")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static boolean isFailure(Throwable e) {
+        if (e instanceof WebClientRequestException || e instanceof TimeoutException) {
+            return true;
+        }
+        return e instanceof WebClientResponseException
+                && ((WebClientResponseException) e).getStatusCode().is5xxServerError();
+    }
+}
@@ -1,15 +1,25 @@
 package com.EarthCube.georag_backend.component;
 
+import com.EarthCube.georag_backend.config.AiServiceConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
-import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * AI 模型服务客户端
@@ -20,7 +30,15 @@ import java.util.Map;
 public class AiModelClient {
 
     @Autowired
-    private WebClient webClient;
+    private AiBackendBalancer balancer;
+
+    @Autowired
+    private AiCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private AiServiceConfig config;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     /**
      * 发起流式对话请求
@@ -30,6 +48,46 @@ public class AiModelClient {
      * @return 响应式文本流 (Flux<String>)，每个元素是一个 Token
      */
     public Flux<String> streamChat(String query, List<Map<String, String>> history) {
+        return streamChat(query, history, null);
+    }
+
+    /**
+     * 发起流式对话请求 (附带会话摘要)
+     *
+     * @param query   用户当前的问题
+     * @param history 历史上下文
+     * @param summary 已滑出上下文窗口的历史摘要，非空时作为一条 system 消息放在历史最前面
+     * @return 响应式文本流 (Flux<String>)，每个元素是一个 Token
+     */
+    public Flux<String> streamChat(String query, List<Map<String, String>> history, String summary) {
+        return streamChat(query, history, summary, null);
+    }
+
+    /**
+     * 发起流式对话请求 (附带会话摘要与知识库参考资料)
+     *
+     * @param references 检索到的参考资料，非空时编号后作为一条 system 消息放在摘要之后
+     */
+    public Flux<String> streamChat(String query, List<Map<String, String>> history, String summary,
+                                   List<String> references) {
+        boolean hasSummary = summary != null && !summary.isBlank();
+        boolean hasReferences = references != null && !references.isEmpty();
+        if (hasSummary || hasReferences) {
+            List<Map<String, String>> withSystem = new ArrayList<>(history.size() + 2);
+            if (hasSummary) {
+                withSystem.add(systemMessage("以下是此前对话的摘要：\n" + summary));
+            }
+            if (hasReferences) {
+                StringBuilder sb = new StringBuilder("以下是从知识库检索到的参考资料，请优先依据这些资料回答，资料中没有的内容请如实说明：");
+                for (int i = 0; i < references.size(); i++) {
+                    sb.append("\n\n[").append(i + 1).append("] ").append(references.get(i));
+                }
+                withSystem.add(systemMessage(sb.toString()));
+            }
+            withSystem.addAll(history);
+            history = withSystem;
+        }
+
         // 1. 构建符合 Python 接口要求的 Payload
         Map<String, Object> payload = new HashMap<>();
         payload.put("query", query);
@@ -37,13 +95,52 @@ public class AiModelClient {
 
         log.info("正在调用 AI 服务, Query长度: {}, History条数: {}", query.length(), history.size());
 
-        // 2. 发起非阻塞调用
-        return webClient.post()
+        // 2. 序列化请求体，超过阈值且开启压缩时 gzip
+        byte[] body = serialize(payload);
+        boolean gzip = Boolean.TRUE.equals(config.getRequestCompression())
+                && body.length >= config.getRequestCompressionMinSize();
+        byte[] requestBody = gzip ? gzip(body) : body;
+
+        // 3. 经熔断 / 舱壁检查后，选择一个 AI 服务实例发起非阻塞调用
+        //    首个 Token 与相邻 Token 分别限时，超时以 TimeoutException 结束流，释放连接
+        return circuitBreaker.protect(balancer.stream(webClient -> webClient.post()
                 .uri("/chat/stream") // 对应 Python 的接口路径
                 .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(payload)
+                .headers(h -> {
+                    if (gzip) {
+                        h.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                    }
+                })
+                .bodyValue(requestBody)
                 .accept(MediaType.TEXT_EVENT_STREAM) // 声明接收流
                 .retrieve()
-                .bodyToFlux(String.class); // 自动将流转换为 Flux<String>
+                .bodyToFlux(String.class) // 自动将流转换为 Flux<String>
+                .timeout(Mono.delay(Duration.ofMillis(config.getFirstTokenTimeout())),
+                        token -> Mono.delay(Duration.ofMillis(config.getIdleTimeout())))));
+    }
+
+    private static Map<String, String> systemMessage(String content) {
+        Map<String, String> system = new HashMap<>();
+        system.put("role", "system");
+        system.put("content", content);
+        return system;
+    }
+
+    private static byte[] serialize(Map<String, Object> payload) {
+        try {
+            return MAPPER.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("AI 服务请求序列化失败", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,124 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.config.ChatContextConfig;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 对话上下文组装器
+ * 按模型的 Token 预算，从最近的消息往前选取，直到放不下为止
+ * 每条消息的 Token 估算值随上下文一起缓存在 Redis (tokens 字段)，避免每轮重复计算
+ */
+@Slf4j
+@Component
+public class ChatContextAssembler {
+
+    /** 上下文条目中缓存 Token 估算值的字段 */
+    public static final String TOKENS_FIELD = "tokens";
+
+    /** 每条消息的固定开销 (角色标记、分隔符等) */
+    private static final int MESSAGE_OVERHEAD = 4;
+
+    @Autowired
+    private ChatContextConfig config;
+
+    /**
+     * 构建一条上下文条目 (附带 Token 估算值)
+     */
+    public Map<String, String> newEntry(String role, String content) {
+        Map<String, String> item = new HashMap<>();
+        item.put("role", role);
+        item.put("content", content);
+        item.put(TOKENS_FIELD, String.valueOf(estimateTokens(content)));
+        return item;
+    }
+
+    /**
+     * 按 Token 预算选取历史上下文
+     *
+     * @param history 按时间升序的历史上下文
+     * @param query   本次提问，占用的 Token 从预算中扣除
+     * @param model   模型名 (ChatSendDTO.options.model)，为空时使用默认预算
+     * @param summary 会话摘要，占用的 Token 同样从预算中扣除，可为空
+     * @return 只包含 role / content 的上下文，按时间升序
+     */
+    public List<Map<String, String>> assemble(List<Map<String, String>> history, String query, String model,
+                                              String summary) {
+        return assemble(history, query, model, summary, null);
+    }
+
+    /**
+     * 按 Token 预算选取历史上下文 (附带知识库参考资料)
+     *
+     * @param references 检索到的参考资料，占用的 Token 从预算中扣除，可为空
+     */
+    public List<Map<String, String>> assemble(List<Map<String, String>> history, String query, String model,
+                                              String summary, List<String> references) {
+        int remaining = config.getTokenBudget(model) - estimateTokens(query);
+        if (summary != null) {
+            remaining -= estimateTokens(summary);
+        }
+        if (references != null) {
+            for (String reference : references) {
+                remaining -= estimateTokens(reference);
+            }
+        }
+
+        LinkedList<Map<String, String>> selected = new LinkedList<>();
+        for (int i = history.size() - 1; i >= 0; i--) {
+            Map<String, String> item = history.get(i);
+            int tokens = tokensOf(item);
+            if (tokens > remaining) {
+                break;
+            }
+            remaining -= tokens;
+
+            // 发给 AI 服务的条目不带 tokens 字段
+            Map<String, String> message = new HashMap<>();
+            message.put("role", item.get("role"));
+            message.put("content", item.get("content"));
+            selected.addFirst(message);
+        }
+
+        if (selected.size() < history.size()) {
+            log.debug("上下文超出 Token 预算, 保留 {}/{} 条", selected.size(), history.size());
+        }
+        return selected;
+    }
+
+    /**
+     * 估算文本的 Token 数
+     * 中日韩字符约 1 字 1 Token，其余字符约 4 字符 1 Token
+     */
+    public int estimateTokens(String content) {
+        if (content == null || content.isEmpty()) {
+            return MESSAGE_OVERHEAD;
+        }
+        int cjk = 0;
+        int other = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (Character.isIdeographic(c) || (c >= 0x3040 && c <= 0x30FF) || (c >= 0xAC00 && c <= 0xD7AF)) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4 + MESSAGE_OVERHEAD;
+    }
+
+    private int tokensOf(Map<String, String> item) {
+        String cached = item.get(TOKENS_FIELD);
+        if (cached != null) {
+            try {
+                return Integer.parseInt(cached);
+            } catch (NumberFormatException ignored) {
+                // 格式异常时重新估算
+            }
+        }
+        return estimateTokens(item.get("content"));
+    }
+}
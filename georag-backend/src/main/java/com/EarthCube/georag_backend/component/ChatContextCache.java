@@ -0,0 +1,111 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.config.ChatContextConfig;
+import com.EarthCube.georag_backend.constant.ChatConstants;
+import com.EarthCube.georag_backend.util.RedisUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 会话上下文本地缓存 (Near Cache)
+ * 位于 Redis 之前，热点会话读取上下文无需网络往返
+ * 1. 按条数淘汰，写入后 CONTEXT_TTL 过期，与 Redis 上下文的有效期保持一致
+ * 2. 本节点追加上下文时原地更新本地副本，并通过 Redis Pub/Sub 通知其他节点失效
+ */
+@Slf4j
+@Component
+public class ChatContextCache implements MessageListener {
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Autowired
+    private ChatContextConfig config;
+
+    // 当前节点标识，用于忽略自己发出的失效通知
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Cache<String, List<Map<String, String>>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(config.getNearCacheSize())
+                .expireAfterWrite(Duration.ofSeconds(ChatConstants.CONTEXT_TTL))
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(ChatConstants.CONTEXT_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 读取本地上下文副本，未命中返回 null
+     */
+    public List<Map<String, String>> get(String sessionId) {
+        List<Map<String, String>> context = cache.getIfPresent(sessionId);
+        return context == null ? null : new ArrayList<>(context);
+    }
+
+    /**
+     * 放入从 Redis / DB 加载到的完整上下文
+     */
+    public void put(String sessionId, List<Map<String, String>> context) {
+        cache.put(sessionId, Collections.unmodifiableList(new ArrayList<>(context)));
+    }
+
+    /**
+     * 追加一条上下文：本地副本存在时原地更新 (保留最近 maxCount 条)，并通知其他节点失效
+     */
+    public void append(String sessionId, Map<String, String> item, int maxCount) {
+        cache.asMap().computeIfPresent(sessionId, (k, context) -> {
+            List<Map<String, String>> updated = new ArrayList<>(context);
+            updated.add(item);
+            if (updated.size() > maxCount) {
+                updated = updated.subList(updated.size() - maxCount, updated.size());
+            }
+            return Collections.unmodifiableList(new ArrayList<>(updated));
+        });
+        redisUtil.publish(ChatConstants.CONTEXT_INVALIDATE_CHANNEL, nodeId + "|" + sessionId);
+    }
+
+    /**
+     * 使本地副本失效
+     */
+    public void invalidate(String sessionId) {
+        cache.invalidate(sessionId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (!(body instanceof String)) {
+            return;
+        }
+        String payload = (String) body;
+        int sep = payload.indexOf('|');
+        if (sep < 0 || payload.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        invalidate(payload.substring(sep + 1));
+    }
+}
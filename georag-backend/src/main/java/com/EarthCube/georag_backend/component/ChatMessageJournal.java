@@ -0,0 +1,389 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.config.ChatJournalConfig;
+import com.EarthCube.georag_backend.entity.ChatMessage;
+import com.EarthCube.georag_backend.mapper.ChatMessageMapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * 聊天消息异步落库日志 (Write-Behind)
+ * 1. 消息先追加到本地日志文件，再放入内存队列，由后台线程按数量 / 时间批量写入数据库
+ * 2. 每次批量写入前切换日志分段，写入成功后删除旧分段；启动时重放残留分段
+ * 3. 未落库的消息可通过 getPending 读到，保证"写后即读"
+ * 4. 批量写入失败时逐条重试：违反约束的消息、以及多次失败而同批其他消息能写入的消息移入死信日志 (dead-letter 子目录)，
+ *    不会因为一条坏数据阻塞所有会话的落库；整批都写不进去时视为数据库不可用，保留在队列中等待下次重试
+ */
+@Slf4j
+@Component
+public class ChatMessageJournal implements DisposableBean {
+
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final String DEAD_LETTER_DIR = "dead-letter";
+
+    @Autowired
+    private ChatJournalConfig config;
+
+    @Autowired
+    private ChatMessageMapper chatMessageMapper;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    // 保护 queue / 日志分段的锁
+    private final Object lock = new Object();
+
+    private final Deque<ChatMessage> queue = new ArrayDeque<>();
+
+    // 已追加但尚未落库的消息: sessionId -> (messageId -> message)
+    private final Map<String, Map<String, ChatMessage>> pendingBySession = new ConcurrentHashMap<>();
+
+    // 已封存、等待对应消息落库后删除的日志分段
+    private final List<Path> sealedSegments = new ArrayList<>();
+
+    // 单条写入失败的次数: messageId -> 次数 (只在刷盘线程访问)
+    private final Map<String, Integer> failures = new HashMap<>();
+
+    private Path journalDir;
+    private Path activeSegment;
+    private FileOutputStream activeOut;
+    private long segmentSeq;
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    public void init() throws IOException {
+        journalDir = Paths.get(config.getDir());
+        Files.createDirectories(journalDir);
+
+        recover();
+
+        synchronized (lock) {
+            openSegment();
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "chat-journal-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = config.getFlushInterval();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 追加一条消息
+     * 未设置 id / createTime 时在这里生成，返回后即可通过 getPending 读到
+     */
+    public void append(ChatMessage msg) {
+        if (msg.getId() == null) {
+            msg.setId(IdWorker.get32UUID());
+        }
+        if (msg.getCreateTime() == null) {
+            msg.setCreateTime(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        }
+
+        // 先登记为未落库，再入队，避免刷盘线程先于登记完成移除
+        pendingBySession.compute(msg.getSessionId(), (k, pending) -> {
+            if (pending == null) {
+                pending = new ConcurrentHashMap<>();
+            }
+            pending.put(msg.getId(), msg);
+            return pending;
+        });
+
+        int size;
+        synchronized (lock) {
+            writeToSegment(msg);
+            queue.addLast(msg);
+            size = queue.size();
+        }
+
+        // 数量触发：攒够一批立即刷，不等定时任务
+        if (size >= config.getBatchSize() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    /**
+     * 获取某会话中尚未落库的消息 (按创建时间升序)
+     */
+    public List<ChatMessage> getPending(String sessionId) {
+        Map<String, ChatMessage> pending = pendingBySession.get(sessionId);
+        if (pending == null || pending.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ChatMessage> list = new ArrayList<>(pending.values());
+        list.sort(Comparator.comparing(ChatMessage::getCreateTime).thenComparing(ChatMessage::getId));
+        return list;
+    }
+
+    /**
+     * 将队列中的消息全部批量写入数据库
+     * 只在刷盘线程 (或关闭时) 调用，同一时刻只有一个 flush 在执行
+     */
+    public synchronized void flush() {
+        List<ChatMessage> batch;
+        List<Path> segments;
+        synchronized (lock) {
+            if (queue.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(queue);
+            queue.clear();
+            // 切换分段：本批消息全部位于已封存的分段中
+            rotateSegment();
+            segments = new ArrayList<>(sealedSegments);
+        }
+
+        List<ChatMessage> flushed = new ArrayList<>(batch.size());
+        List<ChatMessage> dead = new ArrayList<>();
+        List<ChatMessage> retry = new ArrayList<>();
+        int batchSize = config.getBatchSize();
+        for (int i = 0; i < batch.size(); i += batchSize) {
+            List<ChatMessage> chunk = batch.subList(i, Math.min(i + batchSize, batch.size()));
+            try {
+                chatMessageMapper.insertBatch(chunk);
+                flushed.addAll(chunk);
+                continue;
+            } catch (Exception e) {
+                log.warn("消息批量落库失败, 改为逐条写入: {}", e.getMessage());
+            }
+            if (!insertEach(chunk, flushed, dead, retry)) {
+                // 整批都写不进去，视为数据库不可用，剩余消息原样等待下次重试
+                retry.addAll(batch.subList(Math.min(i + batchSize, batch.size()), batch.size()));
+                break;
+            }
+        }
+
+        // 数据库可用时，反复失败的消息也移入死信
+        boolean reachable = !flushed.isEmpty() || !dead.isEmpty();
+        if (reachable) {
+            Iterator<ChatMessage> it = retry.iterator();
+            while (it.hasNext()) {
+                ChatMessage msg = it.next();
+                if (failures.merge(msg.getId(), 1, Integer::sum) > config.getMaxRetries()) {
+                    dead.add(msg);
+                    it.remove();
+                }
+            }
+        }
+        if (!dead.isEmpty()) {
+            writeDeadLetter(dead);
+        }
+        flushed.forEach(msg -> failures.remove(msg.getId()));
+        dead.forEach(msg -> failures.remove(msg.getId()));
+        removePending(flushed);
+        removePending(dead);
+
+        synchronized (lock) {
+            // 待重试的消息放回队头并重新写入当前分段，旧分段即可删除，分段数不会随失败次数增长
+            for (int i = retry.size() - 1; i >= 0; i--) {
+                queue.addFirst(retry.get(i));
+            }
+            retry.forEach(this::writeToSegment);
+            sealedSegments.removeAll(segments);
+        }
+        for (Path segment : segments) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                log.warn("删除消息日志分段失败: {}", segment, e);
+            }
+        }
+        if (!retry.isEmpty()) {
+            log.error("消息落库失败, {}/{} 条等待重试", retry.size(), batch.size());
+        }
+    }
+
+    /**
+     * 逐条写入一批消息，结果分别放入 flushed / dead / retry
+     *
+     * @return 是否至少有一条得到数据库的明确响应 (写入成功或违反约束)
+     */
+    private boolean insertEach(List<ChatMessage> chunk, List<ChatMessage> flushed,
+                               List<ChatMessage> dead, List<ChatMessage> retry) {
+        boolean reachable = false;
+        for (int i = 0; i < chunk.size(); i++) {
+            ChatMessage msg = chunk.get(i);
+            try {
+                chatMessageMapper.insertBatch(Collections.singletonList(msg));
+                flushed.add(msg);
+                reachable = true;
+            } catch (DataIntegrityViolationException e) {
+                log.error("消息违反数据库约束, 移入死信日志: {} ({})", msg.getId(), e.getMostSpecificCause().getMessage());
+                dead.add(msg);
+                reachable = true;
+            } catch (DataAccessResourceFailureException | TransientDataAccessException e) {
+                // 连接失败、超时等与具体消息无关的错误，不再逐条尝试
+                log.warn("消息落库失败, 数据库暂不可用: {}", e.getMessage());
+                retry.addAll(chunk.subList(i, chunk.size()));
+                return reachable;
+            } catch (Exception e) {
+                log.warn("消息落库失败: {} ({})", msg.getId(), e.getMessage());
+                retry.add(msg);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * 无法落库的消息追加到死信日志，启动时不会重放，需人工处理
+     */
+    private void writeDeadLetter(List<ChatMessage> dead) {
+        Path file = journalDir.resolve(DEAD_LETTER_DIR).resolve("chat-message-dead" + SEGMENT_SUFFIX);
+        try {
+            Files.createDirectories(file.getParent());
+            StringBuilder lines = new StringBuilder();
+            for (ChatMessage msg : dead) {
+                lines.append(objectMapper.writeValueAsString(msg)).append('\n');
+            }
+            Files.writeString(file, lines, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.error("死信日志写入失败, 以下消息仅记录在日志中: {}", dead, e);
+            return;
+        }
+        log.error("{} 条消息无法落库, 已移入死信日志 {}: {}", dead.size(), file,
+                dead.stream().map(ChatMessage::getId).toList());
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        flushQuietly();
+        synchronized (lock) {
+            if (activeOut != null) {
+                activeOut.close();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("消息日志刷新异常", e);
+        }
+    }
+
+    private void removePending(List<ChatMessage> flushed) {
+        for (ChatMessage msg : flushed) {
+            pendingBySession.computeIfPresent(msg.getSessionId(), (k, pending) -> {
+                pending.remove(msg.getId());
+                return pending.isEmpty() ? null : pending;
+            });
+        }
+    }
+
+    /**
+     * 启动时重放上次未落库的日志分段
+     */
+    private void recover() throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(journalDir)) {
+            segments = files.filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+        if (segments.isEmpty()) {
+            return;
+        }
+
+        List<ChatMessage> recovered = new ArrayList<>();
+        for (Path segment : segments) {
+            try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    try {
+                        recovered.add(objectMapper.readValue(line, ChatMessage.class));
+                    } catch (IOException e) {
+                        // 崩溃时最后一行可能只写了一半，直接跳过
+                        log.warn("跳过损坏的消息日志行: {}", segment);
+                    }
+                }
+            }
+        }
+        log.info("发现 {} 个未落库的消息日志分段, 共 {} 条消息, 开始重放", segments.size(), recovered.size());
+
+        // 交给正常的刷盘流程处理，失败时会保留分段继续重试
+        synchronized (lock) {
+            queue.addAll(recovered);
+            sealedSegments.addAll(segments);
+        }
+        for (ChatMessage msg : recovered) {
+            pendingBySession.computeIfAbsent(msg.getSessionId(), k -> new ConcurrentHashMap<>()).put(msg.getId(), msg);
+        }
+        segmentSeq = segments.size();
+    }
+
+    private void writeToSegment(ChatMessage msg) {
+        try {
+            byte[] line = (objectMapper.writeValueAsString(msg) + "\n").getBytes(StandardCharsets.UTF_8);
+            activeOut.write(line);
+            if (Boolean.TRUE.equals(config.getFsync())) {
+                activeOut.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            // 本地日志只是兜底，写失败不影响消息入队
+            log.error("消息日志写入失败, 崩溃时该消息可能丢失: {}", msg.getId(), e);
+        }
+    }
+
+    private void rotateSegment() {
+        try {
+            activeOut.close();
+        } catch (IOException e) {
+            log.warn("关闭消息日志分段失败: {}", activeSegment, e);
+        }
+        sealedSegments.add(activeSegment);
+        openSegment();
+    }
+
+    private void openSegment() {
+        String name = String.format("chat-message-%d-%06d%s", System.currentTimeMillis(), segmentSeq++, SEGMENT_SUFFIX);
+        activeSegment = journalDir.resolve(name);
+        try {
+            activeOut = new FileOutputStream(activeSegment.toFile(), true);
+        } catch (IOException e) {
+            throw new IllegalStateException("无法创建消息日志分段: " + activeSegment, e);
+        }
+    }
+}
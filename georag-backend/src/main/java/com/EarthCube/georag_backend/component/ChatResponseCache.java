@@ -0,0 +1,298 @@
+package com.EarthCube.georag_backend.component;
+
+import cn.hutool.core.convert.Convert;
+import com.EarthCube.georag_backend.config.ChatCacheConfig;
+import com.EarthCube.georag_backend.retrieval.ChineseTokenizer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * 对话回复缓存
+ * 以 "上下文指纹 + 规范化问题" 为键缓存完整回复，命中时直接回放，不调用 AI 服务
+ * 1. 上下文指纹：模型、会话摘要、参考资料、历史消息的摘要值，只有上下文完全相同的提问才会共享回复
+ * 2. 精确命中：规范化后的问题完全相同 (全半角、大小写、空白、句末标点不敏感)
+ * 3. 近似命中 (默认关闭)：同一上下文指纹下，关键词集合 (数字、字母串、汉字二元组) 完全相同，
+ *    且问题向量余弦相似度达到阈值的最相近条目；只差地名、年份、否定词的问题关键词不同，不会共用回复
+ * 4. 条目按写入时间过期，超出上限按近似 LRU 淘汰；只缓存正常结束的回复
+ */
+@Slf4j
+@Component
+public class ChatResponseCache {
+
+    // 问题向量维度 (字符 n-gram 特征哈希)
+    private static final int DIMENSION = 512;
+
+    private static final String TRAILING_PUNCTUATION = "?？。.!！~～…";
+
+    private final ChatCacheConfig config;
+
+    private final Cache<String, Entry> cache;
+
+    private final Counter exactHits;
+    private final Counter semanticHits;
+    private final Counter misses;
+
+    public ChatResponseCache(ChatCacheConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaxEntries())
+                .expireAfterWrite(Duration.ofMillis(config.getTtl()))
+                .build();
+        this.exactHits = lookupCounter(meterRegistry, "exact");
+        this.semanticHits = lookupCounter(meterRegistry, "semantic");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    /**
+     * 命中缓存时回放缓存的回复，否则调用 live 并在正常结束后写入缓存
+     *
+     * @param query   用户当前的问题
+     * @param history 历史上下文 (不含当前问题)
+     * @param summary    会话摘要
+     * @param references 知识库参考资料，知识库更新后不会命中旧回复
+     * @param model      ChatSendDTO.options.model
+     * @param live       实际调用 AI 服务
+     */
+    public Flux<String> stream(String query, List<Map<String, String>> history, String summary,
+                               List<String> references, String model, Supplier<Flux<String>> live) {
+        if (!Boolean.TRUE.equals(config.getEnabled()) || query == null || query.isBlank()) {
+            return live.get();
+        }
+        String fingerprint = fingerprint(history, summary, references, model);
+        String normalized = normalize(query);
+        String key = fingerprint + ":" + normalized;
+
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            exactHits.increment();
+            return replay(entry.answer);
+        }
+
+        float[] vector = embed(normalized);
+        Set<String> terms = terms(normalized);
+        entry = nearest(fingerprint, vector, terms);
+        if (entry != null) {
+            semanticHits.increment();
+            log.debug("回复缓存近似命中: [{}] -> [{}]", normalized, entry.query);
+            return replay(entry.answer);
+        }
+
+        misses.increment();
+        StringBuilder answer = new StringBuilder();
+        return live.get()
+                .doOnNext(answer::append)
+                .doOnComplete(() -> {
+                    if (answer.length() > 0 && answer.length() <= config.getMaxAnswerChars()) {
+                        cache.put(key, new Entry(fingerprint, normalized, vector, terms, answer.toString()));
+                    }
+                });
+    }
+
+    /**
+     * 是否可能命中：有问题相同 (或关键词相同、可近似命中) 的条目，不区分上下文
+     * AI 服务熔断时用于决定是否值得继续准备上下文；返回 false 时一定不会命中
+     */
+    public boolean mayHit(String query) {
+        if (!Boolean.TRUE.equals(config.getEnabled()) || query == null || query.isBlank()) {
+            return false;
+        }
+        String normalized = normalize(query);
+        boolean near = config.getSimilarityThreshold() < 1.0;
+        Set<String> terms = near ? terms(normalized) : null;
+        for (Entry entry : cache.asMap().values()) {
+            if (entry.query.equals(normalized) || (near && entry.terms.equals(terms))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 清空缓存 (知识库或模型更新后调用)
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * 同一上下文指纹、关键词集合相同的条目中，相似度最高且达到阈值的条目
+     * 条目数受 max-entries 限制，这里直接线性扫描
+     */
+    private Entry nearest(String fingerprint, float[] vector, Set<String> terms) {
+        double threshold = config.getSimilarityThreshold();
+        if (threshold >= 1.0) {
+            return null;
+        }
+        Entry best = null;
+        double bestScore = threshold;
+        for (Entry candidate : cache.asMap().values()) {
+            if (!candidate.fingerprint.equals(fingerprint) || !candidate.terms.equals(terms)) {
+                continue;
+            }
+            double score = dot(vector, candidate.vector);
+            if (score >= bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 按固定字数切分后一次性回放
+     */
+    private Flux<String> replay(String answer) {
+        int size = Math.max(1, config.getReplayChunkChars());
+        if (answer.length() <= size) {
+            return Flux.just(answer);
+        }
+        List<String> chunks = new ArrayList<>(answer.length() / size + 1);
+        int start = 0;
+        while (start < answer.length()) {
+            int end = Math.min(answer.length(), start + size);
+            // 不拆开代理对
+            if (end < answer.length() && Character.isHighSurrogate(answer.charAt(end - 1))) {
+                end++;
+            }
+            chunks.add(answer.substring(start, end));
+            start = end;
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    /**
+     * 上下文指纹
+     */
+    private static String fingerprint(List<Map<String, String>> history, String summary, List<String> references,
+                                      String model) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(model == null ? "" : model).append('\u0001');
+        sb.append(summary == null ? "" : summary).append('\u0001');
+        if (references != null) {
+            for (String reference : references) {
+                sb.append(reference).append('\u0003');
+            }
+        }
+        sb.append('\u0001');
+        if (history != null) {
+            for (Map<String, String> message : history) {
+                sb.append(message.get("role")).append('\u0002').append(message.get("content")).append('\u0001');
+            }
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 规范化问题：全角转半角、转小写、合并空白、去掉句末标点
+     */
+    static String normalize(String query) {
+        String s = Convert.toDBC(query).toLowerCase().trim().replaceAll("\\s+", " ");
+        int end = s.length();
+        while (end > 0 && (TRAILING_PUNCTUATION.indexOf(s.charAt(end - 1)) >= 0 || s.charAt(end - 1) == ' ')) {
+            end--;
+        }
+        return s.substring(0, end);
+    }
+
+    /**
+     * 问题向量：字符一元 / 二元组特征哈希到固定维度后归一化
+     * 对中文近似问法 (增删个别字词、调换语序) 有较好的区分度，不依赖外部模型
+     */
+    static float[] embed(String text) {
+        float[] vector = new float[DIMENSION];
+        int prev = -1;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isWhitespace(cp)) {
+                prev = -1;
+                continue;
+            }
+            addFeature(vector, cp, 0.5f);
+            if (prev >= 0) {
+                addFeature(vector, prev * 31 + cp, 1.0f);
+            }
+            prev = cp;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float inv = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] *= inv;
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * 问题的关键词集合：与全文检索相同的分词 (数字、字母串整体为一个词，汉字切成二元组)
+     */
+    static Set<String> terms(String text) {
+        return new HashSet<>(ChineseTokenizer.tokenize(text));
+    }
+
+    private static void addFeature(float[] vector, int feature, float weight) {
+        int h = feature * 0x9E3779B1;
+        h ^= h >>> 15;
+        vector[(h & Integer.MAX_VALUE) % DIMENSION] += (h & 0x10000) == 0 ? weight : -weight;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("georag.chat.cache.lookups")
+                .description("对话回复缓存查询次数")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static class Entry {
+        final String fingerprint;
+        final String query;
+        final float[] vector;
+        final Set<String> terms;
+        final String answer;
+
+        Entry(String fingerprint, String query, float[] vector, Set<String> terms, String answer) {
+            this.fingerprint = fingerprint;
+            this.query = query;
+            this.vector = vector;
+            this.terms = terms;
+            this.answer = answer;
+        }
+    }
+}
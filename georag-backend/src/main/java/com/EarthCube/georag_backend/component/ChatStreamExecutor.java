@@ -0,0 +1,171 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.common.context.UserContext;
+import com.EarthCube.georag_backend.config.ChatStreamConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SSE 流式对话执行器
+ * 负责并发名额控制 (准入 + 排队超时) 以及有界的订阅线程池
+ * 排队等待名额是异步的，不占用请求线程
+ */
+@Slf4j
+@Component
+public class ChatStreamExecutor implements DisposableBean {
+
+    private final ChatStreamConfig config;
+
+    // 并发流名额
+    private final Semaphore streamPermits;
+
+    // 等待名额的请求 (先来先得)，超时或取消后留在队列中的条目在转交时跳过
+    private final Queue<CompletableFuture<StreamPermit>> waiters = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicInteger queuedStreams = new AtomicInteger();
+
+    private final Counter rejectedCounter;
+
+    // 有界线程池：任务数不会超过并发名额，队列按名额数设置即可
+    private final ThreadPoolExecutor executor;
+
+    public ChatStreamExecutor(ChatStreamConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.streamPermits = new Semaphore(config.getMaxConcurrentStreams(), true);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                config.getWorkerThreads(),
+                config.getWorkerThreads(),
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(config.getMaxConcurrentStreams()),
+                r -> {
+                    Thread t = new Thread(r, "sse-stream-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        Gauge.builder("georag.chat.streams.active", activeStreams, AtomicInteger::get)
+                .description("正在进行的流式对话数")
+                .register(meterRegistry);
+        Gauge.builder("georag.chat.streams.queued", queuedStreams, AtomicInteger::get)
+                .description("正在排队等待名额的请求数")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("georag.chat.streams.rejected")
+                .description("因繁忙被拒绝的流式对话数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 申请一个流式对话名额，不阻塞调用线程
+     * 有空闲名额时立即得到；名额已满时排队，归还的名额按先来先得直接转交给排队者；
+     * 队列已满或等待超时时以空结束。取消订阅即退出排队
+     * 每次订阅各自申请一个名额，只组装不订阅时不占用名额
+     */
+    public Mono<StreamPermit> acquire() {
+        return Mono.defer(this::doAcquire);
+    }
+
+    private Mono<StreamPermit> doAcquire() {
+        if (streamPermits.tryAcquire()) {
+            activeStreams.incrementAndGet();
+            return Mono.just(new StreamPermit());
+        }
+
+        // 队列已满，直接拒绝
+        if (queuedStreams.incrementAndGet() > config.getQueueCapacity()) {
+            queuedStreams.decrementAndGet();
+            rejectedCounter.increment();
+            return Mono.empty();
+        }
+
+        CompletableFuture<StreamPermit> waiter = new CompletableFuture<StreamPermit>()
+                .completeOnTimeout(null, config.getQueueTimeout(), TimeUnit.MILLISECONDS);
+        waiter.whenComplete((permit, e) -> {
+            queuedStreams.decrementAndGet();
+            if (permit == null && e == null) {
+                rejectedCounter.increment();
+            }
+        });
+        waiters.add(waiter);
+        // 入队前恰好有名额归还时，归还方可能没看到本次排队，这里再检查一次
+        if (streamPermits.tryAcquire()) {
+            activeStreams.incrementAndGet();
+            handOver();
+        }
+        return Mono.fromFuture(waiter)
+                .doOnCancel(() -> {
+                    // 取消与转交同时发生时，已转交的名额立即归还
+                    StreamPermit permit = waiter.getNow(null);
+                    if (permit != null) {
+                        permit.release();
+                    }
+                });
+    }
+
+    /**
+     * 把当前持有的一个名额转交给最早的排队者，没有排队者时归还
+     */
+    private void handOver() {
+        CompletableFuture<StreamPermit> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.complete(new StreamPermit())) {
+                return;
+            }
+        }
+        activeStreams.decrementAndGet();
+        streamPermits.release();
+        // 归还之后才入队的排队者
+        if (!waiters.isEmpty() && streamPermits.tryAcquire()) {
+            activeStreams.incrementAndGet();
+            handOver();
+        }
+    }
+
+    /**
+     * 提交流式任务
+     */
+    public void execute(Runnable task) {
+        // 推送线程上同样可以读取 UserContext
+        executor.execute(UserContext.wrap(task));
+    }
+
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+
+    public int getQueuedStreams() {
+        return queuedStreams.get();
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    /**
+     * 流式对话名额
+     * 流结束 (完成/异常/超时/客户端断开) 时归还，重复调用 release 只会生效一次
+     */
+    public class StreamPermit {
+
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                handOver();
+            }
+        }
+    }
+}
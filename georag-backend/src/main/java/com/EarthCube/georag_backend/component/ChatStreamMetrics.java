@@ -0,0 +1,196 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.common.exception.AiUnavailableException;
+import com.EarthCube.georag_backend.config.ChatMetricsConfig;
+import io.micrometer.core.instrument.*;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 流式对话指标
+ * 包装 AI 服务返回的原始 Token 流 (合并之前)，记录首字延迟、Token 间隔、Token 数 / 字节数、
+ * 整体耗时、上游错误 (按原因) 以及正在进行的 AI 流式调用数，按模型打标签，经 /actuator/prometheus 导出
+ */
+@Component
+public class ChatStreamMetrics {
+
+    private static final String DEFAULT_MODEL = "default";
+    private static final String OTHER_MODEL = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final ChatMetricsConfig metricsConfig;
+
+    // 正在进行的 AI 服务流式调用数 (缓存命中的回放不经过 AI 服务，不计入)
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    // 按模型缓存的指标，避免每个 Token 都查找一次注册表
+    private final Map<String, StreamMeters> metersByModel = new ConcurrentHashMap<>();
+
+    public ChatStreamMetrics(MeterRegistry meterRegistry, ChatMetricsConfig metricsConfig) {
+        this.meterRegistry = meterRegistry;
+        this.metricsConfig = metricsConfig;
+        Gauge.builder("georag.chat.ai.streams", activeStreams, AtomicInteger::get)
+                .description("正在进行的 AI 服务流式调用数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 为一次流式调用加上指标采集
+     *
+     * @param tokens AI 服务返回的原始 Token 流
+     * @param model  ChatSendDTO.options.model，为空时记为 default
+     */
+    public Flux<String> instrument(Flux<String> tokens, String model) {
+        StreamMeters meters = metersByModel.computeIfAbsent(modelTag(model), StreamMeters::new);
+        return Flux.defer(() -> {
+            StreamState state = new StreamState();
+            return tokens
+                    .doOnSubscribe(s -> {
+                        state.start = System.nanoTime();
+                        state.last = state.start;
+                        activeStreams.incrementAndGet();
+                    })
+                    .doOnNext(token -> {
+                        long now = System.nanoTime();
+                        if (state.count == 0) {
+                            meters.ttft.record(now - state.start, TimeUnit.NANOSECONDS);
+                        } else {
+                            meters.interToken.record(now - state.last, TimeUnit.NANOSECONDS);
+                        }
+                        state.last = now;
+                        state.count++;
+                        state.bytes += token.getBytes(StandardCharsets.UTF_8).length;
+                    })
+                    .doOnError(e -> errorCounter(meters.model, causeOf(e)).increment())
+                    .doFinally(signal -> {
+                        activeStreams.decrementAndGet();
+                        long elapsed = System.nanoTime() - state.start;
+                        Timer.builder("georag.chat.stream.duration")
+                                .description("流式对话总耗时")
+                                .tags("model", meters.model, "outcome", outcomeOf(signal))
+                                .publishPercentileHistogram()
+                                .publishPercentiles(0.5, 0.95, 0.99)
+                                .register(meterRegistry)
+                                .record(elapsed, TimeUnit.NANOSECONDS);
+                        meters.tokens.record(state.count);
+                        meters.bytes.record(state.bytes);
+                        if (signal == SignalType.ON_COMPLETE && state.count > 0 && elapsed > 0) {
+                            meters.tokenRate.record(state.count * 1e9 / elapsed);
+                        }
+                    });
+        });
+    }
+
+    private Counter errorCounter(String model, String cause) {
+        return Counter.builder("georag.chat.stream.errors")
+                .description("AI 服务流式调用失败次数")
+                .tags("model", model, "cause", cause)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 模型标签：只接受 chat.metrics.models 中列出的模型名，避免客户端传入任意值导致标签基数失控
+     */
+    private String modelTag(String model) {
+        if (model == null || model.isBlank()) {
+            return DEFAULT_MODEL;
+        }
+        List<String> known = metricsConfig.getModels();
+        return known != null && known.contains(model) ? model : OTHER_MODEL;
+    }
+
+    private static String outcomeOf(SignalType signal) {
+        switch (signal) {
+            case ON_COMPLETE:
+                return "success";
+            case ON_ERROR:
+                return "error";
+            default:
+                return "cancelled";
+        }
+    }
+
+    private static String causeOf(Throwable e) {
+        if (e instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (e instanceof AiUnavailableException) {
+            return "unavailable";
+        }
+        if (e instanceof WebClientResponseException) {
+            return "http_" + ((WebClientResponseException) e).getStatusCode().value();
+        }
+        if (e instanceof WebClientRequestException) {
+            return "connect";
+        }
+        return "other";
+    }
+
+    /**
+     * 单次流的采集状态 (同一条流的信号串行到达)
+     */
+    private static class StreamState {
+        long start;
+        long last;
+        int count;
+        long bytes;
+    }
+
+    /**
+     * 某个模型的指标
+     */
+    private class StreamMeters {
+        final String model;
+        final Timer ttft;
+        final Timer interToken;
+        final DistributionSummary tokens;
+        final DistributionSummary bytes;
+        final DistributionSummary tokenRate;
+
+        StreamMeters(String model) {
+            this.model = model;
+            this.ttft = Timer.builder("georag.chat.stream.ttft")
+                    .description("首字延迟 (发起调用到收到第一个 Token)")
+                    .tag("model", model)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .maximumExpectedValue(Duration.ofSeconds(60))
+                    .register(meterRegistry);
+            this.interToken = Timer.builder("georag.chat.stream.inter.token")
+                    .description("相邻两个 Token 的间隔")
+                    .tag("model", model)
+                    .publishPercentileHistogram()
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(meterRegistry);
+            this.tokens = DistributionSummary.builder("georag.chat.stream.tokens")
+                    .description("单次流式对话返回的 Token 数")
+                    .tag("model", model)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.bytes = DistributionSummary.builder("georag.chat.stream.bytes")
+                    .description("单次流式对话返回的字节数")
+                    .baseUnit("bytes")
+                    .tag("model", model)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.tokenRate = DistributionSummary.builder("georag.chat.stream.token.rate")
+                    .description("单次流式对话的生成速度 (Token/秒)")
+                    .tag("model", model)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.EarthCube.georag_backend.component;
+
+import cn.hutool.core.util.StrUtil;
+import com.EarthCube.georag_backend.config.ChatContextConfig;
+import com.EarthCube.georag_backend.constant.ChatConstants;
+import com.EarthCube.georag_backend.entity.ChatSession;
+import com.EarthCube.georag_backend.mapper.ChatSessionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 会话滚动摘要
+ * 消息滑出上下文窗口时，由后台线程调用 AI 服务，把它们与已有摘要合并成新的摘要，
+ * 保存在 chat_session.summary 列中 (不在用户可编辑的 meta_info 里，也不更新 update_time)，
+ * 之后每轮对话作为一条 system 消息发送，AI 服务把它作为 SystemMessage 交给模型
+ * 1. 完全在后台执行，不阻塞对话链路；队列满或调用失败时只记录日志，本批消息不计入摘要
+ * 2. 同一会话的摘要任务串行执行，保证每次都基于上一次的结果合并
+ */
+@Slf4j
+@Component
+public class ChatSummarizer implements DisposableBean {
+
+    private static final int SUMMARY_THREADS = 2;
+    private static final int SUMMARY_QUEUE_CAPACITY = 1000;
+
+    @Autowired
+    private ChatContextConfig config;
+
+    @Autowired
+    private ChatSessionMapper chatSessionMapper;
+
+    @Autowired
+    private AiModelClient aiModelClient;
+
+    // 每个会话最后一个摘要任务，新任务接在它后面执行
+    private final Map<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    private final ThreadPoolExecutor executor;
+
+    public ChatSummarizer() {
+        AtomicInteger seq = new AtomicInteger();
+        executor = new ThreadPoolExecutor(SUMMARY_THREADS, SUMMARY_THREADS, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(SUMMARY_QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "chat-summary-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, e) -> {
+                    throw new RejectedExecutionException("摘要任务队列已满");
+                });
+    }
+
+    /**
+     * 是否开启滚动摘要
+     */
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getSummaryEnabled());
+    }
+
+    /**
+     * 每次摘要合并的消息条数 (也是上下文缓存允许超出的余量)
+     */
+    public int getBatchSize() {
+        return Math.max(1, config.getSummaryBatchSize());
+    }
+
+    /**
+     * 读取会话当前的摘要，没有返回 null
+     */
+    public String getSummary(ChatSession session) {
+        if (session == null) {
+            return null;
+        }
+        if (StrUtil.isNotBlank(session.getSummary())) {
+            return session.getSummary();
+        }
+        // 兼容旧版本写在 meta_info 中的摘要
+        return session.getMetaInfo() == null ? null
+                : StrUtil.toStringOrNull(session.getMetaInfo().get(ChatConstants.SUMMARY_META_KEY));
+    }
+
+    /**
+     * 把滑出窗口的消息合并进会话摘要 (异步)
+     *
+     * @param sessionId 会话 ID
+     * @param evicted   滑出窗口的上下文条目，按时间升序
+     */
+    public void fold(String sessionId, List<?> evicted) {
+        List<Map<String, String>> messages = toMessages(evicted);
+        if (!isEnabled() || messages.isEmpty()) {
+            return;
+        }
+        CompletableFuture<Void> next = tails.compute(sessionId, (k, tail) -> {
+            CompletableFuture<Void> prev = tail == null ? CompletableFuture.completedFuture(null) : tail;
+            return prev.thenRunAsync(() -> doFold(sessionId, messages), executor)
+                    .exceptionally(e -> {
+                        log.warn("会话摘要失败, {} 条消息未计入摘要, SessionId: {}", messages.size(), sessionId, e);
+                        return null;
+                    });
+        });
+        // 在 compute 之外注册，避免任务同步完成时在 compute 内部修改 Map
+        next.whenComplete((v, e) -> tails.remove(sessionId, next));
+    }
+
+    private void doFold(String sessionId, List<Map<String, String>> messages) {
+        ChatSession session = chatSessionMapper.selectById(sessionId);
+        if (session == null || session.getStatus() == 2) {
+            return;
+        }
+        String previous = getSummary(session);
+
+        String summary = aiModelClient.streamChat(buildPrompt(previous), messages)
+                .collect(Collectors.joining())
+                .block(Duration.ofMillis(config.getSummaryTimeout()));
+        if (StrUtil.isBlank(summary)) {
+            log.warn("AI 服务返回空摘要, SessionId: {}", sessionId);
+            return;
+        }
+
+        chatSessionMapper.updateSummary(sessionId, summary.trim());
+        log.debug("会话摘要已更新, 合并 {} 条消息, SessionId: {}", messages.size(), sessionId);
+    }
+
+    private String buildPrompt(String previous) {
+        return "请将已有摘要与上面的对话内容合并，生成一段新的对话摘要。"
+                + "保留用户关注的问题、涉及的地点、地层、数据等关键事实以及已得出的结论，"
+                + "不超过 " + config.getSummaryMaxChars() + " 字，只输出摘要本身。\n"
+                + "已有摘要：" + (StrUtil.isBlank(previous) ? "无" : previous);
+    }
+
+    /**
+     * 只保留 role / content 字段
+     */
+    @SuppressWarnings("unchecked")
+    private List<Map<String, String>> toMessages(List<?> evicted) {
+        if (evicted == null || evicted.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Map<String, String>> messages = new ArrayList<>(evicted.size());
+        for (Object obj : evicted) {
+            if (obj instanceof Map) {
+                Map<String, Object> item = (Map<String, Object>) obj;
+                Map<String, String> message = new HashMap<>();
+                message.put("role", StrUtil.toStringOrNull(item.get("role")));
+                message.put("content", StrUtil.toStringOrNull(item.get("content")));
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
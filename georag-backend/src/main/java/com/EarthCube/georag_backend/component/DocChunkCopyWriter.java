@@ -0,0 +1,84 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.entity.DocChunk;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * 文档片段批量写入
+ * 使用 PostgreSQL COPY 协议，一批片段一次往返，比逐条 / 批量 INSERT 快一个数量级
+ * create_time 走表的默认值，不经过 MyBatis 的自动填充
+ */
+@Component
+public class DocChunkCopyWriter {
+
+    private static final String COPY_SQL = "COPY doc_chunk (id, doc_id, seq, page, content, meta_info, "
+            + "min_lon, min_lat, max_lon, max_lat) FROM STDIN WITH (FORMAT csv)";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * 写入一批片段 (自动提交)，返回写入行数
+     */
+    public long write(List<DocChunk> chunks) throws SQLException, IOException {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        StringBuilder csv = new StringBuilder(chunks.size() * 600);
+        for (DocChunk chunk : chunks) {
+            appendField(csv, chunk.getId()).append(',');
+            appendField(csv, chunk.getDocId()).append(',');
+            appendField(csv, chunk.getSeq()).append(',');
+            appendField(csv, chunk.getPage()).append(',');
+            appendField(csv, chunk.getContent()).append(',');
+            appendField(csv, toJson(chunk)).append(',');
+            appendField(csv, chunk.getMinLon()).append(',');
+            appendField(csv, chunk.getMinLat()).append(',');
+            appendField(csv, chunk.getMaxLon()).append(',');
+            appendField(csv, chunk.getMaxLat()).append('\n');
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            return copyManager.copyIn(COPY_SQL, new StringReader(csv.toString()));
+        }
+    }
+
+    private String toJson(DocChunk chunk) throws JsonProcessingException {
+        return chunk.getMetaInfo() == null ? null : objectMapper.writeValueAsString(chunk.getMetaInfo());
+    }
+
+    /**
+     * CSV 字段：null 写成空 (COPY 视为 NULL)，其余加引号，内部引号双写
+     * PostgreSQL 文本不能包含 \0，这里直接去掉
+     */
+    private static StringBuilder appendField(StringBuilder csv, Object value) {
+        if (value == null) {
+            return csv;
+        }
+        String s = value.toString();
+        csv.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') {
+                csv.append("\"\"");
+            } else if (c != '\0') {
+                csv.append(c);
+            }
+        }
+        return csv.append('"');
+    }
+}
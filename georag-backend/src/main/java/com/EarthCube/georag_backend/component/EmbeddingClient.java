@@ -0,0 +1,81 @@
+package com.EarthCube.georag_backend.component;
+
+import cn.hutool.core.util.StrUtil;
+import com.EarthCube.georag_backend.config.AiServiceConfig;
+import com.EarthCube.georag_backend.config.RetrievalConfig;
+import jakarta.annotation.PostConstruct;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embedding 服务客户端
+ * 调用 AI 服务的 /embed 接口 (与 RAGDEMO 相同的 bge-small-zh-v1.5，已归一化)，把文本转换为向量
+ */
+@Component
+public class EmbeddingClient {
+
+    @Autowired
+    private RetrievalConfig config;
+
+    @Autowired
+    private AiServiceConfig aiServiceConfig;
+
+    @Autowired
+    private WebClient webClient;
+
+    private WebClient client;
+
+    @PostConstruct
+    public void init() {
+        String baseUrl = StrUtil.blankToDefault(config.getEmbeddingUrl(), aiServiceConfig.getBaseUrl());
+        client = webClient.mutate().baseUrl(baseUrl).build();
+    }
+
+    /**
+     * 单条文本转向量 (阻塞)
+     */
+    public float[] embed(String text) {
+        return embedAll(Collections.singletonList(text)).get(0);
+    }
+
+    /**
+     * 批量文本转向量 (阻塞)，返回顺序与输入一致
+     */
+    public List<float[]> embedAll(List<String> texts) {
+        return embedAll(texts, config.getEmbeddingTimeout());
+    }
+
+    /**
+     * 批量文本转向量 (阻塞)，指定超时 (毫秒)，用于批量入库等大批量调用
+     */
+    public List<float[]> embedAll(List<String> texts, long timeoutMillis) {
+        EmbedResponse response = client.post()
+                .uri(config.getEmbeddingPath())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("texts", texts))
+                .retrieve()
+                .bodyToMono(EmbedResponse.class)
+                .block(Duration.ofMillis(timeoutMillis));
+        if (response == null || response.getEmbeddings() == null
+                || response.getEmbeddings().size() != texts.size()) {
+            throw new IllegalStateException("Embedding 服务返回的向量数与输入不一致");
+        }
+        return response.getEmbeddings();
+    }
+
+    /**
+     * /embed 接口响应
+     */
+    @Data
+    public static class EmbedResponse {
+        private List<float[]> embeddings;
+    }
+}
@@ -0,0 +1,83 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.constant.UserConstants;
+import com.EarthCube.georag_backend.util.RedisUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * 登录用户信息本地缓存
+ * 按用户 ID (JWT subject) 缓存 UserDetails，鉴权时不必每个请求都查询 sys_user
+ * 1. 写入后 PRINCIPAL_CACHE_TTL 过期，作为兜底
+ * 2. 用户状态 / 密码 / 资料变更时主动失效，并通过 Redis Pub/Sub 通知其他节点
+ */
+@Slf4j
+@Component
+public class UserPrincipalCache implements MessageListener {
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    // 当前节点标识，用于忽略自己发出的失效通知
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Cache<String, UserDetails> cache = Caffeine.newBuilder()
+            .maximumSize(UserConstants.PRINCIPAL_CACHE_SIZE)
+            .expireAfterWrite(Duration.ofSeconds(UserConstants.PRINCIPAL_CACHE_TTL))
+            .build();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(UserConstants.PRINCIPAL_INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 读取用户信息，未命中时调用 loader 加载 (同一用户并发未命中只加载一次)
+     * loader 抛出的异常原样抛出，不缓存
+     */
+    public UserDetails get(String userId, Function<String, UserDetails> loader) {
+        return cache.get(userId, loader);
+    }
+
+    /**
+     * 使某个用户的缓存失效，并通知其他节点
+     */
+    public void invalidate(String userId) {
+        cache.invalidate(userId);
+        redisUtil.publish(UserConstants.PRINCIPAL_INVALIDATE_CHANNEL, nodeId + "|" + userId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (!(body instanceof String)) {
+            return;
+        }
+        String payload = (String) body;
+        int sep = payload.indexOf('|');
+        if (sep < 0 || payload.substring(0, sep).equals(nodeId)) {
+            return;
+        }
+        cache.invalidate(payload.substring(sep + 1));
+    }
+}
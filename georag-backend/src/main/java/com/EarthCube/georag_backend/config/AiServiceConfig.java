@@ -0,0 +1,223 @@
+package com.EarthCube.georag_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * AI 服务 (georag-agent) 调用配置类
+ * 对应 application.yml 中的 ai.service 前缀配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "ai.service")
+public class AiServiceConfig {
+
+    /**
+     * AI 服务基准地址
+     * 对应 ai.service.base-url
+     */
+    private String baseUrl = "http://localhost:8000";
+
+    /**
+     * 多个 AI 服务实例地址，为空时只使用 base-url
+     * 对应 ai.service.backends
+     */
+    private List<String> backends = new ArrayList<>();
+
+    /**
+     * 负载均衡策略：least-outstanding (进行中的流最少) / ewma (首字延迟 EWMA × 进行中的流)
+     * 对应 ai.service.lb-strategy
+     */
+    private String lbStrategy = "least-outstanding";
+
+    /**
+     * EWMA 衰减时间常数 (毫秒)，越小对延迟变化越敏感
+     * 对应 ai.service.ewma-decay
+     */
+    private Long ewmaDecay = 10000L;
+
+    /**
+     * 新实例 / 恢复的实例慢启动时长 (毫秒)，期间权重从 10% 线性升到 100%，0 表示关闭
+     * 对应 ai.service.slow-start-window
+     */
+    private Long slowStartWindow = 30000L;
+
+    /**
+     * 健康检查路径，任何非 5xx 响应都视为存活
+     * 对应 ai.service.health-check-path
+     */
+    private String healthCheckPath = "/";
+
+    /**
+     * 健康检查间隔 (毫秒)，0 表示关闭
+     * 对应 ai.service.health-check-interval
+     */
+    private Long healthCheckInterval = 5000L;
+
+    /**
+     * 健康检查超时 (毫秒)
+     * 对应 ai.service.health-check-timeout
+     */
+    private Long healthCheckTimeout = 2000L;
+
+    /**
+     * 连续失败 (连接失败 / 5xx / 首字超时) 多少次后摘除实例
+     * 对应 ai.service.outlier-consecutive-failures
+     */
+    private Integer outlierConsecutiveFailures = 5;
+
+    /**
+     * 摘除时长基数 (毫秒)，第 n 次摘除时长为 n 倍，不超过 outlier-max-ejection-time
+     * 对应 ai.service.outlier-base-ejection-time
+     */
+    private Long outlierBaseEjectionTime = 30000L;
+
+    /**
+     * 最长摘除时长 (毫秒)
+     * 对应 ai.service.outlier-max-ejection-time
+     */
+    private Long outlierMaxEjectionTime = 300000L;
+
+    /**
+     * 连接池最大连接数 (HTTP/1.1 下即最大并发流数)
+     * 对应 ai.service.max-connections
+     */
+    private Integer maxConnections = 500;
+
+    /**
+     * 连接耗尽时允许排队等待连接的请求数，超过直接失败
+     * 对应 ai.service.pending-acquire-max-count
+     */
+    private Integer pendingAcquireMaxCount = 1000;
+
+    /**
+     * 排队等待连接的最长时间 (毫秒)
+     * 对应 ai.service.pending-acquire-timeout
+     */
+    private Long pendingAcquireTimeout = 5000L;
+
+    /**
+     * 连接空闲多久后关闭 (毫秒)，应小于 AI 服务端的 keep-alive 超时
+     * 对应 ai.service.max-idle-time
+     */
+    private Long maxIdleTime = 30000L;
+
+    /**
+     * 连接最长存活时间 (毫秒)，到期后不再复用，便于服务端扩缩容后重新均衡
+     * 对应 ai.service.max-life-time
+     */
+    private Long maxLifeTime = 600000L;
+
+    /**
+     * 后台清理空闲 / 过期连接的间隔 (毫秒)
+     * 对应 ai.service.evict-interval
+     */
+    private Long evictInterval = 10000L;
+
+    /**
+     * 建立 TCP 连接超时 (毫秒)
+     * 对应 ai.service.connect-timeout
+     */
+    private Integer connectTimeout = 3000;
+
+    /**
+     * 首个 Token 超时 (毫秒)：发起调用后超过该时间仍未收到任何 Token 即失败
+     * 对应 ai.service.first-token-timeout
+     */
+    private Long firstTokenTimeout = 30000L;
+
+    /**
+     * Token 间隔超时 (毫秒)：两个 Token 之间超过该时间即认为上游卡住
+     * 对应 ai.service.idle-timeout
+     */
+    private Long idleTimeout = 15000L;
+
+    /**
+     * 建立连接失败 (尚未收到任何 Token) 时的重试次数，重试优先换一个实例
+     * 对应 ai.service.connect-retries
+     */
+    private Integer connectRetries = 2;
+
+    /**
+     * 连接失败重试的初始退避时间 (毫秒)，之后指数增长并带抖动
+     * 对应 ai.service.connect-retry-backoff
+     */
+    private Long connectRetryBackoff = 100L;
+
+    /**
+     * 是否开启对冲请求：超过阈值仍未收到首个 Token 时，向另一实例再发一次，先出字的胜出，另一个取消
+     * 只有多个实例时生效
+     * 对应 ai.service.hedge-enabled
+     */
+    private Boolean hedgeEnabled = false;
+
+    /**
+     * 对冲阈值取近期首字延迟的哪个分位
+     * 对应 ai.service.hedge-percentile
+     */
+    private Double hedgePercentile = 0.95;
+
+    /**
+     * 对冲阈值下限 (毫秒)，样本不足时也使用该值
+     * 对应 ai.service.hedge-min-delay
+     */
+    private Long hedgeMinDelay = 1000L;
+
+    /**
+     * 熔断：统计最近多少次调用的失败率
+     * 对应 ai.service.circuit-sliding-window-size
+     */
+    private Integer circuitSlidingWindowSize = 20;
+
+    /**
+     * 熔断：窗口内至少多少次调用才计算失败率
+     * 对应 ai.service.circuit-minimum-calls
+     */
+    private Integer circuitMinimumCalls = 10;
+
+    /**
+     * 熔断：失败率达到多少 (百分比) 时打开
+     * 对应 ai.service.circuit-failure-rate-threshold
+     */
+    private Integer circuitFailureRateThreshold = 50;
+
+    /**
+     * 熔断：打开后多久进入半开状态试探 (毫秒)
+     * 对应 ai.service.circuit-open-duration
+     */
+    private Long circuitOpenDuration = 30000L;
+
+    /**
+     * 熔断：半开状态允许的试探调用数，全部成功才关闭
+     * 对应 ai.service.circuit-half-open-calls
+     */
+    private Integer circuitHalfOpenCalls = 3;
+
+    /**
+     * 舱壁：同时进行的 AI 调用上限 (含会话摘要)，超过直接拒绝
+     * 对应 ai.service.bulkhead-max-concurrent-calls
+     */
+    private Integer bulkheadMaxConcurrentCalls = 200;
+
+    /**
+     * 是否尝试 h2c (明文 HTTP/2，通过 Upgrade 协商，不支持时回落到 HTTP/1.1)
+     * 对应 ai.service.h2c
+     */
+    private Boolean h2c = false;
+
+    /**
+     * 请求体是否 gzip 压缩 (需要 AI 服务端支持 Content-Encoding: gzip)
+     * 对应 ai.service.request-compression
+     */
+    private Boolean requestCompression = false;
+
+    /**
+     * 请求体超过该字节数才压缩
+     * 对应 ai.service.request-compression-min-size
+     */
+    private Integer requestCompressionMinSize = 2048;
+}
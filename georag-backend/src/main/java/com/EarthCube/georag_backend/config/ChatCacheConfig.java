@@ -0,0 +1,53 @@
+package com.EarthCube.georag_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对话回复缓存配置类
+ * 对应 application.yml 中的 chat.cache 前缀配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.cache")
+public class ChatCacheConfig {
+
+    /**
+     * 是否开启回复缓存
+     * 对应 chat.cache.enabled
+     */
+    private Boolean enabled = true;
+
+    /**
+     * 缓存条目上限，超出后按近似 LRU 淘汰
+     * 对应 chat.cache.max-entries
+     */
+    private Long maxEntries = 10000L;
+
+    /**
+     * 缓存有效期 (毫秒)
+     * 对应 chat.cache.ttl
+     */
+    private Long ttl = 3600000L;
+
+    /**
+     * 近似命中的相似度阈值 (余弦相似度，0~1)，大于等于 1 表示只做精确匹配 (默认)
+     * 小于 1 时，近似命中还要求两个问题的数字、字母串与汉字二元组完全相同 (只允许语序、标点、虚词空白等差异)，
+     * 避免只差地名、年份、否定词的问题共用回复
+     * 对应 chat.cache.similarity-threshold
+     */
+    private Double similarityThreshold = 1.0;
+
+    /**
+     * 超过该字数的回复不缓存
+     * 对应 chat.cache.max-answer-chars
+     */
+    private Integer maxAnswerChars = 20000;
+
+    /**
+     * 命中时回放的单帧字数
+     * 对应 chat.cache.replay-chunk-chars
+     */
+    private Integer replayChunkChars = 256;
+}
@@ -0,0 +1,73 @@
+package com.EarthCube.georag_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 对话上下文配置类
+ * 对应 application.yml 中的 chat.context 前缀配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.context")
+public class ChatContextConfig {
+
+    /**
+     * 上下文本地缓存的会话数上限
+     * 对应 chat.context.near-cache-size
+     */
+    private Long nearCacheSize = 10000L;
+
+    /**
+     * 默认的历史上下文 Token 预算 (不含本次提问)
+     * 对应 chat.context.default-token-budget
+     */
+    private Integer defaultTokenBudget = 6000;
+
+    /**
+     * 按模型覆盖的 Token 预算，key 为 ChatSendDTO.options.model
+     * 对应 chat.context.model-token-budgets
+     */
+    private Map<String, Integer> modelTokenBudgets = new HashMap<>();
+
+    /**
+     * 是否开启滚动摘要：滑出上下文窗口的消息在后台合并进会话摘要
+     * 对应 chat.context.summary-enabled
+     */
+    private Boolean summaryEnabled = true;
+
+    /**
+     * 攒够多少条滑出窗口的消息才做一次摘要 (也是 Redis 上下文允许超出的余量)
+     * 对应 chat.context.summary-batch-size
+     */
+    private Integer summaryBatchSize = 10;
+
+    /**
+     * 摘要的最大字数 (写进提示词，由模型控制)
+     * 对应 chat.context.summary-max-chars
+     */
+    private Integer summaryMaxChars = 800;
+
+    /**
+     * 单次摘要调用的超时时间 (毫秒)
+     * 对应 chat.context.summary-timeout
+     */
+    private Long summaryTimeout = 60000L;
+
+    /**
+     * 获取指定模型的 Token 预算
+     */
+    public int getTokenBudget(String model) {
+        if (model != null) {
+            Integer budget = modelTokenBudgets.get(model);
+            if (budget != null) {
+                return budget;
+            }
+        }
+        return defaultTokenBudget;
+    }
+}
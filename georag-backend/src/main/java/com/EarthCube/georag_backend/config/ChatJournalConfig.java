@@ -0,0 +1,47 @@
+package com.EarthCube.georag_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 聊天消息异步落库 (Write-Behind) 配置类
+ * 对应 application.yml 中的 chat.journal 前缀配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.journal")
+public class ChatJournalConfig {
+
+    /**
+     * 本地预写日志目录，未落库的消息先追加到这里，防止进程崩溃丢消息
+     * 对应 chat.journal.dir
+     */
+    private String dir = "data/chat-journal";
+
+    /**
+     * 攒够多少条立即触发一次批量写入
+     * 对应 chat.journal.batch-size
+     */
+    private Integer batchSize = 200;
+
+    /**
+     * 定时批量写入的间隔 (毫秒)
+     * 对应 chat.journal.flush-interval
+     */
+    private Long flushInterval = 200L;
+
+    /**
+     * 每次追加日志后是否强制刷盘 (fsync)
+     * 关闭时只能防进程崩溃，开启后可防机器掉电，但写入延迟更高
+     * 对应 chat.journal.fsync
+     */
+    private Boolean fsync = false;
+
+    /**
+     * 单条消息写库失败 (同批其他消息可以写入) 的最大重试次数，超过后移入死信日志
+     * 违反约束的消息不重试，直接移入死信日志
+     * 对应 chat.journal.max-retries
+     */
+    private Integer maxRetries = 3;
+}
@@ -0,0 +1,25 @@
+package com.EarthCube.georag_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流式对话指标配置类
+ * 对应 application.yml 中的 chat.metrics 前缀配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.metrics")
+public class ChatMetricsConfig {
+
+    /**
+     * 允许作为 model 标签的模型名，未列出的模型记为 other，未指定模型记为 default
+     * 客户端可以传入任意模型名，白名单限制标签基数
+     * 对应 chat.metrics.models
+     */
+    private List<String> models = new ArrayList<>();
+}
@@ -0,0 +1,72 @@
+package com.EarthCube.georag_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * SSE 流式对话配置类
+ * 对应 application.yml 中的 chat.stream 前缀配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "chat.stream")
+public class ChatStreamConfig {
+
+    /**
+     * 单节点允许同时进行的流式对话数
+     * 对应 chat.stream.max-concurrent-streams
+     */
+    private Integer maxConcurrentStreams = 200;
+
+    /**
+     * 名额耗尽时允许排队等待的请求数，超过直接返回繁忙
+     * 对应 chat.stream.queue-capacity
+     */
+    private Integer queueCapacity = 100;
+
+    /**
+     * 排队等待名额的最长时间 (毫秒)
+     * 对应 chat.stream.queue-timeout
+     */
+    private Long queueTimeout = 3000L;
+
+    /**
+     * 负责发起订阅的工作线程数
+     * 订阅之后的推流由 Reactor Netty 的 IO 线程完成，这里不需要很多线程
+     * 对应 chat.stream.worker-threads
+     */
+    private Integer workerThreads = 8;
+
+    /**
+     * 响应式链路中执行阻塞持久化 (MyBatis / Redis) 的线程上限
+     * 对应 chat.stream.persist-threads
+     */
+    private Integer persistThreads = 16;
+
+    /**
+     * 持久化任务排队上限，超过后任务被拒绝
+     * 对应 chat.stream.persist-queue-capacity
+     */
+    private Integer persistQueueCapacity = 10000;
+
+    /**
+     * Token 合并窗口 (毫秒)，窗口内的 Token 合并为一帧下发；<= 0 表示不合并
+     * 对应 chat.stream.coalesce-window
+     */
+    private Long coalesceWindow = 30L;
+
+    /**
+     * 单帧累积的字节数上限，达到后立即下发，不等窗口结束；<= 0 表示不限制
+     * 对应 chat.stream.coalesce-max-bytes
+     */
+    private Integer coalesceMaxBytes = 1024;
+
+    @Bean(destroyMethod = "dispose")
+    public Scheduler chatPersistScheduler() {
+        return Schedulers.newBoundedElastic(persistThreads, persistQueueCapacity, "chat-persist");
+    }
+}
@@ -0,0 +1,113 @@
+package com.EarthCube.georag_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文档入库配置类
+ * 对应 application.yml 中的 ingest 前缀配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "ingest")
+public class IngestConfig {
+
+    /**
+     * 允许上传文档的用户名 (授予 ROLE_ADMIN)；入库的文档会作为所有用户对话的参考资料，不对普通用户开放
+     * 对应 ingest.admin-usernames
+     */
+    private List<String> adminUsernames = new ArrayList<>();
+
+    /**
+     * 文档原件存放的 MinIO 桶 (私有，与头像桶分开)
+     * 对应 ingest.bucket-name
+     */
+    private String bucketName = "georag-documents";
+
+    /**
+     * 上传文件的临时目录，入库完成后删除
+     * 对应 ingest.temp-dir
+     */
+    private String tempDir = "data/ingest";
+
+    /**
+     * 单个文件大小上限 (字节)
+     * 对应 ingest.max-file-size
+     */
+    private Long maxFileSize = 4L * 1024 * 1024 * 1024;
+
+    /**
+     * 同时进行的入库任务数上限，超过直接拒绝
+     * 对应 ingest.max-concurrent-jobs
+     */
+    private Integer maxConcurrentJobs = 2;
+
+    /**
+     * 片段长度 (字符)
+     * 对应 ingest.chunk-size
+     */
+    private Integer chunkSize = 500;
+
+    /**
+     * 相邻片段重叠的字符数
+     * 对应 ingest.chunk-overlap
+     */
+    private Integer chunkOverlap = 50;
+
+    /**
+     * 读取 / 切分阶段与向量化阶段之间的缓冲片段数 (读取最多领先这么多片段)
+     * 对应 ingest.queue-capacity
+     */
+    private Integer queueCapacity = 256;
+
+    /**
+     * 每次调用 Embedding 服务的片段数
+     * 对应 ingest.embed-batch-size
+     */
+    private Integer embedBatchSize = 32;
+
+    /**
+     * 同时进行的 Embedding 调用数
+     * 对应 ingest.embed-parallelism
+     */
+    private Integer embedParallelism = 2;
+
+    /**
+     * 单次 Embedding 批量调用超时 (毫秒)
+     * 对应 ingest.embedding-timeout
+     */
+    private Long embeddingTimeout = 60000L;
+
+    /**
+     * 每次 COPY 写入 doc_chunk 的片段数
+     * 对应 ingest.copy-batch-size
+     */
+    private Integer copyBatchSize = 512;
+
+    /**
+     * 入库任务执行线程数 (读取、写库等阻塞操作)
+     * 对应 ingest.threads
+     */
+    private Integer threads = 8;
+
+    /**
+     * 任务进度保留时长 (毫秒)
+     * 对应 ingest.job-ttl
+     */
+    private Long jobTtl = 86400000L;
+
+    /**
+     * 入库任务的阻塞操作 (读文件、调用 Embedding、COPY 写库) 专用调度器
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler ingestScheduler() {
+        return Schedulers.newBoundedElastic(threads, 10000, "ingest");
+    }
+}
@@ -1,7 +1,10 @@
 package com.EarthCube.georag_backend.config;
 
 import com.EarthCube.georag_backend.handler.MyMetaObjectHandler;
+import com.baomidou.mybatisplus.annotation.DbType;
 import com.baomidou.mybatisplus.core.config.GlobalConfig;
+import com.baomidou.mybatisplus.extension.plugins.MybatisPlusInterceptor;
+import com.baomidou.mybatisplus.extension.plugins.inner.PaginationInnerInterceptor;
 import com.baomidou.mybatisplus.extension.spring.MybatisSqlSessionFactoryBean;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +19,11 @@ public class MyBatisPlusConfig {
     @Autowired
     private MyMetaObjectHandler myMetaObjectHandler;
 
+    /**
+     * 单页最大条数，防止前端传入超大 size 把整表拉进内存
+     */
+    private static final long MAX_PAGE_LIMIT = 100L;
+
     @Bean
     public SqlSessionFactory sqlSessionFactory(DataSource dataSource) throws Exception {
         // 注意：这里必须用 MybatisSqlSessionFactoryBean 而不是原生的 SqlSessionFactoryBean
@@ -28,8 +36,22 @@ public class MyBatisPlusConfig {
         globalConfig.setMetaObjectHandler(myMetaObjectHandler); // 挂载处理类
         factoryBean.setGlobalConfig(globalConfig);
 
-        // 如果你有分页插件，也需要手动设置进去
-//        factoryBean.setPlugins(mybatisPlusInterceptor());
+        // 手动构建 SqlSessionFactory 时，分页插件必须在这里挂载，否则 selectPage 不会下推 LIMIT/OFFSET
+        factoryBean.setPlugins(mybatisPlusInterceptor());
         return factoryBean.getObject();
     }
-}
\ No newline at end of file
+
+    /**
+     * MyBatis Plus 插件链：PostgreSQL 方言分页
+     */
+    @Bean
+    public MybatisPlusInterceptor mybatisPlusInterceptor() {
+        MybatisPlusInterceptor interceptor = new MybatisPlusInterceptor();
+        PaginationInnerInterceptor pagination = new PaginationInnerInterceptor(DbType.POSTGRE_SQL);
+        pagination.setMaxLimit(MAX_PAGE_LIMIT);
+        // count 语句中去掉无关的 ORDER BY / LEFT JOIN
+        pagination.setOptimizeJoin(true);
+        interceptor.addInnerInterceptor(pagination);
+        return interceptor;
+    }
+}
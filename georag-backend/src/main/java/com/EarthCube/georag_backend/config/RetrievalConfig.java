@@ -0,0 +1,173 @@
+package com.EarthCube.georag_backend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 知识库检索配置类
+ * 对应 application.yml 中的 retrieval 前缀配置
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "retrieval")
+public class RetrievalConfig {
+
+    /**
+     * 对话前是否检索知识库，并把命中的片段作为参考资料发给 AI 服务
+     * 对应 retrieval.enabled
+     */
+    private Boolean enabled = false;
+
+    /**
+     * 索引文件目录 (向量文件与图结构快照)
+     * 对应 retrieval.dir
+     */
+    private String dir = "data/retrieval";
+
+    /**
+     * 向量维度，需与 Embedding 模型一致 (bge-small-zh-v1.5 为 512)
+     * 对应 retrieval.dimension
+     */
+    private Integer dimension = 512;
+
+    /**
+     * 相似度度量：cosine / inner-product
+     * 对应 retrieval.metric
+     */
+    private String metric = "cosine";
+
+    /**
+     * HNSW 每个节点的邻居数 (第 0 层为 2 倍)
+     * 对应 retrieval.m
+     */
+    private Integer m = 16;
+
+    /**
+     * HNSW 构建时的搜索宽度
+     * 对应 retrieval.ef-construction
+     */
+    private Integer efConstruction = 200;
+
+    /**
+     * HNSW 查询时的搜索宽度，越大召回越高、越慢
+     * 对应 retrieval.ef
+     */
+    private Integer ef = 64;
+
+    /**
+     * 每次对话取回的片段数
+     * 对应 retrieval.top-k
+     */
+    private Integer topK = 4;
+
+    /**
+     * 低于该相似度的片段不作为参考资料
+     * 对应 retrieval.min-score
+     */
+    private Double minScore = 0.3;
+
+    /**
+     * 参考资料总字数上限
+     * 对应 retrieval.max-reference-chars
+     */
+    private Integer maxReferenceChars = 3000;
+
+    /**
+     * 是否同时做 BM25 全文检索，与向量检索结果按倒数排名融合 (RRF)
+     * 对应 retrieval.lexical-enabled
+     */
+    private Boolean lexicalEnabled = true;
+
+    /**
+     * 融合时每一路各取的候选数
+     * 对应 retrieval.fusion-depth
+     */
+    private Integer fusionDepth = 50;
+
+    /**
+     * RRF 常数 k，分数为 1 / (k + 排名)，越大越平滑
+     * 对应 retrieval.rrf-k
+     */
+    private Integer rrfK = 60;
+
+    /**
+     * 全文检索结果进入融合前的覆盖度下限 (0~1)：文档命中的查询词 IDF 之和占全部查询词 IDF 之和的比例，
+     * 只命中高频词 / 单个二元组的片段不参与融合
+     * 对应 retrieval.lexical-min-coverage
+     */
+    private Double lexicalMinCoverage = 0.3;
+
+    /**
+     * BM25 词频饱和参数
+     * 对应 retrieval.bm25-k1
+     */
+    private Float bm25K1 = 1.2f;
+
+    /**
+     * BM25 文档长度归一化参数
+     * 对应 retrieval.bm25-b
+     */
+    private Float bm25B = 0.75f;
+
+    /**
+     * 倒排索引内存缓冲攒够多少个文档后生成一个段
+     * 对应 retrieval.lexical-flush-docs
+     */
+    private Integer lexicalFlushDocs = 10000;
+
+    /**
+     * 倒排索引段数上限，超过后后台合并相邻的小段
+     * 对应 retrieval.lexical-max-segments
+     */
+    private Integer lexicalMaxSegments = 8;
+
+    /**
+     * 只给出中心点时，空间预过滤取离该点最近的片段数
+     * 对应 retrieval.geo-nearest-k
+     */
+    private Integer geoNearestK = 200;
+
+    /**
+     * 空间预过滤后的候选数不超过该值时直接逐个打分，否则在 HNSW 图上带过滤条件搜索
+     * 对应 retrieval.geo-brute-force-limit
+     */
+    private Integer geoBruteForceLimit = 4096;
+
+    /**
+     * 定时写快照的间隔 (毫秒)，有新增时才写，0 表示只在停机时写
+     * 对应 retrieval.snapshot-interval
+     */
+    private Long snapshotInterval = 300000L;
+
+    /**
+     * Embedding 服务地址，为空时使用 ai.service.base-url
+     * 对应 retrieval.embedding-url
+     */
+    private String embeddingUrl;
+
+    /**
+     * Embedding 接口路径
+     * 对应 retrieval.embedding-path
+     */
+    private String embeddingPath = "/embed";
+
+    /**
+     * 单次 Embedding 调用超时 (毫秒)
+     * 对应 retrieval.embedding-timeout
+     */
+    private Long embeddingTimeout = 3000L;
+
+    /**
+     * 启动时补齐向量索引：doc_chunk 中已落库但不在索引里的片段 (上次快照后崩溃丢失的部分) 重新向量化，
+     * 每次 Embedding 调用的片段数
+     * 对应 retrieval.catch-up-batch-size
+     */
+    private Integer catchUpBatchSize = 32;
+
+    /**
+     * 补齐向量索引时单次批量 Embedding 调用超时 (毫秒)
+     * 对应 retrieval.catch-up-timeout
+     */
+    private Long catchUpTimeout = 60000L;
+}
@@ -4,11 +4,13 @@ import com.EarthCube.georag_backend.security.JwtAuthenticationFilter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import jakarta.servlet.DispatcherType;
 
@@ -39,19 +41,33 @@ public class SecurityConfig {
                         .requestMatchers("/api/v1/auth/**").permitAll()
 
                         // B. 🔓 Swagger 文档也不能拦截，否则前端没法看接口
-                        .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html").permitAll()
+                        .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-ui.html",
+                                "/doc.html", "/webjars/**", "/swagger-resources").permitAll()
+
+                        // Spring Boot 默认错误页
+                        .requestMatchers("/error").permitAll()
+
+                        // 健康检查与 Prometheus 抓取 (监控系统不带 Token)
+                        .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
 
                         // C. 🤖 静态资源 (如果你有的话)
                         .requestMatchers("/static/**").permitAll()
 
+                        // 知识库入库只对管理员开放 (入库的文档会作为所有用户对话的参考资料)
+                        .requestMatchers("/api/v1/ingest/**").hasRole("ADMIN")
+
                         // ===============================================
                         // D. 🛡️ 除了上面列出来的，其他所有请求必须登录
                         // ===============================================
                         .anyRequest().authenticated()
                 )
 
+                // 未登录统一返回 401 (默认是 403)
+                .exceptionHandling(ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+
                 // 4. 把我们的 JWT 过滤器加到默认的用户名密码过滤器之前
                 // 意思就是：先查 Token，Token 没问题了，再进去
+                // 这是唯一的鉴权环节：验签一次，同时写入 SecurityContext 与 UserContext
                 .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
 
         return http.build();
@@ -1,17 +1,54 @@
 package com.EarthCube.georag_backend.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 @Configuration
 public class WebClientConfig {
 
+    @Autowired
+    private AiServiceConfig config;
+
+    /**
+     * AI 服务专用连接池：限制连接数与排队数，空闲 / 过期连接后台清理
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider aiServiceConnectionProvider() {
+        return ConnectionProvider.builder("ai-service")
+                .maxConnections(config.getMaxConnections())
+                .pendingAcquireMaxCount(config.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(Duration.ofMillis(config.getPendingAcquireTimeout()))
+                .maxIdleTime(Duration.ofMillis(config.getMaxIdleTime()))
+                .maxLifeTime(Duration.ofMillis(config.getMaxLifeTime()))
+                .evictInBackground(Duration.ofMillis(config.getEvictInterval()))
+                .metrics(true)
+                .build();
+    }
+
     @Bean
-    public WebClient webClient() {
+    public WebClient webClient(ConnectionProvider aiServiceConnectionProvider) {
+        HttpClient httpClient = HttpClient.create(aiServiceConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, config.getConnectTimeout())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true);
+        if (Boolean.TRUE.equals(config.getH2c())) {
+            // 同时声明 HTTP/1.1 与 h2c：先以 HTTP/1.1 发起并尝试升级，服务端不支持时继续使用 HTTP/1.1
+            httpClient = httpClient.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C);
+        }
+
         // 这里配置 Python 服务的基准地址
         return WebClient.builder()
-                .baseUrl("http://localhost:8000")
+                .baseUrl(config.getBaseUrl())
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
     }
 }
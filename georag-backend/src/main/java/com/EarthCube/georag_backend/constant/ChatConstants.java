@@ -0,0 +1,34 @@
+package com.EarthCube.georag_backend.constant;
+
+public class ChatConstants {
+
+    // ================== 上下文 ==================
+    /** 上下文缓存最多保留最近 50 条消息 (实际发送的条数由 Token 预算决定) */
+    public static final int MAX_CONTEXT_COUNT = 50;
+
+    /** 上下文缓存有效期 (30分钟无操作清除，单位：秒) */
+    public static final long CONTEXT_TTL = 1800;
+
+    /** 旧版本把会话摘要存在 chat_session.meta_info 的该字段中，summary 列为空时兼容读取 */
+    public static final String SUMMARY_META_KEY = "summary";
+
+
+    // ================== Redis Key 前缀 ==================
+    /** * 会话上下文 Key 前缀 (List)
+     * 完整格式: chat:context:{sessionId}
+     */
+    public static final String REDIS_CONTEXT_KEY = "chat:context:";
+
+    /** * 用户会话总数 Key 前缀
+     * 完整格式: chat:session:count:{userId}
+     */
+    public static final String REDIS_SESSION_COUNT_KEY = "chat:session:count:";
+
+    /** 用户会话总数缓存有效期 (10分钟，单位：秒) */
+    public static final long SESSION_COUNT_TTL = 600;
+
+
+    // ================== Redis 频道 ==================
+    /** 上下文本地缓存失效通知频道，消息格式: {nodeId}|{sessionId} */
+    public static final String CONTEXT_INVALIDATE_CHANNEL = "chat:context:invalidate";
+}
@@ -47,10 +47,21 @@ public class UserConstants {
     public static final String REDIS_VERIFY_LIMIT_KEY = "verify:limit:email:";
 
 
+    // ================== Redis 频道 ==================
+    /** 登录用户信息本地缓存失效通知频道，消息格式: {nodeId}|{userId} */
+    public static final String PRINCIPAL_INVALIDATE_CHANNEL = "user:principal:invalidate";
+
+
     // ================== 时间常量 ==================
     /** 验证码有效期 (5分钟 = 300秒) */
     public static final Long CODE_TTL = 300L;
 
     /** 验证码发送间隔限制 (60秒) */
     public static final Long CODE_INTERVAL = 60L;
+
+    /** 登录用户信息本地缓存有效期 (5分钟，单位：秒)，资料 / 状态变更时主动失效 */
+    public static final long PRINCIPAL_CACHE_TTL = 300;
+
+    /** 登录用户信息本地缓存的用户数上限 */
+    public static final long PRINCIPAL_CACHE_SIZE = 10000;
 }
\ No newline at end of file
@@ -1,20 +1,22 @@
 package com.EarthCube.georag_backend.controller;
 
+import com.EarthCube.georag_backend.common.result.CursorResult;
 import com.EarthCube.georag_backend.common.result.PageResult;
 import com.EarthCube.georag_backend.common.result.Result;
 import com.EarthCube.georag_backend.dto.chat.*;
 import com.EarthCube.georag_backend.service.IChatService;
 import com.EarthCube.georag_backend.vo.chat.ChatMessageVO;
 import com.EarthCube.georag_backend.vo.chat.ChatSessionVO;
+import com.EarthCube.georag_backend.vo.chat.ChatStreamVO;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-
-import java.util.List;
+import reactor.core.publisher.Flux;
 
 /**
  * 聊天模块控制器
@@ -46,7 +48,7 @@ public class ChatController {
      */
     @PostMapping("/sessions")
     public Result<String> createSession(@RequestBody @Validated ChatSessionCreateDTO dto) {
-        // userId 在 AuthInterceptor 中已注入上下文，Service 层会自动获取
+        // userId 在 JwtAuthenticationFilter 中已注入上下文，Service 层会自动获取
         String sessionId = chatService.createSession(dto);
         return Result.success("会话创建成功", sessionId);
     }
@@ -62,16 +64,28 @@ public class ChatController {
         return chatService.sendMsg(dto);
     }
 
+    /**
+     * 3.1 发送消息并获取流式响应 (响应式版本)
+     * POST /api/v1/chat/completions/reactive
+     * 请求体与帧格式同 /completions，全链路不占用 Servlet 线程
+     * text/event-stream 的 Flux 由 Spring 以不超时的 SseEmitter 承载，不受 spring.mvc.async.request-timeout 限制
+     */
+    @PostMapping(value = "/completions/reactive", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<ChatStreamVO>> streamMsg(@RequestBody @Validated ChatSendDTO dto) {
+        return chatService.streamMsg(dto);
+    }
+
     /**
      * 4. 查询会话历史消息 (支持游标分页)
-     * GET /api/v1/chat/sessions/{sessionId}/messages?cursor=...&limit=20
+     * GET /api/v1/chat/sessions/{sessionId}/messages?cursor=...&direction=before&limit=20
+     * 不带游标返回最新一页；向上翻页传 prevCursor + direction=before
      */
     @GetMapping("/sessions/{sessionId}/messages")
-    public Result<List<ChatMessageVO>> getSessionMessages(
+    public Result<CursorResult<ChatMessageVO>> getSessionMessages(
             @PathVariable String sessionId,
             ChatMessageQueryDTO queryDTO) {
-        List<ChatMessageVO> list = chatService.getSessionMessages(sessionId, queryDTO);
-        return Result.success(list);
+        CursorResult<ChatMessageVO> page = chatService.getSessionMessages(sessionId, queryDTO);
+        return Result.success(page);
     }
 
     /**
@@ -0,0 +1,46 @@
+package com.EarthCube.georag_backend.controller;
+
+import com.EarthCube.georag_backend.common.result.Result;
+import com.EarthCube.georag_backend.dto.ingest.IngestUploadDTO;
+import com.EarthCube.georag_backend.service.IIngestService;
+import com.EarthCube.georag_backend.vo.ingest.IngestJobVO;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * 知识库文档入库控制器
+ * 只对知识库管理员 (ingest.admin-usernames，ROLE_ADMIN) 开放，见 SecurityConfig
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/ingest")
+public class IngestController {
+
+    @Autowired
+    private IIngestService ingestService;
+
+    /**
+     * 1. 上传文档并提交入库任务
+     * POST /api/v1/ingest/documents?fileName=xxx.pdf&title=...&bbox=73.5,18.1,135.1,53.6
+     * 请求体为文件原始内容 (不走 multipart，大文件直接流式落盘)，立即返回任务进度，入库在后台进行
+     * Content-Type 用 application/octet-stream 或文件本身的类型，不能用表单类型 (请求体会被当作表单参数解析)
+     */
+    @PostMapping("/documents")
+    public Result<IngestJobVO> upload(@Validated IngestUploadDTO dto, HttpServletRequest request) throws IOException {
+        return Result.success(ingestService.submit(dto, request.getInputStream(), request.getContentType()));
+    }
+
+    /**
+     * 2. 查询入库任务进度
+     * GET /api/v1/ingest/jobs/{jobId}
+     */
+    @GetMapping("/jobs/{jobId}")
+    public Result<IngestJobVO> getJob(@PathVariable String jobId) {
+        return Result.success(ingestService.getJob(jobId));
+    }
+}
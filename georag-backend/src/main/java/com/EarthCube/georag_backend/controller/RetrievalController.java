@@ -0,0 +1,38 @@
+package com.EarthCube.georag_backend.controller;
+
+import com.EarthCube.georag_backend.common.result.Result;
+import com.EarthCube.georag_backend.dto.retrieval.GeoQueryDTO;
+import com.EarthCube.georag_backend.retrieval.GeoRegion;
+import com.EarthCube.georag_backend.service.IRetrievalService;
+import com.EarthCube.georag_backend.vo.retrieval.GeoChunkVO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * 知识库检索控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/retrieval")
+public class RetrievalController {
+
+    @Autowired
+    private IRetrievalService retrievalService;
+
+    /**
+     * 1. 按空间范围查询文档片段
+     * POST /api/v1/retrieval/geo
+     * 矩形：{"bbox": [minLon, minLat, maxLon, maxLat]}
+     * 半径：{"lon": 116.39, "lat": 39.91, "radius": 50000} (按距离升序)
+     * 最近邻：{"lon": 116.39, "lat": 39.91, "k": 10} (按距离升序)
+     */
+    @PostMapping("/geo")
+    public Result<List<GeoChunkVO>> searchRegion(@RequestBody @Validated GeoQueryDTO dto) {
+        GeoRegion region = GeoRegion.of(dto.getBbox(), dto.getLon(), dto.getLat(), dto.getRadius(), dto.getK());
+        return Result.success(retrievalService.searchRegion(region, dto.getLimit()));
+    }
+}
@@ -6,13 +6,19 @@ import lombok.Data;
 public class ChatMessageQueryDTO {
 
     /**
-     * 游标：上一页最后一条消息的 ID
+     * 游标：上一次返回的 prevCursor / nextCursor
      * 第一页传 null
      */
     private String cursor;
 
     /**
-     * 加载条数
+     * 翻页方向：before - 更早的消息 (默认)，after - 更新的消息
+     * 不带游标时，before 返回最新一页，after 返回最早一页
+     */
+    private String direction = "before";
+
+    /**
+     * 加载条数 (最大 100)
      */
     private Integer limit = 20;
 }
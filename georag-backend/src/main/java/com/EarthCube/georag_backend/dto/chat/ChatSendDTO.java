@@ -35,6 +35,7 @@ public class ChatSendDTO {
 
     /**
      * 可选：模型参数配置 (如 model: "gpt-4")
+     * region: 知识库检索的空间范围，格式见 GeoRegion (如 {"bbox": [115.4, 39.4, 117.5, 41.1]})
      */
     private Map<String, Object> options;
 }
\ No newline at end of file
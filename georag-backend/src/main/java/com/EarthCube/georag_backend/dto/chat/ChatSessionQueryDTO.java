@@ -13,4 +13,7 @@ public class ChatSessionQueryDTO {
 
     // 搜索关键词 (匹配标题)
     private String keyword;
+
+    // 是否查询总数，无限滚动的客户端可传 false 省掉 count 查询 (此时 total 为 0，以返回条数 < size 判断到底)
+    private Boolean searchCount = true;
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.EarthCube.georag_backend.dto.ingest;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 文档上传参数 (查询参数，文件内容为请求体)
+ */
+@Data
+public class IngestUploadDTO {
+
+    /**
+     * 文件名，用于判断类型 (.pdf 按页解析，其余按 UTF-8 纯文本)
+     */
+    @NotBlank(message = "文件名不能为空")
+    @Size(max = 255, message = "文件名过长")
+    private String fileName;
+
+    /**
+     * 文档标题 (选填，写入片段的 metaInfo)
+     */
+    @Size(max = 255, message = "标题过长")
+    private String title;
+
+    /**
+     * 文档的空间范围 [minLon, minLat, maxLon, maxLat] (选填，与 lon / lat 二选一)
+     */
+    private List<Double> bbox;
+
+    /**
+     * 文档的点位经度 (选填)
+     */
+    private Double lon;
+
+    /**
+     * 文档的点位纬度 (选填)
+     */
+    private Double lat;
+}
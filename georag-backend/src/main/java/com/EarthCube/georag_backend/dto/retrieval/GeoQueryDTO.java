@@ -0,0 +1,49 @@
+package com.EarthCube.georag_backend.dto.retrieval;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 空间查询条件，字段含义同 ChatSendDTO.options.region
+ * bbox / 中心点 + radius / 中心点 (+ k) 三选一
+ */
+@Data
+public class GeoQueryDTO {
+
+    /**
+     * 矩形范围 [minLon, minLat, maxLon, maxLat]
+     */
+    private List<Double> bbox;
+
+    /**
+     * 中心点经度
+     */
+    private Double lon;
+
+    /**
+     * 中心点纬度
+     */
+    private Double lat;
+
+    /**
+     * 半径 (米)
+     */
+    private Double radius;
+
+    /**
+     * 最近邻个数
+     */
+    private Integer k;
+
+    /**
+     * 返回条数 (最大 200)
+     */
+    @NotNull(message = "limit 不能为空")
+    @Min(value = 1, message = "limit 不能小于 1")
+    @Max(value = 200, message = "limit 不能大于 200")
+    private Integer limit = 20;
+}
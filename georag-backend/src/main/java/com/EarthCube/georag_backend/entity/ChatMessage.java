@@ -13,6 +13,12 @@ import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * 聊天消息实体类
+ * 对应表名：chat_message
+ * 历史消息按 (create_time, id) 键集分页，依赖复合索引：
+ * CREATE INDEX idx_chat_message_session_time_id ON chat_message (session_id, create_time, id);
+ */
 @Data
 @Builder
 @NoArgsConstructor
@@ -45,6 +45,14 @@ public class ChatSession implements Serializable {
     @TableField(typeHandler = MybatisJsonTypeHandler.class)
     private Map<String, Object> metaInfo;
 
+    /**
+     * 滚动摘要 (选填，后台生成，覆盖已滑出上下文窗口的历史消息，不返回给前端)
+     * ALTER TABLE chat_session ADD COLUMN summary TEXT;
+     * 只通过 ChatSessionMapper.updateSummary 写入，updateById 不更新该字段
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private String summary;
+
     /**
      * 1-正常, 2-归档/删除 (必填)
      */
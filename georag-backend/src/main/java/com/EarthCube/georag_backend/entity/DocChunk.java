@@ -0,0 +1,84 @@
+package com.EarthCube.georag_backend.entity;
+
+import com.EarthCube.georag_backend.handler.MybatisJsonTypeHandler;
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 知识库文档片段实体类
+ * 对应表名：doc_chunk，向量与空间范围保存在检索索引中，按 id 回表取正文
+ * CREATE TABLE doc_chunk (
+ *     id VARCHAR(32) PRIMARY KEY, doc_id VARCHAR(64) NOT NULL, seq INT NOT NULL, page INT,
+ *     content TEXT NOT NULL, meta_info JSONB,
+ *     min_lon DOUBLE PRECISION, min_lat DOUBLE PRECISION, max_lon DOUBLE PRECISION, max_lat DOUBLE PRECISION,
+ *     create_time TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+ * );
+ * CREATE INDEX idx_doc_chunk_doc_seq ON doc_chunk (doc_id, seq);
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@TableName(value = "doc_chunk", autoResultMap = true)
+public class DocChunk implements Serializable {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 片段 id (必填)
+     */
+    @TableId(type = IdType.ASSIGN_UUID)
+    private String id;
+
+    /**
+     * 所属文档 id (必填)
+     */
+    private String docId;
+
+    /**
+     * 片段在文档中的序号，从 0 开始 (必填)
+     */
+    private Integer seq;
+
+    /**
+     * 所在页码 (选填)
+     */
+    private Integer page;
+
+    /**
+     * 片段正文 (必填)
+     */
+    private String content;
+
+    /**
+     * 来源、标题等扩展信息 (选填)
+     */
+    @TableField(typeHandler = MybatisJsonTypeHandler.class)
+    private Map<String, Object> metaInfo;
+
+    /**
+     * 空间范围：外包矩形的经纬度 (WGS84，选填，四项同时为空或同时有值)
+     * 点位用 min = max 表示；矩形不跨 180° 经线
+     */
+    private Double minLon;
+
+    private Double minLat;
+
+    private Double maxLon;
+
+    private Double maxLat;
+
+    /**
+     * 创建时间 (自动填充)
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+}
@@ -0,0 +1,50 @@
+package com.EarthCube.georag_backend.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * 按页流式读取文档，同一时刻只有一页的文本在内存中
+ */
+public interface DocumentReader extends Closeable {
+
+    /**
+     * 总页数，未知时为 null
+     */
+    Integer totalPages();
+
+    /**
+     * 读取下一页，读完返回 null
+     */
+    PageText next() throws IOException;
+
+    /**
+     * 按文件类型打开：PDF 逐页提取文本，其余按 UTF-8 纯文本读取
+     */
+    static DocumentReader open(Path file, String fileName) throws IOException {
+        if (isPdf(fileName)) {
+            return new PdfDocumentReader(file);
+        }
+        return new TextDocumentReader(file);
+    }
+
+    static boolean isPdf(String fileName) {
+        return fileName != null && fileName.toLowerCase().endsWith(".pdf");
+    }
+
+    /**
+     * 一页文本
+     *
+     * @param page 页码，从 1 开始；纯文本没有页码时为 null
+     */
+    @Getter
+    @AllArgsConstructor
+    class PageText {
+        private final Integer page;
+        private final String text;
+    }
+}
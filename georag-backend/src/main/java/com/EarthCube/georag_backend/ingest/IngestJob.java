@@ -0,0 +1,60 @@
+package com.EarthCube.georag_backend.ingest;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 入库任务进度
+ * 各阶段在不同线程上更新计数，查询接口随时读取
+ */
+@Getter
+public class IngestJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED
+    }
+
+    private final String jobId;
+    private final String docId;
+    private final String userId;
+    private final String fileName;
+    private final long fileSize;
+    private final LocalDateTime startTime = LocalDateTime.now();
+
+    @Setter
+    private volatile String sourceObject;
+    @Setter
+    private volatile Integer totalPages;
+    private volatile Status status = Status.RUNNING;
+    private volatile String error;
+    private volatile LocalDateTime endTime;
+
+    // 已读取的页数、已切出 / 已向量化 / 已写库并进入索引的片段数
+    private final AtomicInteger pagesRead = new AtomicInteger();
+    private final AtomicLong chunksProduced = new AtomicLong();
+    private final AtomicLong chunksEmbedded = new AtomicLong();
+    private final AtomicLong chunksIndexed = new AtomicLong();
+
+    public IngestJob(String jobId, String docId, String userId, String fileName, long fileSize) {
+        this.jobId = jobId;
+        this.docId = docId;
+        this.userId = userId;
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+    }
+
+    public void complete() {
+        status = Status.COMPLETED;
+        endTime = LocalDateTime.now();
+    }
+
+    public void fail(String message) {
+        error = message;
+        status = Status.FAILED;
+        endTime = LocalDateTime.now();
+    }
+}
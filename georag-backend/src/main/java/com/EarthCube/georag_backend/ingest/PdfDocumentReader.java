@@ -0,0 +1,49 @@
+package com.EarthCube.georag_backend.ingest;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * PDF 逐页读取
+ * 文件按需随机读取，解析过程中的临时流缓存到临时文件，不会把整个 PDF 读入堆内存
+ */
+class PdfDocumentReader implements DocumentReader {
+
+    private final PDDocument document;
+    private final PDFTextStripper stripper;
+    private final int pages;
+    private int current;
+
+    PdfDocumentReader(Path file) throws IOException {
+        this.document = Loader.loadPDF(file.toFile(), IOUtils.createTempFileOnlyStreamCache());
+        this.stripper = new PDFTextStripper();
+        this.stripper.setSortByPosition(true);
+        this.pages = document.getNumberOfPages();
+    }
+
+    @Override
+    public Integer totalPages() {
+        return pages;
+    }
+
+    @Override
+    public PageText next() throws IOException {
+        if (current >= pages) {
+            return null;
+        }
+        current++;
+        stripper.setStartPage(current);
+        stripper.setEndPage(current);
+        return new PageText(current, stripper.getText(document));
+    }
+
+    @Override
+    public void close() throws IOException {
+        document.close();
+    }
+}
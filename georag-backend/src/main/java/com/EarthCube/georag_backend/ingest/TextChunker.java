@@ -0,0 +1,145 @@
+package com.EarthCube.georag_backend.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 流式文本切分器 (与 RAGDEMO 的 RecursiveCharacterTextSplitter 思路一致)
+ * 1. 逐页追加文本，缓冲超过片段长度时切出一个片段，缓冲只保留未切分的部分与重叠部分
+ * 2. 切分点在片段后半段内从后往前找，优先级：空行 > 换行 > 句末标点 > 逗号、分号、空白 > 硬切
+ * 3. 相邻片段重叠 overlap 个字符；片段的页码为其起始位置所在的页
+ */
+public class TextChunker {
+
+    private static final String[] SEPARATORS = {"\n\n", "\n", "。", "！", "？", ". ", "! ", "? ", "；", "; ",
+            "，", ", ", " "};
+
+    private final int size;
+    private final int overlap;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    // 页起始位置标记 {缓冲内偏移, 页码}，队首为缓冲开头所在的页
+    private final Deque<int[]> pages = new ArrayDeque<>();
+
+    // 缓冲开头属于上一个片段重叠部分的字符数
+    private int carried;
+
+    public TextChunker(int size, int overlap) {
+        this.size = Math.max(1, size);
+        this.overlap = Math.max(0, Math.min(overlap, this.size / 2));
+    }
+
+    /**
+     * 追加一页文本
+     */
+    public void append(String text, Integer page) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        pages.addLast(new int[]{buffer.length(), page == null ? -1 : page});
+        buffer.append(text.replace("\r\n", "\n"));
+    }
+
+    /**
+     * 取出下一个片段；缓冲不足一个片段时返回 null，需要继续 append
+     */
+    public Piece poll() {
+        while (buffer.length() > size) {
+            Piece piece = cut(findBreak());
+            if (piece != null) {
+                return piece;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 文档读完后取出剩余片段，没有剩余时返回 null
+     */
+    public Piece finish() {
+        Piece piece = poll();
+        if (piece != null) {
+            return piece;
+        }
+        // 只剩上一个片段的重叠部分时不再输出
+        if (buffer.length() <= carried || buffer.substring(carried).isBlank()) {
+            buffer.setLength(0);
+            return null;
+        }
+        String text = buffer.toString().trim();
+        Integer page = currentPage();
+        buffer.setLength(0);
+        pages.clear();
+        carried = 0;
+        return text.isEmpty() ? null : new Piece(text, page);
+    }
+
+    /**
+     * 在 (size / 2, size] 内从后往前找优先级最高的分隔符，找不到时硬切
+     */
+    private int findBreak() {
+        int min = size / 2;
+        for (String separator : SEPARATORS) {
+            int index = buffer.lastIndexOf(separator, size - separator.length());
+            if (index >= min) {
+                return index + separator.length();
+            }
+        }
+        int end = size;
+        // 不拆开代理对
+        if (Character.isHighSurrogate(buffer.charAt(end - 1))) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * 切出 [0, end) 作为片段，缓冲保留末尾的重叠部分
+     */
+    private Piece cut(int end) {
+        String text = buffer.substring(0, end).trim();
+        Integer page = currentPage();
+
+        int start = Math.max(end - overlap, 1);
+        if (start < end && Character.isLowSurrogate(buffer.charAt(start))) {
+            start--;
+        }
+        // 重叠部分至少要推进一个字符
+        if (start <= 0) {
+            start = end;
+        }
+        buffer.delete(0, start);
+        carried = end - start;
+        for (int[] marker : pages) {
+            marker[0] -= start;
+        }
+        // 丢掉已完全移出缓冲的页标记，保留缓冲开头所在的页
+        int[] head = pages.pollFirst();
+        while (!pages.isEmpty() && pages.peekFirst()[0] <= 0) {
+            head = pages.pollFirst();
+        }
+        if (head != null) {
+            pages.addFirst(head);
+        }
+        return text.isEmpty() ? null : new Piece(text, page);
+    }
+
+    private Integer currentPage() {
+        int[] first = pages.peekFirst();
+        return first == null || first[1] < 0 ? null : first[1];
+    }
+
+    /**
+     * 切分出的片段
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Piece {
+        private final String text;
+        private final Integer page;
+    }
+}
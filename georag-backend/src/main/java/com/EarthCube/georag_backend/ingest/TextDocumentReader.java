@@ -0,0 +1,44 @@
+package com.EarthCube.georag_backend.ingest;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 纯文本逐块读取 (UTF-8，非法字节替换)
+ * 没有页的概念，每次读取固定字数作为一 "页" 交给切分器 (切分器跨页拼接，块边界不影响切分)
+ */
+class TextDocumentReader implements DocumentReader {
+
+    // 每次读取的字数
+    private static final int BLOCK_CHARS = 16 * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BLOCK_CHARS];
+
+    TextDocumentReader(Path file) throws IOException {
+        this.reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    @Override
+    public Integer totalPages() {
+        return null;
+    }
+
+    @Override
+    public PageText next() throws IOException {
+        int n = reader.read(buffer);
+        return n < 0 ? null : new PageText(null, new String(buffer, 0, n));
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -2,7 +2,11 @@ package com.EarthCube.georag_backend.mapper;
 
 import com.EarthCube.georag_backend.entity.ChatMessage;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * 聊天消息 Mapper 接口
@@ -10,5 +14,25 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface ChatMessageMapper extends BaseMapper<ChatMessage> {
-    // 除非你有特别复杂的 SQL 查询（如多表联查），否则这里什么都不用写
-}
\ No newline at end of file
+
+    /**
+     * 多行批量插入 (一条 INSERT ... VALUES (...),(...))
+     * id 和 createTime 需由调用方预先生成；主键冲突时忽略，便于从本地日志重放
+     * photo / file 为空时写 DEFAULT，与单条 insert 省略空字段的效果一致
+     */
+    @Insert({"<script>",
+            "INSERT INTO chat_message (id, session_id, role, context, category, photo, file, create_time) VALUES ",
+            "<foreach collection='list' item='m' separator=','>",
+            "(#{m.id}, #{m.sessionId}, #{m.role}, #{m.context}, #{m.category}, ",
+            "<choose><when test='m.photo != null'>",
+            "#{m.photo, typeHandler=com.EarthCube.georag_backend.handler.MybatisJsonTypeHandler}",
+            "</when><otherwise>DEFAULT</otherwise></choose>, ",
+            "<choose><when test='m.file != null'>",
+            "#{m.file, typeHandler=com.EarthCube.georag_backend.handler.MybatisJsonTypeHandler}",
+            "</when><otherwise>DEFAULT</otherwise></choose>, ",
+            "#{m.createTime})",
+            "</foreach>",
+            "ON CONFLICT (id) DO NOTHING",
+            "</script>"})
+    int insertBatch(@Param("list") List<ChatMessage> list);
+}
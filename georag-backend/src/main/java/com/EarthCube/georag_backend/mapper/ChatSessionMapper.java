@@ -3,6 +3,8 @@ package com.EarthCube.georag_backend.mapper;
 import com.EarthCube.georag_backend.entity.ChatSession;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
 
 /**
  * 聊天会话 Mapper 接口
@@ -10,4 +12,9 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface ChatSessionMapper extends BaseMapper<ChatSession> {
 
-}
\ No newline at end of file
+    /**
+     * 只更新会话摘要：单条语句原子写入，不读改写 meta_info，不更新 update_time (会话列表按它排序)
+     */
+    @Update("UPDATE chat_session SET summary = #{summary} WHERE id = #{id} AND status <> 2")
+    int updateSummary(@Param("id") String id, @Param("summary") String summary);
+}
@@ -0,0 +1,13 @@
+package com.EarthCube.georag_backend.mapper;
+
+import com.EarthCube.georag_backend.entity.DocChunk;
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * 知识库文档片段 Mapper 接口
+ */
+@Mapper
+public interface DocChunkMapper extends BaseMapper<DocChunk> {
+
+}
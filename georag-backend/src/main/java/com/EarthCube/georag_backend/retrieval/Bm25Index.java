@@ -0,0 +1,480 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * BM25 倒排索引 (文档号即向量索引的节点编号)
+ * 1. 新文档先写入内存缓冲，攒够一批后生成不可变段；段数超过上限时后台合并相邻的小段
+ * 2. 查询读取段列表快照与内存缓冲 (读锁)，写入与合并只在替换段列表时短暂持有写锁
+ * 3. 文档长度按文档号存放在数组中，全局统计 (文档数、平均长度、文档频率) 跨段汇总
+ * 4. snapshot 先把缓冲落成段，写出尚未持久化的段文件，再原子替换清单文件，最后删除不再引用的段文件
+ */
+@Slf4j
+public class Bm25Index implements Closeable {
+
+    private static final int MAGIC = 0x424D3235;
+    private static final int VERSION = 1;
+
+    private static final String MANIFEST_FILE = "lexical.snap";
+    private static final String SEGMENT_PREFIX = "lex-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path dir;
+    private final float k1;
+    private final float b;
+    private final int flushDocs;
+    private final int maxSegments;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 段按文档号升序排列，替换时整体换成新列表
+    private volatile List<LexicalSegment> segments;
+
+    private Map<String, LexicalSegment.Postings> buffer = new HashMap<>();
+    private int bufferMinDoc = -1;
+
+    // 已覆盖的文档号上界 (不含)，文档号小于它的文档都已写入
+    private int maxDoc;
+    private int[] docLengths;
+    private long totalLength;
+    private int nextSegmentId;
+
+    // 每个查询线程复用的分数累加器
+    private final ThreadLocal<Accumulator> accumulator = ThreadLocal.withInitial(Accumulator::new);
+
+    private final ExecutorService merger;
+    private final AtomicBoolean mergeScheduled = new AtomicBoolean(false);
+
+    private Bm25Index(Path dir, float k1, float b, int flushDocs, int maxSegments) {
+        this.dir = dir;
+        this.k1 = k1;
+        this.b = b;
+        this.flushDocs = Math.max(1, flushDocs);
+        this.maxSegments = Math.max(1, maxSegments);
+        this.merger = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "retrieval-lexical-merge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 打开索引目录，有清单文件时恢复
+     *
+     * @param limit 文档号上界 (向量索引的节点数)，快照中超出的部分丢弃
+     */
+    public static Bm25Index open(Path dir, int limit, float k1, float b, int flushDocs, int maxSegments)
+            throws IOException {
+        Files.createDirectories(dir);
+        Bm25Index index = new Bm25Index(dir, k1, b, flushDocs, maxSegments);
+        Path manifest = dir.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifest)) {
+            index.segments = Collections.emptyList();
+            index.docLengths = new int[1024];
+            return index;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("倒排索引清单格式不兼容: " + manifest);
+            }
+            index.nextSegmentId = in.readInt();
+            int stored = in.readInt();
+            int maxDoc = Math.min(stored, limit);
+            index.docLengths = new int[Math.max(1024, maxDoc)];
+            for (int doc = 0; doc < stored; doc++) {
+                int length = in.readInt();
+                if (doc < maxDoc) {
+                    index.docLengths[doc] = length;
+                    index.totalLength += length;
+                }
+            }
+            index.maxDoc = maxDoc;
+            int count = in.readInt();
+            List<LexicalSegment> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                LexicalSegment segment = LexicalSegment.read(name, dir.resolve(name));
+                if (segment.minDoc >= maxDoc) {
+                    continue;
+                }
+                segments.add(segment.retainBelow(index.newSegmentName(), maxDoc));
+            }
+            index.segments = Collections.unmodifiableList(segments);
+        }
+        log.info("倒排索引已从快照恢复: {} 个文档, {} 个段", index.maxDoc, index.segments.size());
+        return index;
+    }
+
+    /**
+     * 已覆盖的文档号上界 (不含)
+     */
+    public int maxDoc() {
+        lock.readLock().lock();
+        try {
+            return maxDoc;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入一个文档，文档号必须大于已写入的文档号
+     */
+    public void add(int doc, String text) {
+        List<String> tokens = ChineseTokenizer.tokenize(text);
+        Map<String, Integer> freqs = new HashMap<>();
+        for (String token : tokens) {
+            freqs.merge(token, 1, Integer::sum);
+        }
+
+        boolean merge;
+        lock.writeLock().lock();
+        try {
+            if (doc < maxDoc) {
+                throw new IllegalArgumentException("文档号需递增: " + doc + " < " + maxDoc);
+            }
+            if (doc >= docLengths.length) {
+                docLengths = Arrays.copyOf(docLengths, Math.max(doc + 1, docLengths.length * 2));
+            }
+            docLengths[doc] = tokens.size();
+            totalLength += tokens.size();
+            maxDoc = doc + 1;
+            if (bufferMinDoc < 0) {
+                bufferMinDoc = doc;
+            }
+            for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+                buffer.computeIfAbsent(e.getKey(), k -> new LexicalSegment.Postings()).add(doc, e.getValue());
+            }
+            merge = maxDoc - bufferMinDoc >= flushDocs && flush();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (merge) {
+            scheduleMerge();
+        }
+    }
+
+    /**
+     * BM25 查询
+     *
+     * @param filter 文档过滤条件，为 null 表示不过滤
+     * @return 按分数降序的前 k 个文档 (label 为空，由调用方按节点编号补全)
+     */
+    public List<SearchHit> search(String query, int k, IntPredicate filter) {
+        return search(query, k, filter, 0);
+    }
+
+    /**
+     * BM25 查询，只返回覆盖度不低于 minCoverage 的文档
+     * 覆盖度 = 文档命中的查询词 IDF 之和 / 索引中出现过的查询词 IDF 之和，
+     * 只命中 "什么"、"是" 这类高频词的文档覆盖度很低，不会混进结果
+     *
+     * @param filter      文档过滤条件，为 null 表示不过滤
+     * @param minCoverage 覆盖度下限 (0~1)，0 表示不限制
+     * @return 按分数降序的前 k 个文档 (label 为空，由调用方按节点编号补全)
+     */
+    public List<SearchHit> search(String query, int k, IntPredicate filter, double minCoverage) {
+        Map<String, Integer> queryTerms = new LinkedHashMap<>();
+        for (String token : ChineseTokenizer.tokenize(query)) {
+            queryTerms.merge(token, 1, Integer::sum);
+        }
+        if (queryTerms.isEmpty() || k <= 0) {
+            return Collections.emptyList();
+        }
+
+        Accumulator acc = accumulator.get();
+        float totalIdf = 0;
+        lock.readLock().lock();
+        try {
+            if (maxDoc == 0) {
+                return Collections.emptyList();
+            }
+            acc.reset(maxDoc);
+            List<LexicalSegment> current = segments;
+            float avgLength = Math.max(1f, (float) totalLength / maxDoc);
+            int[] read = new int[1];
+            for (Map.Entry<String, Integer> e : queryTerms.entrySet()) {
+                String term = e.getKey();
+                int[] positions = new int[current.size()];
+                int df = 0;
+                for (int s = 0; s < current.size(); s++) {
+                    positions[s] = current.get(s).find(term);
+                    if (positions[s] >= 0) {
+                        df += current.get(s).docFreqs[positions[s]];
+                    }
+                }
+                LexicalSegment.Postings buffered = buffer.get(term);
+                if (buffered != null) {
+                    df += buffered.size / 2;
+                }
+                if (df == 0) {
+                    continue;
+                }
+                float idf = (float) Math.log(1 + (maxDoc - df + 0.5) / (df + 0.5));
+                float weight = e.getValue() * idf;
+                totalIdf += idf;
+
+                for (int s = 0; s < current.size(); s++) {
+                    int t = positions[s];
+                    if (t < 0) {
+                        continue;
+                    }
+                    LexicalSegment segment = current.get(s);
+                    byte[] bytes = segment.postings;
+                    int pos = segment.offsets[t];
+                    int end = segment.offsets[t + 1];
+                    int doc = 0;
+                    while (pos < end) {
+                        pos = LexicalSegment.readVInt(bytes, pos, read);
+                        doc += read[0];
+                        pos = LexicalSegment.readVInt(bytes, pos, read);
+                        if (filter == null || filter.test(doc)) {
+                            acc.add(doc, weight * termScore(read[0], docLengths[doc], avgLength), idf);
+                        }
+                    }
+                }
+                if (buffered != null) {
+                    for (int i = 0; i < buffered.size; i += 2) {
+                        int doc = buffered.data[i];
+                        if (filter == null || filter.test(doc)) {
+                            acc.add(doc, weight * termScore(buffered.data[i + 1], docLengths[doc], avgLength), idf);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return acc.drain(k, (float) (totalIdf * minCoverage));
+    }
+
+    private float termScore(int tf, int length, float avgLength) {
+        return tf * (k1 + 1) / (tf + k1 * (1 - b + b * length / avgLength));
+    }
+
+    /**
+     * 写入快照
+     */
+    public synchronized void snapshot() throws IOException {
+        List<LexicalSegment> current;
+        int[] lengths;
+        int docs;
+        int segmentId;
+        lock.writeLock().lock();
+        try {
+            if (flush()) {
+                scheduleMerge();
+            }
+            current = segments;
+            docs = maxDoc;
+            lengths = Arrays.copyOf(docLengths, docs);
+            segmentId = nextSegmentId;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Set<String> live = new HashSet<>();
+        for (LexicalSegment segment : current) {
+            live.add(segment.name);
+            if (!segment.persisted) {
+                Path tmp = dir.resolve(segment.name + ".tmp");
+                segment.write(tmp);
+                Files.move(tmp, dir.resolve(segment.name), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                segment.persisted = true;
+            }
+        }
+
+        Path tmp = dir.resolve(MANIFEST_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(segmentId);
+            out.writeInt(docs);
+            for (int length : lengths) {
+                out.writeInt(length);
+            }
+            out.writeInt(current.size());
+            for (LexicalSegment segment : current) {
+                out.writeUTF(segment.name);
+            }
+        }
+        Files.move(tmp, dir.resolve(MANIFEST_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+
+        // 清理已被合并掉的段文件
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!live.contains(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        merger.shutdown();
+        try {
+            merger.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 把内存缓冲落成新段 (需持有写锁)，返回段数是否超过上限
+     */
+    private boolean flush() {
+        if (bufferMinDoc < 0) {
+            return false;
+        }
+        LexicalSegment segment = LexicalSegment.build(newSegmentName(), buffer, bufferMinDoc, maxDoc - 1);
+        List<LexicalSegment> next = new ArrayList<>(segments);
+        next.add(segment);
+        segments = Collections.unmodifiableList(next);
+        buffer = new HashMap<>();
+        bufferMinDoc = -1;
+        return next.size() > maxSegments;
+    }
+
+    private void scheduleMerge() {
+        if (mergeScheduled.compareAndSet(false, true)) {
+            merger.execute(() -> {
+                try {
+                    mergeSegments();
+                } catch (Exception e) {
+                    log.error("合并倒排索引段失败", e);
+                } finally {
+                    mergeScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 反复合并体积之和最小的相邻两段，直到段数不超过上限
+     * 合并在锁外进行，只在替换段列表时持有写锁；段只会在末尾追加，已选中的两段位置不变
+     */
+    private void mergeSegments() {
+        while (true) {
+            List<LexicalSegment> current = segments;
+            if (current.size() <= maxSegments) {
+                return;
+            }
+            int best = 0;
+            long bestSize = Long.MAX_VALUE;
+            for (int i = 0; i + 1 < current.size(); i++) {
+                long size = current.get(i).sizeInBytes() + current.get(i + 1).sizeInBytes();
+                if (size < bestSize) {
+                    best = i;
+                    bestSize = size;
+                }
+            }
+            LexicalSegment a = current.get(best);
+            LexicalSegment b = current.get(best + 1);
+            String name;
+            lock.writeLock().lock();
+            try {
+                name = newSegmentName();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            LexicalSegment merged = LexicalSegment.merge(name, a, b);
+
+            lock.writeLock().lock();
+            try {
+                List<LexicalSegment> next = new ArrayList<>(segments);
+                int i = next.indexOf(a);
+                next.set(i, merged);
+                next.remove(i + 1);
+                segments = Collections.unmodifiableList(next);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.debug("倒排索引段已合并: {} + {} -> {}", a.name, b.name, merged.name);
+        }
+    }
+
+    private String newSegmentName() {
+        return String.format("%s%08d%s", SEGMENT_PREFIX, nextSegmentId++, SEGMENT_SUFFIX);
+    }
+
+    /**
+     * 文档分数累加器：按文档号直接寻址的稠密数组，另记下被触及的文档号
+     * 每个查询线程复用一份，查询结束后只清零触及过的位置
+     */
+    private static final class Accumulator {
+        private float[] scores = new float[1024];
+        private float[] matched = new float[1024];
+        private int[] touched = new int[1024];
+        private int size;
+
+        void reset(int maxDoc) {
+            // 上一次查询异常中断时残留的分数
+            for (int i = 0; i < size; i++) {
+                scores[touched[i]] = 0;
+                matched[touched[i]] = 0;
+            }
+            if (scores.length < maxDoc) {
+                scores = new float[Math.max(maxDoc, scores.length * 2)];
+                matched = new float[scores.length];
+            }
+            size = 0;
+        }
+
+        /**
+         * @param idf 命中的查询词的 IDF，累加为文档的覆盖度
+         */
+        void add(int doc, float score, float idf) {
+            if (scores[doc] == 0) {
+                if (size == touched.length) {
+                    touched = Arrays.copyOf(touched, size * 2);
+                }
+                touched[size++] = doc;
+            }
+            scores[doc] += score;
+            matched[doc] += idf;
+        }
+
+        /**
+         * 取命中 IDF 之和不低于 minMatched 的前 k 个并清零
+         */
+        List<SearchHit> drain(int k, float minMatched) {
+            PriorityQueue<SearchHit> heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble(SearchHit::getScore));
+            for (int i = 0; i < size; i++) {
+                int doc = touched[i];
+                float score = scores[doc];
+                boolean covered = matched[doc] >= minMatched;
+                scores[doc] = 0;
+                matched[doc] = 0;
+                if (!covered) {
+                    continue;
+                }
+                if (heap.size() < k) {
+                    heap.add(new SearchHit(doc, null, score));
+                } else if (score > heap.peek().getScore()) {
+                    heap.poll();
+                    heap.add(new SearchHit(doc, null, score));
+                }
+            }
+            size = 0;
+            List<SearchHit> hits = new ArrayList<>(heap);
+            hits.sort(Comparator.comparingDouble(SearchHit::getScore).reversed());
+            return hits;
+        }
+    }
+}
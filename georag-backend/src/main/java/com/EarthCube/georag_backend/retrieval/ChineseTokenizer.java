@@ -0,0 +1,70 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import cn.hutool.core.convert.Convert;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全文检索分词器
+ * 1. 全角转半角、转小写
+ * 2. 汉字连续片段切成重叠的二元组 ("龙马溪组" -> 龙马 / 马溪 / 溪组)，单个汉字保留为一元组；
+ *    不依赖词典，地层名、地名等专有名词也能按字面精确匹配
+ * 3. 字母、数字连续片段整体作为一个词 ("J3m"、"SiO2"、"1:5万" -> j3m / sio2 / 1 / 5 / 万)
+ * 4. 其余字符 (标点、空白、符号) 作为分隔符
+ */
+public final class ChineseTokenizer {
+
+    // 过长的字母数字串 (如编码、哈希) 截断，避免词典膨胀
+    private static final int MAX_TOKEN_LENGTH = 32;
+
+    private ChineseTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String s = Convert.toDBC(text).toLowerCase();
+        int i = 0;
+        int n = s.length();
+        while (i < n) {
+            int cp = s.codePointAt(i);
+            if (isHan(cp)) {
+                int start = i;
+                int prevStart = -1;
+                int count = 0;
+                while (i < n && isHan(s.codePointAt(i))) {
+                    int cur = i;
+                    i += Character.charCount(s.codePointAt(i));
+                    if (prevStart >= 0) {
+                        tokens.add(s.substring(prevStart, i));
+                    }
+                    prevStart = cur;
+                    count++;
+                }
+                if (count == 1) {
+                    tokens.add(s.substring(start, i));
+                }
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < n) {
+                    int c = s.codePointAt(i);
+                    if (isHan(c) || !Character.isLetterOrDigit(c)) {
+                        break;
+                    }
+                    i += Character.charCount(c);
+                }
+                tokens.add(s.substring(start, Math.min(i, start + MAX_TOKEN_LENGTH)));
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isHan(int cp) {
+        return Character.UnicodeScript.of(cp) == Character.UnicodeScript.HAN;
+    }
+}
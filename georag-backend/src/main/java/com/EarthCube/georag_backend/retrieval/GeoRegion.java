@@ -0,0 +1,115 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import cn.hutool.core.convert.Convert;
+import com.EarthCube.georag_backend.common.exception.ValidateException;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 检索的空间范围 (经纬度，WGS84)
+ * 1. 矩形：{"bbox": [minLon, minLat, maxLon, maxLat]}，minLon > maxLon 表示跨 180° 经线
+ * 2. 半径：{"lon": 116.39, "lat": 39.91, "radius": 50000}，半径单位为米
+ * 3. 最近邻：{"lon": 116.39, "lat": 39.91, "k": 200}，取离该点最近的 k 个片段，k 为空时使用默认值
+ */
+@Getter
+public class GeoRegion {
+
+    public enum Type {
+        BBOX, RADIUS, NEAREST
+    }
+
+    // 最近邻查询 k 的上限
+    public static final int MAX_K = 10000;
+
+    private final Type type;
+    private final double minLon;
+    private final double minLat;
+    private final double maxLon;
+    private final double maxLat;
+    private final double lon;
+    private final double lat;
+    private final double radius;
+    private final Integer k;
+
+    private GeoRegion(Type type, double minLon, double minLat, double maxLon, double maxLat,
+                      double lon, double lat, double radius, Integer k) {
+        this.type = type;
+        this.minLon = minLon;
+        this.minLat = minLat;
+        this.maxLon = maxLon;
+        this.maxLat = maxLat;
+        this.lon = lon;
+        this.lat = lat;
+        this.radius = radius;
+        this.k = k;
+    }
+
+    /**
+     * 从 ChatSendDTO.options.region 解析，options 中没有 region 时返回 null
+     */
+    public static GeoRegion fromOptions(Map<String, Object> options) {
+        Object region = options == null ? null : options.get("region");
+        if (region == null) {
+            return null;
+        }
+        if (!(region instanceof Map)) {
+            throw new ValidateException("region 格式错误");
+        }
+        Map<?, ?> map = (Map<?, ?>) region;
+        Object bbox = map.get("bbox");
+        if (bbox != null && !(bbox instanceof List)) {
+            throw new ValidateException("region.bbox 需为 [minLon, minLat, maxLon, maxLat]");
+        }
+        return of(bbox == null ? null : Convert.toList(Double.class, bbox),
+                Convert.toDouble(map.get("lon")), Convert.toDouble(map.get("lat")),
+                Convert.toDouble(map.get("radius")), Convert.toInt(map.get("k")));
+    }
+
+    /**
+     * 按字段组合确定类型：有 bbox 为矩形，否则需要中心点，有 radius 为半径，否则为最近邻
+     */
+    public static GeoRegion of(List<Double> bbox, Double lon, Double lat, Double radius, Integer k) {
+        if (bbox != null) {
+            if (bbox.size() != 4 || bbox.contains(null)) {
+                throw new ValidateException("bbox 需为 [minLon, minLat, maxLon, maxLat]");
+            }
+            checkLon(bbox.get(0));
+            checkLat(bbox.get(1));
+            checkLon(bbox.get(2));
+            checkLat(bbox.get(3));
+            if (bbox.get(1) > bbox.get(3)) {
+                throw new ValidateException("bbox 的 minLat 不能大于 maxLat");
+            }
+            return new GeoRegion(Type.BBOX, bbox.get(0), bbox.get(1), bbox.get(2), bbox.get(3), 0, 0, 0, null);
+        }
+        if (lon == null || lat == null) {
+            throw new ValidateException("空间范围需提供 bbox，或中心点 lon / lat");
+        }
+        checkLon(lon);
+        checkLat(lat);
+        if (radius != null) {
+            if (!(radius > 0)) {
+                throw new ValidateException("radius 需大于 0 (米)");
+            }
+            return new GeoRegion(Type.RADIUS, 0, 0, 0, 0, lon, lat, radius, null);
+        }
+        if (k != null && (k <= 0 || k > MAX_K)) {
+            throw new ValidateException("k 需在 1 ~ " + MAX_K + " 之间");
+        }
+        return new GeoRegion(Type.NEAREST, 0, 0, 0, 0, lon, lat, 0, k);
+    }
+
+    private static void checkLon(double lon) {
+        if (!(lon >= -180 && lon <= 180)) {
+            throw new ValidateException("经度需在 -180 ~ 180 之间");
+        }
+    }
+
+    private static void checkLat(double lat) {
+        if (!(lat >= -90 && lat <= 90)) {
+            throw new ValidateException("纬度需在 -90 ~ 90 之间");
+        }
+    }
+}
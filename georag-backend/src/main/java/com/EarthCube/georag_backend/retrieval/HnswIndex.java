@@ -0,0 +1,575 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/**
+ * HNSW (Hierarchical Navigable Small World) 向量索引
+ * 1. 向量存放在 MappedVectorStore (堆外内存映射文件)，图结构在堆内
+ * 2. 支持增量插入；插入串行执行 (写锁)，查询并发执行 (读锁)
+ * 3. 余弦相似度在写入 / 查询时先归一化，统一按内积计算，分数越大越相似
+ * 4. snapshot 把图结构写入快照文件 (先写临时文件再原子替换)，启动时从快照与向量文件恢复
+ */
+@Slf4j
+public class HnswIndex implements Closeable {
+
+    public enum Metric {
+        COSINE, INNER_PRODUCT
+    }
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+
+    private static final String VECTOR_FILE = "vectors.bin";
+    private static final String GRAPH_FILE = "graph.snap";
+
+    private final Path dir;
+    private final int dimension;
+    private final Metric metric;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelFactor;
+
+    private final MappedVectorStore vectors;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 节点的层数与每层邻居 (links[node][level][0] 为邻居数，其后为邻居编号)
+    private int[] levels = new int[1024];
+    private int[][][] links = new int[1024][][];
+    private String[] labels = new String[1024];
+    private int size;
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    // 每个查询线程复用的访问标记
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    private HnswIndex(Path dir, int dimension, Metric metric, int m, int efConstruction, int count) throws IOException {
+        this.dir = dir;
+        this.dimension = dimension;
+        this.metric = metric;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.vectors = new MappedVectorStore(dir.resolve(VECTOR_FILE), dimension, count);
+    }
+
+    /**
+     * 打开索引目录，有快照时从快照恢复
+     * 快照中的参数 (维度、度量) 与配置不一致时拒绝打开，避免混用不同的 Embedding 模型
+     */
+    public static HnswIndex open(Path dir, int dimension, Metric metric, int m, int efConstruction) throws IOException {
+        Files.createDirectories(dir);
+        Path graph = dir.resolve(GRAPH_FILE);
+        if (!Files.exists(graph)) {
+            // 没有快照时向量文件中的数据无法对应到节点，从头开始
+            Files.deleteIfExists(dir.resolve(VECTOR_FILE));
+            return new HnswIndex(dir, dimension, metric, m, efConstruction, 0);
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(graph)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("无法识别的索引快照: " + graph);
+            }
+            int snapDimension = in.readInt();
+            Metric snapMetric = Metric.values()[in.readInt()];
+            if (snapDimension != dimension || snapMetric != metric) {
+                throw new IOException("索引快照参数不一致: dimension=" + snapDimension + ", metric=" + snapMetric);
+            }
+            int snapM = in.readInt();
+            int count = in.readInt();
+            HnswIndex index = new HnswIndex(dir, dimension, metric, snapM, efConstruction, count);
+            if (index.vectors.size() < count) {
+                throw new IOException("向量文件不完整: " + index.vectors.size() + " < " + count);
+            }
+            index.entryPoint = in.readInt();
+            index.maxLevel = in.readInt();
+            index.ensureCapacity(count);
+            for (int node = 0; node < count; node++) {
+                index.labels[node] = in.readUTF();
+                int level = in.readUnsignedByte();
+                index.levels[node] = level;
+                int[][] nodeLinks = new int[level + 1][];
+                for (int l = 0; l <= level; l++) {
+                    int n = in.readInt();
+                    int[] list = new int[(l == 0 ? index.maxM0 : index.m) + 1];
+                    list[0] = n;
+                    for (int i = 1; i <= n; i++) {
+                        list[i] = in.readInt();
+                    }
+                    nodeLinks[l] = list;
+                }
+                index.links[node] = nodeLinks;
+            }
+            index.size = count;
+            log.info("向量索引已从快照恢复: {} 个节点, 目录 {}", count, dir);
+            return index;
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public String label(int node) {
+        lock.readLock().lock();
+        try {
+            return labels[node];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 插入一个向量
+     *
+     * @param label 业务标识 (如文档片段 ID)
+     * @return 节点编号
+     */
+    public int add(String label, float[] vector) throws IOException {
+        float[] v = prepare(vector);
+        int level = randomLevel();
+
+        lock.writeLock().lock();
+        try {
+            int node = vectors.add(v);
+            ensureCapacity(node + 1);
+            labels[node] = label;
+            levels[node] = level;
+            int[][] nodeLinks = new int[level + 1][];
+            for (int l = 0; l <= level; l++) {
+                nodeLinks[l] = new int[(l == 0 ? maxM0 : m) + 1];
+            }
+            links[node] = nodeLinks;
+            size = node + 1;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                maxLevel = level;
+                return node;
+            }
+
+            int ep = entryPoint;
+            for (int l = maxLevel; l > level; l--) {
+                ep = greedy(v, ep, l);
+            }
+            for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+                Heap candidates = searchLayer(v, ep, efConstruction, l, null);
+                int maxConn = l == 0 ? maxM0 : m;
+                // selectNeighbors 会清空候选堆，先记下下一层的入口
+                int nextEp = candidates.best();
+                int[] selected = selectNeighbors(candidates, m);
+                int[] own = nodeLinks[l];
+                own[0] = selected.length;
+                System.arraycopy(selected, 0, own, 1, selected.length);
+                for (int neighbor : selected) {
+                    connect(neighbor, node, l, maxConn);
+                }
+                ep = nextEp;
+            }
+            if (level > maxLevel) {
+                entryPoint = node;
+                maxLevel = level;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 近似最近邻查询
+     *
+     * @param query  查询向量
+     * @param k      返回条数
+     * @param ef     搜索宽度，越大召回越高、越慢，不小于 k
+     * @param filter 节点过滤条件，为 null 表示不过滤；不满足条件的节点仍参与图遍历，只是不进入结果
+     */
+    public List<SearchHit> search(float[] query, int k, int ef, IntPredicate filter) {
+        float[] q = prepare(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return Collections.emptyList();
+            }
+            int ep = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                ep = greedy(q, ep, l);
+            }
+            Heap results = searchLayer(q, ep, Math.max(ef, k), 0, filter);
+            return toHits(results, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 对指定节点精确打分 (候选集很小时直接暴力计算比图遍历更准更快)
+     */
+    public List<SearchHit> score(float[] query, int[] nodes, int k) {
+        float[] q = prepare(query);
+        Heap results = new Heap(Math.max(1, k));
+        lock.readLock().lock();
+        try {
+            for (int node : nodes) {
+                if (node >= 0 && node < size) {
+                    results.offerBounded(node, vectors.dot(node, q), k);
+                }
+            }
+            return toHits(results, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 写入快照：向量文件刷盘后，把图结构写入临时文件再原子替换
+     */
+    public void snapshot() throws IOException {
+        lock.readLock().lock();
+        try {
+            vectors.force();
+            Path tmp = dir.resolve(GRAPH_FILE + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(dimension);
+                out.writeInt(metric.ordinal());
+                out.writeInt(m);
+                out.writeInt(size);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (int node = 0; node < size; node++) {
+                    out.writeUTF(labels[node]);
+                    out.writeByte(levels[node]);
+                    for (int l = 0; l <= levels[node]; l++) {
+                        int[] list = links[node][l];
+                        for (int i = 0; i <= list[0]; i++) {
+                            out.writeInt(list[i]);
+                        }
+                    }
+                }
+            }
+            Files.move(tmp, dir.resolve(GRAPH_FILE), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        vectors.close();
+    }
+
+    /**
+     * 单层贪心搜索，返回该层离查询最近的节点
+     */
+    private int greedy(float[] q, int ep, int level) {
+        int current = ep;
+        float best = vectors.dot(current, q);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int candidate = list[i];
+                float score = vectors.dot(candidate, q);
+                if (score > best) {
+                    best = score;
+                    current = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * 单层束搜索，返回至多 ef 个满足过滤条件的最近节点
+     */
+    private Heap searchLayer(float[] q, int ep, int ef, int level, IntPredicate filter) {
+        Visited seen = visited.get();
+        seen.reset(size);
+        // candidates 为待扩展节点 (按分数取最大)，results 为当前最好的 ef 个结果 (堆顶为最差)
+        Heap candidates = new Heap(ef * 2);
+        Heap results = new Heap(ef + 1);
+
+        float epScore = vectors.dot(ep, q);
+        seen.mark(ep);
+        candidates.push(ep, -epScore);
+        if (filter == null || filter.test(ep)) {
+            results.push(ep, epScore);
+        }
+        while (!candidates.isEmpty()) {
+            float candidateScore = -candidates.topScore();
+            if (results.size() >= ef && candidateScore < results.topScore()) {
+                break;
+            }
+            int current = candidates.pop();
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbor = list[i];
+                if (!seen.mark(neighbor)) {
+                    continue;
+                }
+                float score = vectors.dot(neighbor, q);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbor, -score);
+                    if (filter == null || filter.test(neighbor)) {
+                        results.offerBounded(neighbor, score, ef);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 启发式选择邻居：候选按相似度从高到低，只保留比已选邻居更接近查询的节点，使邻居分布在不同方向
+     */
+    private int[] selectNeighbors(Heap candidates, int max) {
+        int n = candidates.size();
+        int[] nodes = new int[n];
+        float[] scores = new float[n];
+        // 堆顶最差，依次弹出后倒序即为从好到差
+        for (int i = n - 1; i >= 0; i--) {
+            scores[i] = candidates.topScore();
+            nodes[i] = candidates.pop();
+        }
+        int[] selected = new int[Math.min(max, n)];
+        int count = 0;
+        for (int i = 0; i < n && count < selected.length; i++) {
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (vectors.dot(nodes[i], selected[j]) > scores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[count++] = nodes[i];
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * 为已有节点添加反向连接，超出上限时按启发式重新挑选
+     */
+    private void connect(int node, int neighbor, int level, int maxConn) {
+        int[] list = links[node][level];
+        int n = list[0];
+        if (n < maxConn) {
+            list[n + 1] = neighbor;
+            list[0] = n + 1;
+            return;
+        }
+        float[] base = vectors.get(node);
+        Heap candidates = new Heap(n + 1);
+        for (int i = 1; i <= n; i++) {
+            candidates.push(list[i], vectors.dot(list[i], base));
+        }
+        candidates.push(neighbor, vectors.dot(neighbor, base));
+        int[] selected = selectNeighbors(candidates, maxConn);
+        list[0] = selected.length;
+        System.arraycopy(selected, 0, list, 1, selected.length);
+    }
+
+    private List<SearchHit> toHits(Heap results, int k) {
+        while (results.size() > k) {
+            results.pop();
+        }
+        SearchHit[] hits = new SearchHit[results.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            float score = results.topScore();
+            int node = results.pop();
+            hits[i] = new SearchHit(node, labels[node], score);
+        }
+        return new ArrayList<>(Arrays.asList(hits));
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return Math.min(32, (int) (-Math.log(Math.max(r, Double.MIN_VALUE)) * levelFactor));
+    }
+
+    private float[] prepare(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        if (metric != Metric.COSINE) {
+            return vector;
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float inv = (float) (1 / Math.sqrt(norm));
+        float[] normalized = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * inv;
+        }
+        return normalized;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= levels.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, levels.length * 2);
+        levels = Arrays.copyOf(levels, newCapacity);
+        links = Arrays.copyOf(links, newCapacity);
+        labels = Arrays.copyOf(labels, newCapacity);
+    }
+
+    /**
+     * 基于分数的二叉小顶堆 (堆顶分数最小)，节点与分数分别存放在原始类型数组中
+     */
+    static final class Heap {
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        Heap(int capacity) {
+            nodes = new int[Math.max(4, capacity)];
+            scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= score) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        /**
+         * 只保留分数最高的 limit 个
+         */
+        void offerBounded(int node, float score, int limit) {
+            if (size < limit) {
+                push(node, score);
+            } else if (score > scores[0]) {
+                pop();
+                push(node, score);
+            }
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && scores[child + 1] < scores[child]) {
+                    child++;
+                }
+                if (scores[child] >= lastScore) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        /**
+         * 分数最高的节点 (线性查找，只在构建时使用)
+         */
+        int best() {
+            int best = 0;
+            for (int i = 1; i < size; i++) {
+                if (scores[i] > scores[best]) {
+                    best = i;
+                }
+            }
+            return nodes[best];
+        }
+    }
+
+    /**
+     * 按轮次标记的访问集合，避免每次查询分配 HashSet
+     */
+    private static final class Visited {
+        private int[] marks = new int[1024];
+        private int epoch;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == 0) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /**
+         * 标记节点，首次标记返回 true
+         */
+        boolean mark(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
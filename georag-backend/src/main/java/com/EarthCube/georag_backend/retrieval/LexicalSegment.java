@@ -0,0 +1,291 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 倒排索引的不可变段
+ * 1. 词典为排好序的词数组，二分查找
+ * 2. 倒排表按文档号升序，每条记录为 (文档号差值, 词频) 两个变长整数 (VByte)，所有词的倒排表连续存放在一个字节数组中
+ * 3. 段覆盖一段连续的文档号区间，相邻段合并时倒排表可以直接拼接，只需重写后一段首条记录的差值
+ */
+final class LexicalSegment {
+
+    private static final int MAGIC = 0x4C455853;
+    private static final int VERSION = 1;
+
+    final String name;
+    final String[] terms;
+    final int[] docFreqs;
+    // offsets[t] ~ offsets[t + 1] 为第 t 个词的倒排表
+    final int[] offsets;
+    final byte[] postings;
+    // 段内文档号范围 [minDoc, maxDoc]，空段时 minDoc > maxDoc
+    final int minDoc;
+    final int maxDoc;
+
+    // 是否已写入文件
+    volatile boolean persisted;
+
+    private LexicalSegment(String name, String[] terms, int[] docFreqs, int[] offsets, byte[] postings,
+                           int minDoc, int maxDoc) {
+        this.name = name;
+        this.terms = terms;
+        this.docFreqs = docFreqs;
+        this.offsets = offsets;
+        this.postings = postings;
+        this.minDoc = minDoc;
+        this.maxDoc = maxDoc;
+    }
+
+    int find(String term) {
+        return Arrays.binarySearch(terms, term);
+    }
+
+    long sizeInBytes() {
+        return postings.length;
+    }
+
+    /**
+     * 从内存缓冲构建段
+     *
+     * @param buffer 词 -> 按文档号升序的倒排表
+     */
+    static LexicalSegment build(String name, Map<String, Postings> buffer, int minDoc, int maxDoc) {
+        String[] terms = buffer.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        int[] docFreqs = new int[terms.length];
+        int[] offsets = new int[terms.length + 1];
+        ByteSink out = new ByteSink(Math.max(1024, buffer.size() * 8));
+        for (int t = 0; t < terms.length; t++) {
+            Postings list = buffer.get(terms[t]);
+            offsets[t] = out.size;
+            int prev = 0;
+            for (int i = 0; i < list.size; i += 2) {
+                out.writeVInt(list.data[i] - prev);
+                out.writeVInt(list.data[i + 1]);
+                prev = list.data[i];
+            }
+            docFreqs[t] = list.size / 2;
+        }
+        offsets[terms.length] = out.size;
+        return new LexicalSegment(name, terms, docFreqs, offsets, out.toArray(), minDoc, maxDoc);
+    }
+
+    /**
+     * 合并两个相邻段 (a 的文档号全部小于 b)
+     * 只出现在一个段里的词直接复制字节；两段都有的词拼接倒排表，重写 b 部分的首个差值
+     */
+    static LexicalSegment merge(String name, LexicalSegment a, LexicalSegment b) {
+        List<String> terms = new ArrayList<>(Math.max(a.terms.length, b.terms.length));
+        ByteSink out = new ByteSink(a.postings.length + b.postings.length + 1024);
+        List<Integer> docFreqs = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < a.terms.length || j < b.terms.length) {
+            int cmp = i == a.terms.length ? 1 : j == b.terms.length ? -1 : a.terms[i].compareTo(b.terms[j]);
+            offsets.add(out.size);
+            if (cmp < 0) {
+                terms.add(a.terms[i]);
+                docFreqs.add(a.docFreqs[i]);
+                out.write(a.postings, a.offsets[i], a.offsets[i + 1] - a.offsets[i]);
+                i++;
+            } else if (cmp > 0) {
+                terms.add(b.terms[j]);
+                docFreqs.add(b.docFreqs[j]);
+                out.write(b.postings, b.offsets[j], b.offsets[j + 1] - b.offsets[j]);
+                j++;
+            } else {
+                terms.add(a.terms[i]);
+                docFreqs.add(a.docFreqs[i] + b.docFreqs[j]);
+                out.write(a.postings, a.offsets[i], a.offsets[i + 1] - a.offsets[i]);
+                int lastDoc = a.lastDoc(i);
+                // b 的首个差值相对 0，改为相对 a 的最后一个文档号
+                int pos = b.offsets[j];
+                int[] read = new int[1];
+                pos = readVInt(b.postings, pos, read);
+                out.writeVInt(read[0] - lastDoc);
+                out.write(b.postings, pos, b.offsets[j + 1] - pos);
+                i++;
+                j++;
+            }
+        }
+        offsets.add(out.size);
+        return new LexicalSegment(name, terms.toArray(new String[0]),
+                docFreqs.stream().mapToInt(Integer::intValue).toArray(),
+                offsets.stream().mapToInt(Integer::intValue).toArray(),
+                out.toArray(), Math.min(a.minDoc, b.minDoc), Math.max(a.maxDoc, b.maxDoc));
+    }
+
+    /**
+     * 去掉文档号不小于 limit 的记录 (向量索引快照比倒排索引快照旧时使用)
+     */
+    LexicalSegment retainBelow(String newName, int limit) {
+        if (maxDoc < limit) {
+            return this;
+        }
+        List<String> keptTerms = new ArrayList<>();
+        List<Integer> keptFreqs = new ArrayList<>();
+        List<Integer> keptOffsets = new ArrayList<>();
+        ByteSink out = new ByteSink(postings.length);
+        int[] read = new int[1];
+        int newMax = -1;
+        for (int t = 0; t < terms.length; t++) {
+            int start = out.size;
+            int count = 0;
+            int doc = 0;
+            int prev = 0;
+            int pos = offsets[t];
+            while (pos < offsets[t + 1]) {
+                pos = readVInt(postings, pos, read);
+                doc += read[0];
+                pos = readVInt(postings, pos, read);
+                if (doc >= limit) {
+                    break;
+                }
+                out.writeVInt(doc - prev);
+                out.writeVInt(read[0]);
+                prev = doc;
+                count++;
+                newMax = Math.max(newMax, doc);
+            }
+            if (count > 0) {
+                keptTerms.add(terms[t]);
+                keptFreqs.add(count);
+                keptOffsets.add(start);
+            }
+        }
+        keptOffsets.add(out.size);
+        return new LexicalSegment(newName, keptTerms.toArray(new String[0]),
+                keptFreqs.stream().mapToInt(Integer::intValue).toArray(),
+                keptOffsets.stream().mapToInt(Integer::intValue).toArray(),
+                out.toArray(), minDoc, Math.min(newMax, limit - 1));
+    }
+
+    private int lastDoc(int t) {
+        int[] read = new int[1];
+        int doc = 0;
+        int pos = offsets[t];
+        while (pos < offsets[t + 1]) {
+            pos = readVInt(postings, pos, read);
+            doc += read[0];
+            pos = readVInt(postings, pos, read);
+        }
+        return doc;
+    }
+
+    void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(minDoc);
+            out.writeInt(maxDoc);
+            out.writeInt(terms.length);
+            for (int t = 0; t < terms.length; t++) {
+                out.writeUTF(terms[t]);
+                out.writeInt(docFreqs[t]);
+                out.writeInt(offsets[t]);
+            }
+            out.writeInt(postings.length);
+            out.write(postings);
+        }
+    }
+
+    static LexicalSegment read(String name, Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("倒排索引段格式不兼容: " + file);
+            }
+            int minDoc = in.readInt();
+            int maxDoc = in.readInt();
+            int count = in.readInt();
+            String[] terms = new String[count];
+            int[] docFreqs = new int[count];
+            int[] offsets = new int[count + 1];
+            for (int t = 0; t < count; t++) {
+                terms[t] = in.readUTF();
+                docFreqs[t] = in.readInt();
+                offsets[t] = in.readInt();
+            }
+            byte[] postings = new byte[in.readInt()];
+            in.readFully(postings);
+            offsets[count] = postings.length;
+            LexicalSegment segment = new LexicalSegment(name, terms, docFreqs, offsets, postings, minDoc, maxDoc);
+            segment.persisted = true;
+            return segment;
+        }
+    }
+
+    /**
+     * 读取一个变长整数，结果放在 value[0]，返回下一个位置
+     */
+    static int readVInt(byte[] bytes, int pos, int[] value) {
+        int b = bytes[pos++];
+        int v = b & 0x7F;
+        for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+            b = bytes[pos++];
+            v |= (b & 0x7F) << shift;
+        }
+        value[0] = v;
+        return pos;
+    }
+
+    /**
+     * 内存缓冲中的倒排表：(文档号, 词频) 交替存放
+     */
+    static final class Postings {
+        int[] data = new int[4];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size + 2 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = doc;
+            data[size++] = freq;
+        }
+    }
+
+    /**
+     * 可增长的字节缓冲
+     */
+    private static final class ByteSink {
+        byte[] buf;
+        int size;
+
+        ByteSink(int capacity) {
+            buf = new byte[capacity];
+        }
+
+        void writeVInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[size++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[size++] = (byte) v;
+        }
+
+        void write(byte[] src, int off, int len) {
+            ensure(len);
+            System.arraycopy(src, off, buf, size, len);
+            size += len;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(buf, size);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 内存映射的向量存储
+ * 向量按写入顺序连续存放在文件中 (float32，小端)，编号即写入序号；
+ * 文件按固定大小分段映射，向量不跨段，数据在堆外，由操作系统按需换入换出
+ * 只追加写入 (单线程)，读取可并发
+ */
+public class MappedVectorStore implements Closeable {
+
+    // 单个映射段的目标大小
+    private static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private final int dimension;
+    private final int vectorsPerSegment;
+    private final FileChannel channel;
+
+    // 追加分段与并发读取同时发生，分段很少新增，用写时复制列表
+    private final List<FloatBuffer> segments = new CopyOnWriteArrayList<>();
+    private final List<MappedByteBuffer> mapped = new CopyOnWriteArrayList<>();
+
+    private volatile int size;
+
+    // 读取向量用的线程本地缓冲
+    private final ThreadLocal<float[]> scratchA;
+    private final ThreadLocal<float[]> scratchB;
+
+    /**
+     * @param file      向量文件，不存在时创建
+     * @param dimension 向量维度
+     * @param size      已有的向量数 (来自快照)，文件中多出的部分视为未提交并被覆盖
+     */
+    public MappedVectorStore(Path file, int dimension, int size) throws IOException {
+        this.dimension = dimension;
+        this.scratchA = ThreadLocal.withInitial(() -> new float[dimension]);
+        this.scratchB = ThreadLocal.withInitial(() -> new float[dimension]);
+        this.vectorsPerSegment = (int) Math.max(1, SEGMENT_BYTES / ((long) dimension * Float.BYTES));
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long stored = channel.size() / ((long) dimension * Float.BYTES);
+        this.size = (int) Math.min(size, stored);
+        ensureSegments(this.size);
+    }
+
+    public int getDimension() {
+        return dimension;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 追加一个向量，返回其编号
+     */
+    public synchronized int add(float[] vector) throws IOException {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("向量维度不匹配: " + vector.length + " != " + dimension);
+        }
+        int id = size;
+        ensureSegments(id + 1);
+        segments.get(id / vectorsPerSegment).put((id % vectorsPerSegment) * dimension, vector, 0, dimension);
+        size = id + 1;
+        return id;
+    }
+
+    /**
+     * 读取向量 (复制到新数组)
+     */
+    public float[] get(int id) {
+        float[] vector = new float[dimension];
+        read(id, vector);
+        return vector;
+    }
+
+    /**
+     * 查询向量与已存向量的内积
+     * 先整块复制到线程本地数组再计算，比逐个读取 FloatBuffer 快得多，也便于 JIT 向量化
+     */
+    public float dot(int id, float[] query) {
+        float[] v = scratchA.get();
+        read(id, v);
+        return dot(v, query, dimension);
+    }
+
+    /**
+     * 两个已存向量的内积
+     */
+    public float dot(int a, int b) {
+        float[] va = scratchA.get();
+        float[] vb = scratchB.get();
+        read(a, va);
+        read(b, vb);
+        return dot(va, vb, dimension);
+    }
+
+    private void read(int id, float[] dst) {
+        segments.get(id / vectorsPerSegment).get((id % vectorsPerSegment) * dimension, dst, 0, dimension);
+    }
+
+    /**
+     * 四路累加，打断浮点加法的依赖链
+     */
+    private static float dot(float[] a, float[] b, int n) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int bound = n & ~3; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += a[i] * b[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 刷盘 (写快照前调用)
+     */
+    public synchronized void force() {
+        for (MappedByteBuffer buffer : mapped) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /**
+     * 保证能容纳 count 个向量，不足时映射新的分段
+     */
+    private void ensureSegments(int count) throws IOException {
+        int needed = (count + vectorsPerSegment - 1) / vectorsPerSegment;
+        long segmentBytes = (long) vectorsPerSegment * dimension * Float.BYTES;
+        while (segments.size() < needed) {
+            long position = segments.size() * segmentBytes;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, segmentBytes);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            mapped.add(buffer);
+            segments.add(buffer.asFloatBuffer());
+        }
+    }
+}
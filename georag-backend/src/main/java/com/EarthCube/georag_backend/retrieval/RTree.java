@@ -0,0 +1,415 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * 经纬度 R-tree 空间索引
+ * 1. 条目为 (编号, 外包矩形)，点用退化矩形表示；矩形不跨 180° 经线 (minLon <= maxLon)
+ * 2. Guttman 插入 + 二次分裂，不支持删除；插入串行执行 (写锁)，查询并发执行 (读锁)
+ * 3. 距离为球面大圆距离 (米)，点到矩形的距离精确计算，用于半径查询剪枝与最近邻的最优优先遍历
+ */
+public class RTree {
+
+    private static final int MAX_ENTRIES = 16;
+    private static final int MIN_ENTRIES = 6;
+
+    // 地球平均半径 (米)
+    private static final double EARTH_RADIUS = 6371008.8;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Node root = new Node(true);
+    private int size;
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 插入一个条目
+     *
+     * @param id 条目编号 (向量索引的节点编号)
+     */
+    public void insert(int id, double minLon, double minLat, double maxLon, double maxLat) {
+        if (!(minLon <= maxLon) || !(minLat <= maxLat)) {
+            throw new IllegalArgumentException("非法的外包矩形: " + minLon + "," + minLat + "," + maxLon + "," + maxLat);
+        }
+        double[] box = {minLon, minLat, maxLon, maxLat};
+        lock.writeLock().lock();
+        try {
+            Node sibling = insert(root, id, box);
+            if (sibling != null) {
+                Node newRoot = new Node(false);
+                newRoot.add(root.bounds(), -1, root);
+                newRoot.add(sibling.bounds(), -1, sibling);
+                root = newRoot;
+            }
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 与矩形相交的条目；minLon > maxLon 表示跨 180° 经线的矩形
+     */
+    public void search(double minLon, double minLat, double maxLon, double maxLat, IntConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            if (minLon > maxLon) {
+                search(root, minLon, minLat, 180, maxLat, consumer);
+                search(root, -180, minLat, maxLon, maxLat, consumer);
+            } else {
+                search(root, minLon, minLat, maxLon, maxLat, consumer);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 与圆 (中心点 + 半径) 相交的条目，按距离升序
+     */
+    public List<Neighbor> within(double lon, double lat, double radius, int limit) {
+        return nearest(lon, lat, limit, radius);
+    }
+
+    /**
+     * 距离最近的 k 个条目，按距离升序
+     */
+    public List<Neighbor> nearest(double lon, double lat, int k) {
+        return nearest(lon, lat, k, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * 最优优先遍历：队列里同时放节点与条目，按到查询点的距离出队，条目出队即为下一个最近结果
+     */
+    private List<Neighbor> nearest(double lon, double lat, int k, double maxDistance) {
+        List<Neighbor> result = new ArrayList<>(Math.min(k, 256));
+        if (k <= 0) {
+            return result;
+        }
+        double lonRad = Math.toRadians(lon);
+        double latRad = Math.toRadians(lat);
+        PriorityQueue<Pending> queue = new PriorityQueue<>();
+        lock.readLock().lock();
+        try {
+            queue.add(new Pending(0, root, -1));
+            while (!queue.isEmpty() && result.size() < k) {
+                Pending pending = queue.poll();
+                if (pending.node == null) {
+                    result.add(new Neighbor(pending.id, pending.distance));
+                    continue;
+                }
+                Node node = pending.node;
+                for (int i = 0; i < node.count; i++) {
+                    int o = i * 4;
+                    double d = distance(lonRad, latRad, node.boxes[o], node.boxes[o + 1], node.boxes[o + 2],
+                            node.boxes[o + 3]);
+                    if (d > maxDistance) {
+                        continue;
+                    }
+                    queue.add(node.leaf ? new Pending(d, null, node.ids[i]) : new Pending(d, node.children[i], -1));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void search(Node node, double minLon, double minLat, double maxLon, double maxLat,
+                               IntConsumer consumer) {
+        for (int i = 0; i < node.count; i++) {
+            int o = i * 4;
+            if (node.boxes[o] > maxLon || node.boxes[o + 2] < minLon
+                    || node.boxes[o + 1] > maxLat || node.boxes[o + 3] < minLat) {
+                continue;
+            }
+            if (node.leaf) {
+                consumer.accept(node.ids[i]);
+            } else {
+                search(node.children[i], minLon, minLat, maxLon, maxLat, consumer);
+            }
+        }
+    }
+
+    /**
+     * 递归插入，节点溢出时分裂并返回新的兄弟节点
+     */
+    private static Node insert(Node node, int id, double[] box) {
+        if (node.leaf) {
+            node.add(box, id, null);
+        } else {
+            int best = chooseSubtree(node, box);
+            Node sibling = insert(node.children[best], id, box);
+            node.setBox(best, node.children[best].bounds());
+            if (sibling != null) {
+                node.add(sibling.bounds(), -1, sibling);
+            }
+        }
+        return node.count > MAX_ENTRIES ? split(node) : null;
+    }
+
+    /**
+     * 选择面积增量最小的子节点，相同时选面积较小的
+     */
+    private static int chooseSubtree(Node node, double[] box) {
+        int best = 0;
+        double bestEnlargement = Double.POSITIVE_INFINITY;
+        double bestArea = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < node.count; i++) {
+            int o = i * 4;
+            double area = area(node.boxes[o], node.boxes[o + 1], node.boxes[o + 2], node.boxes[o + 3]);
+            double enlarged = area(Math.min(node.boxes[o], box[0]), Math.min(node.boxes[o + 1], box[1]),
+                    Math.max(node.boxes[o + 2], box[2]), Math.max(node.boxes[o + 3], box[3]));
+            double enlargement = enlarged - area;
+            if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                best = i;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 二次分裂：取合并后浪费面积最大的两个条目作种子，其余条目逐个分到面积增量较小的一组
+     * 原节点保留第一组，返回第二组组成的新节点
+     */
+    private static Node split(Node node) {
+        int n = node.count;
+        double[] boxes = node.boxes.clone();
+        int[] ids = node.leaf ? node.ids.clone() : null;
+        Node[] children = node.leaf ? null : node.children.clone();
+
+        int seedA = 0;
+        int seedB = 1;
+        double worst = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                int a = i * 4;
+                int b = j * 4;
+                double waste = area(Math.min(boxes[a], boxes[b]), Math.min(boxes[a + 1], boxes[b + 1]),
+                        Math.max(boxes[a + 2], boxes[b + 2]), Math.max(boxes[a + 3], boxes[b + 3]))
+                        - area(boxes[a], boxes[a + 1], boxes[a + 2], boxes[a + 3])
+                        - area(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3]);
+                if (waste > worst) {
+                    worst = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+        }
+
+        Node sibling = new Node(node.leaf);
+        node.count = 0;
+        boolean[] assigned = new boolean[n];
+        assign(node, boxes, ids, children, seedA, assigned);
+        assign(sibling, boxes, ids, children, seedB, assigned);
+        int remaining = n - 2;
+
+        while (remaining > 0) {
+            // 某一组必须拿走剩下全部条目才能达到下限
+            Node forced = node.count + remaining <= MIN_ENTRIES ? node
+                    : sibling.count + remaining <= MIN_ENTRIES ? sibling : null;
+            if (forced != null) {
+                for (int i = 0; i < n; i++) {
+                    if (!assigned[i]) {
+                        assign(forced, boxes, ids, children, i, assigned);
+                    }
+                }
+                break;
+            }
+            double[] boundsA = node.bounds();
+            double[] boundsB = sibling.bounds();
+            int next = -1;
+            double nextA = 0;
+            double nextB = 0;
+            double maxPreference = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                if (assigned[i]) {
+                    continue;
+                }
+                double dA = enlargement(boundsA, boxes, i * 4);
+                double dB = enlargement(boundsB, boxes, i * 4);
+                double preference = Math.abs(dA - dB);
+                if (preference > maxPreference) {
+                    maxPreference = preference;
+                    next = i;
+                    nextA = dA;
+                    nextB = dB;
+                }
+            }
+            Node target;
+            if (nextA != nextB) {
+                target = nextA < nextB ? node : sibling;
+            } else {
+                double areaA = area(boundsA[0], boundsA[1], boundsA[2], boundsA[3]);
+                double areaB = area(boundsB[0], boundsB[1], boundsB[2], boundsB[3]);
+                target = areaA != areaB ? (areaA < areaB ? node : sibling)
+                        : (node.count <= sibling.count ? node : sibling);
+            }
+            assign(target, boxes, ids, children, next, assigned);
+            remaining--;
+        }
+        // 清掉原节点多余槽位的引用
+        if (!node.leaf) {
+            for (int i = node.count; i < n; i++) {
+                node.children[i] = null;
+            }
+        }
+        return sibling;
+    }
+
+    private static void assign(Node target, double[] boxes, int[] ids, Node[] children, int i, boolean[] assigned) {
+        int o = i * 4;
+        target.add(new double[]{boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3]},
+                ids == null ? -1 : ids[i], children == null ? null : children[i]);
+        assigned[i] = true;
+    }
+
+    private static double enlargement(double[] bounds, double[] boxes, int o) {
+        return area(Math.min(bounds[0], boxes[o]), Math.min(bounds[1], boxes[o + 1]),
+                Math.max(bounds[2], boxes[o + 2]), Math.max(bounds[3], boxes[o + 3]))
+                - area(bounds[0], bounds[1], bounds[2], bounds[3]);
+    }
+
+    private static double area(double minLon, double minLat, double maxLon, double maxLat) {
+        return (maxLon - minLon) * (maxLat - minLat);
+    }
+
+    /**
+     * 两点之间的大圆距离 (米)
+     */
+    public static double distance(double lon1, double lat1, double lon2, double lat2) {
+        return haversine(Math.toRadians(lon1), Math.toRadians(lat1), Math.toRadians(lon2), Math.toRadians(lat2));
+    }
+
+    /**
+     * 点 (弧度) 到经纬度矩形 (度) 的最短大圆距离 (米)
+     * 点的经度落在矩形经度范围内时，最近点在同一经线上；否则最近点在较近的一条经线边上，
+     * 沿经线 cos d = A·cos(φ' - θ)，取 θ 夹到矩形纬度范围内即为最近纬度
+     */
+    private static double distance(double lon, double lat, double minLon, double minLat, double maxLon,
+                                   double maxLat) {
+        double lonDeg = Math.toDegrees(lon);
+        double latDeg = Math.toDegrees(lat);
+        if (lonDeg >= minLon && lonDeg <= maxLon) {
+            if (latDeg < minLat) {
+                return (Math.toRadians(minLat) - lat) * EARTH_RADIUS;
+            }
+            if (latDeg > maxLat) {
+                return (lat - Math.toRadians(maxLat)) * EARTH_RADIUS;
+            }
+            return 0;
+        }
+        return Math.min(distanceToMeridian(lon, lat, minLon, minLat, maxLat),
+                distanceToMeridian(lon, lat, maxLon, minLat, maxLat));
+    }
+
+    private static double distanceToMeridian(double lon, double lat, double edgeLon, double minLat, double maxLat) {
+        double edge = Math.toRadians(edgeLon);
+        double theta = Math.atan2(Math.sin(lat), Math.cos(lat) * Math.cos(edge - lon));
+        double foot = Math.max(Math.toRadians(minLat), Math.min(Math.toRadians(maxLat), theta));
+        return haversine(lon, lat, edge, foot);
+    }
+
+    private static double haversine(double lon1, double lat1, double lon2, double lat2) {
+        double sinLat = Math.sin((lat2 - lat1) / 2);
+        double sinLon = Math.sin((lon2 - lon1) / 2);
+        double h = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    /**
+     * 距离查询结果
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Neighbor {
+
+        /**
+         * 条目编号
+         */
+        private final int id;
+
+        /**
+         * 到查询点的距离 (米)，点落在矩形内时为 0
+         */
+        private final double distance;
+    }
+
+    private static class Pending implements Comparable<Pending> {
+        final double distance;
+        final Node node;
+        final int id;
+
+        Pending(double distance, Node node, int id) {
+            this.distance = distance;
+            this.node = node;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Pending o) {
+            return Double.compare(distance, o.distance);
+        }
+    }
+
+    /**
+     * 树节点，多留一个槽位容纳分裂前的溢出条目
+     */
+    private static class Node {
+        final boolean leaf;
+        final double[] boxes = new double[(MAX_ENTRIES + 1) * 4];
+        final int[] ids;
+        final Node[] children;
+        int count;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+            this.ids = leaf ? new int[MAX_ENTRIES + 1] : null;
+            this.children = leaf ? null : new Node[MAX_ENTRIES + 1];
+        }
+
+        void add(double[] box, int id, Node child) {
+            setBox(count, box);
+            if (leaf) {
+                ids[count] = id;
+            } else {
+                children[count] = child;
+            }
+            count++;
+        }
+
+        void setBox(int i, double[] box) {
+            System.arraycopy(box, 0, boxes, i * 4, 4);
+        }
+
+        double[] bounds() {
+            double[] b = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                    Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+            for (int i = 0; i < count; i++) {
+                int o = i * 4;
+                b[0] = Math.min(b[0], boxes[o]);
+                b[1] = Math.min(b[1], boxes[o + 1]);
+                b[2] = Math.max(b[2], boxes[o + 2]);
+                b[3] = Math.max(b[3], boxes[o + 3]);
+            }
+            return b;
+        }
+    }
+}
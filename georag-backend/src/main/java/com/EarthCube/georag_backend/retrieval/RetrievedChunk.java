@@ -0,0 +1,39 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 检索命中的文档片段
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RetrievedChunk {
+
+    /**
+     * 片段 id
+     */
+    private String chunkId;
+
+    /**
+     * 所属文档 id
+     */
+    private String docId;
+
+    /**
+     * 所在页码
+     */
+    private Integer page;
+
+    /**
+     * 片段正文
+     */
+    private String content;
+
+    /**
+     * 相关度分数，越大越相关
+     */
+    private double score;
+}
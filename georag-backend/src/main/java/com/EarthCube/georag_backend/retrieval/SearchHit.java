@@ -0,0 +1,27 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 索引查询结果
+ */
+@Data
+@AllArgsConstructor
+public class SearchHit {
+
+    /**
+     * 索引内部节点编号
+     */
+    private int node;
+
+    /**
+     * 业务标识 (文档片段 ID)
+     */
+    private String label;
+
+    /**
+     * 相似度分数，越大越相似
+     */
+    private float score;
+}
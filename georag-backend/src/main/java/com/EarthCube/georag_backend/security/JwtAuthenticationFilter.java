@@ -1,5 +1,7 @@
 package com.EarthCube.georag_backend.security;
 
+import com.EarthCube.georag_backend.common.context.UserContext;
+import com.EarthCube.georag_backend.service.impl.UserDetailsServiceImpl;
 import com.EarthCube.georag_backend.util.JwtUtil;
 import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
@@ -11,7 +13,6 @@ import lombok.extern.slf4j.Slf4j; // 推荐加上日志
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -25,7 +26,7 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService; // Spring Security 的标准接口
+    private final UserDetailsServiceImpl userDetailsService; // 按用户 ID 加载 (带本地缓存)
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -38,23 +39,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             // 2. 如果 Token 存在
             if (StringUtils.hasText(token)) {
 
-                // 3. 解析 Token (这里会利用你的 util 验签)
+                // 3. 解析 Token (这里会利用你的 util 验签，同一 Token 只验签一次，之后走缓存)
                 // 注意：如果 Token 过期或签名不对，parseToken 会直接抛出 JwtException 异常
                 Claims claims = jwtUtil.parseToken(token);
 
-                // 4. 根据你的 createToken 逻辑，用户名存在 "username" 这个 claim 里
-                String username = claims.get("username", String.class);
-
-                // 如果你想获取 userId，可以调用 claims.getSubject();
+                // 4. 根据你的 createToken 逻辑，userId 存在 subject 里
+                String userId = claims.getSubject();
 
                 // 5. 如果解析成功且当前上下文未认证
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-                    // 6. 加载数据库中的用户信息
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    // 6. 加载用户信息 (本地缓存命中时不查数据库)，禁用 / 注销的账号不予认证
+                    UserDetails userDetails = userDetailsService.loadUserById(userId);
 
-                    // 7. 再次校验过期时间 (虽然 parseToken 实际上已经校验过了，但为了稳健可以保留)
-                    if (!jwtUtil.isTokenExpired(token)) {
+                    // 7. 过期时间已在 parseToken 中校验 (缓存条目也在 exp 时刻失效)，无需再解析一次
+                    if (userDetails.isEnabled()) {
 
                         // 8. 构建认证对象
                         UsernamePasswordAuthenticationToken authentication =
@@ -62,8 +61,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
                         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                        // 9. 放入 SecurityContext，表示“已登录”
+                        // 9. 放入 SecurityContext，表示“已登录”；同时写入 UserContext 供业务层使用
                         SecurityContextHolder.getContext().setAuthentication(authentication);
+                        UserContext.setUserId(userId);
+                    } else {
+                        log.warn("账号不可用, 拒绝认证: User {}", userId);
                     }
                 }
             }
@@ -73,8 +75,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             log.error("Token鉴权失败: {}", e.getMessage());
         }
 
-        // 10. 放行，进入下一个过滤器
-        filterChain.doFilter(request, response);
+        // 10. 放行，进入下一个过滤器；请求结束后务必清理线程变量，防止线程复用导致的数据混淆
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            UserContext.removeUserId();
+        }
     }
 
     /**
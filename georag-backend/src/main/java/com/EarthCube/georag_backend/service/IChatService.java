@@ -1,13 +1,15 @@
 package com.EarthCube.georag_backend.service;
 
+import com.EarthCube.georag_backend.common.result.CursorResult;
 import com.EarthCube.georag_backend.dto.chat.*;
 import com.EarthCube.georag_backend.vo.chat.ChatMessageVO;
 import com.EarthCube.georag_backend.vo.chat.ChatSessionVO;
 import com.EarthCube.georag_backend.common.result.PageResult; // 假设你有通用的分页返回类，如果没有可以用 IPage<ChatSessionVO>
+import com.EarthCube.georag_backend.vo.chat.ChatStreamVO;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
-
-import java.util.List;
+import reactor.core.publisher.Flux;
 
 public interface IChatService {
 
@@ -34,10 +36,16 @@ public interface IChatService {
     /**
      * 获取会话历史消息 (游标分页)
      */
-    List<ChatMessageVO> getSessionMessages(String sessionId, ChatMessageQueryDTO queryDTO);
+    CursorResult<ChatMessageVO> getSessionMessages(String sessionId, ChatMessageQueryDTO queryDTO);
 
     /**
      * 发送消息并获取流式响应 (核心)
      */
     SseEmitter sendMsg(ChatSendDTO dto);
+
+    /**
+     * 发送消息并获取流式响应 (全链路响应式版本)
+     * 阻塞的持久化操作在独立的有界调度器上执行
+     */
+    Flux<ServerSentEvent<ChatStreamVO>> streamMsg(ChatSendDTO dto);
 }
\ No newline at end of file
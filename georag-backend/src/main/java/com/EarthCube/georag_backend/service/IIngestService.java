@@ -0,0 +1,25 @@
+package com.EarthCube.georag_backend.service;
+
+import com.EarthCube.georag_backend.dto.ingest.IngestUploadDTO;
+import com.EarthCube.georag_backend.vo.ingest.IngestJobVO;
+
+import java.io.InputStream;
+
+public interface IIngestService {
+
+    /**
+     * 提交文档入库任务
+     * 文件内容先落到本地临时文件并上传 MinIO，随后在后台流式切分、向量化、写库并加入检索索引
+     * 同时进行的任务数达到上限时直接拒绝
+     *
+     * @param body        文件内容 (请求体)
+     * @param contentType 文件类型，可为空
+     * @return 任务的初始进度
+     */
+    IngestJobVO submit(IngestUploadDTO dto, InputStream body, String contentType);
+
+    /**
+     * 查询当前用户的入库任务进度
+     */
+    IngestJobVO getJob(String jobId);
+}
@@ -0,0 +1,50 @@
+package com.EarthCube.georag_backend.service;
+
+import com.EarthCube.georag_backend.entity.DocChunk;
+import com.EarthCube.georag_backend.retrieval.GeoRegion;
+import com.EarthCube.georag_backend.retrieval.RetrievedChunk;
+import com.EarthCube.georag_backend.vo.retrieval.GeoChunkVO;
+
+import java.util.List;
+
+public interface IRetrievalService {
+
+    /**
+     * 是否开启对话前检索
+     */
+    boolean isEnabled();
+
+    /**
+     * 检索与问题最相关的文档片段，按相关度降序 (开启全文检索时为向量与 BM25 的融合排名)
+     * 未开启或索引为空时返回空列表
+     */
+    List<RetrievedChunk> retrieve(String query);
+
+    /**
+     * 在空间范围内检索与问题最相关的文档片段
+     * 先用空间索引取出范围内的候选，再只对候选做向量打分；范围内没有片段时返回空列表
+     *
+     * @param region 空间范围，为 null 时等同于 retrieve(query)
+     */
+    List<RetrievedChunk> retrieve(String query, GeoRegion region);
+
+    /**
+     * 纯空间查询：矩形内的片段，或按到中心点的距离升序
+     *
+     * @param limit 返回条数上限
+     */
+    List<GeoChunkVO> searchRegion(GeoRegion region, int limit);
+
+    /**
+     * 把已落库的文档片段及其向量加入索引，带空间范围的片段同时加入空间索引
+     *
+     * @param chunks  文档片段 (id 必须已分配)
+     * @param vectors 与 chunks 一一对应的向量
+     */
+    void index(List<DocChunk> chunks, List<float[]> vectors);
+
+    /**
+     * 立即写入索引快照
+     */
+    void snapshot();
+}
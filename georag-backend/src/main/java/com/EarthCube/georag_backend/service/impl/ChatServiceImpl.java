@@ -3,31 +3,58 @@ package com.EarthCube.georag_backend.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import com.EarthCube.georag_backend.common.context.UserContext;
+import com.EarthCube.georag_backend.common.exception.AiUnavailableException;
 import com.EarthCube.georag_backend.common.exception.BusinessException;
+import com.EarthCube.georag_backend.common.exception.ValidateException;
+import com.EarthCube.georag_backend.common.result.CursorResult;
+import com.EarthCube.georag_backend.component.AiCircuitBreaker;
 import com.EarthCube.georag_backend.component.AiModelClient;
+import com.EarthCube.georag_backend.component.ChatContextAssembler;
+import com.EarthCube.georag_backend.component.ChatContextCache;
+import com.EarthCube.georag_backend.component.ChatMessageJournal;
+import com.EarthCube.georag_backend.component.ChatResponseCache;
+import com.EarthCube.georag_backend.component.ChatStreamExecutor;
+import com.EarthCube.georag_backend.component.ChatStreamMetrics;
+import com.EarthCube.georag_backend.component.ChatSummarizer;
+import com.EarthCube.georag_backend.component.TokenCoalescer;
+import com.EarthCube.georag_backend.constant.ChatConstants;
 import com.EarthCube.georag_backend.dto.chat.*;
 import com.EarthCube.georag_backend.entity.ChatMessage;
 import com.EarthCube.georag_backend.entity.ChatSession;
 import com.EarthCube.georag_backend.mapper.ChatMessageMapper;
 import com.EarthCube.georag_backend.mapper.ChatSessionMapper;
+import com.EarthCube.georag_backend.retrieval.GeoRegion;
+import com.EarthCube.georag_backend.retrieval.RetrievedChunk;
 import com.EarthCube.georag_backend.service.IChatService;
+import com.EarthCube.georag_backend.service.IRetrievalService;
 import com.EarthCube.georag_backend.util.RedisUtil;
 import com.EarthCube.georag_backend.vo.chat.ChatMessageVO;
 import com.EarthCube.georag_backend.vo.chat.ChatSessionVO;
 import com.EarthCube.georag_backend.vo.chat.ChatStreamVO;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -43,16 +70,57 @@ public class ChatServiceImpl implements IChatService {
     @Autowired
     private RedisUtil redisUtil;
 
+    // Redis 前的会话上下文本地缓存
+    @Autowired
+    private ChatContextCache chatContextCache;
+
+    // 按 Token 预算组装上下文
+    @Autowired
+    private ChatContextAssembler chatContextAssembler;
+
+    // 滑出上下文窗口的消息在后台合并为会话摘要
+    @Autowired
+    private ChatSummarizer chatSummarizer;
+
     @Autowired
     private AiModelClient aiModelClient;
 
+    // 消息异步批量落库 (用户消息与 AI 回复都先进日志，再批量写库)
+    @Autowired
+    private ChatMessageJournal chatMessageJournal;
+
+    // 专门用于 SSE 推送的有界执行器 (含并发名额控制)
+    @Autowired
+    private ChatStreamExecutor chatStreamExecutor;
+
+    @Autowired
+    private TokenCoalescer tokenCoalescer;
+
+    // 首字延迟、Token 间隔、耗时等流式指标
+    @Autowired
+    private ChatStreamMetrics chatStreamMetrics;
+
+    @Autowired
+    private ChatResponseCache chatResponseCache;
+
+    @Autowired
+    private IRetrievalService retrievalService;
+
+    // AI 服务熔断 / 舱壁：不可用时在落库之前快速失败
+    @Autowired
+    private AiCircuitBreaker aiCircuitBreaker;
+
+    // 响应式链路中执行阻塞持久化 (MyBatis / Redis) 的有界调度器
+    @Autowired
+    private Scheduler chatPersistScheduler;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
-    private static final int MAX_CONTEXT_COUNT = 20; // 只保留最近20轮对话
-    private static final long CONTEXT_TTL = 1800;    // 30分钟无操作清除缓存
+    private static final int MAX_PAGE_SIZE = 100;    // 历史消息单页上限
 
-    // 专门用于 SSE 推送的线程池
-    private final ExecutorService sseExecutor = Executors.newCachedThreadPool();
+    // 消息排序键: (create_time, id)
+    private static final Comparator<ChatMessage> MESSAGE_ORDER =
+            Comparator.comparing(ChatMessage::getCreateTime).thenComparing(ChatMessage::getId);
 
     private String getCurrentUserId() {
         String userIdStr = UserContext.getUserId();
@@ -65,13 +133,17 @@ public class ChatServiceImpl implements IChatService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public String createSession(ChatSessionCreateDTO dto) {
-        String userId = getCurrentUserId();
+        return createSession(getCurrentUserId(), dto);
+    }
+
+    private String createSession(String userId, ChatSessionCreateDTO dto) {
         ChatSession session = new ChatSession();
         session.setUserId(userId);
         session.setTitle(StrUtil.isBlank(dto.getTitle()) ? "新对话" : dto.getTitle());
         session.setMetaInfo(dto.getMetaInfo());
         session.setStatus(1);
         chatSessionMapper.insert(session);
+        redisUtil.del(ChatConstants.REDIS_SESSION_COUNT_KEY + userId);
         return session.getId();
     }
 
@@ -79,6 +151,10 @@ public class ChatServiceImpl implements IChatService {
     public Page<ChatSessionVO> getSessionList(ChatSessionQueryDTO queryDTO) {
         String userId = getCurrentUserId();
         Page<ChatSession> page = new Page<>(queryDTO.getCurrent(), queryDTO.getSize());
+        // 总数策略：客户端不需要时跳过；无关键词时走缓存计数；有关键词时由分页插件 count
+        boolean needCount = !Boolean.FALSE.equals(queryDTO.getSearchCount());
+        boolean cachedCount = needCount && StrUtil.isBlank(queryDTO.getKeyword());
+        page.setSearchCount(needCount && !cachedCount);
         LambdaQueryWrapper<ChatSession> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(ChatSession::getUserId, userId);
         wrapper.eq(ChatSession::getStatus, 1);
@@ -87,6 +163,9 @@ public class ChatServiceImpl implements IChatService {
         }
         wrapper.orderByDesc(ChatSession::getUpdateTime);
         chatSessionMapper.selectPage(page, wrapper);
+        if (cachedCount) {
+            page.setTotal(countUserSessions(userId));
+        }
         Page<ChatSessionVO> resultPage = new Page<>();
         BeanUtil.copyProperties(page, resultPage, "records");
         List<ChatSessionVO> voList = page.getRecords().stream().map(session -> {
@@ -98,6 +177,22 @@ public class ChatServiceImpl implements IChatService {
         return resultPage;
     }
 
+    /**
+     * 用户正常会话总数 (Redis 缓存，会话新增 / 删除时失效)
+     */
+    private long countUserSessions(String userId) {
+        String cacheKey = ChatConstants.REDIS_SESSION_COUNT_KEY + userId;
+        Object cached = redisUtil.get(cacheKey);
+        if (cached instanceof Number) {
+            return ((Number) cached).longValue();
+        }
+        Long count = chatSessionMapper.selectCount(new LambdaQueryWrapper<ChatSession>()
+                .eq(ChatSession::getUserId, userId)
+                .eq(ChatSession::getStatus, 1));
+        redisUtil.set(cacheKey, count, ChatConstants.SESSION_COUNT_TTL);
+        return count;
+    }
+
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void updateSession(String sessionId, ChatSessionUpdateDTO dto) {
@@ -116,43 +211,310 @@ public class ChatServiceImpl implements IChatService {
         update.setId(sessionId);
         update.setStatus(2);
         chatSessionMapper.updateById(update);
+        redisUtil.del(ChatConstants.REDIS_SESSION_COUNT_KEY + getCurrentUserId());
     }
 
+    /**
+     * 基于 (create_time, id) 的键集分页，任意深度的翻页代价相同
+     * 依赖复合索引 idx_chat_message_session_time_id (见 ChatMessage)
+     */
     @Override
-    public List<ChatMessageVO> getSessionMessages(String sessionId, ChatMessageQueryDTO queryDTO) {
+    public CursorResult<ChatMessageVO> getSessionMessages(String sessionId, ChatMessageQueryDTO queryDTO) {
         checkSessionOwner(sessionId);
+        int limit = queryDTO.getLimit() == null ? 20 : Math.max(1, Math.min(queryDTO.getLimit(), MAX_PAGE_SIZE));
+        boolean older = !"after".equalsIgnoreCase(queryDTO.getDirection());
+        ChatMessage cursor = StrUtil.isBlank(queryDTO.getCursor()) ? null : decodeCursor(queryDTO.getCursor());
+
         LambdaQueryWrapper<ChatMessage> wrapper = new LambdaQueryWrapper<>();
         wrapper.eq(ChatMessage::getSessionId, sessionId);
-        wrapper.orderByAsc(ChatMessage::getCreateTime);
-        if (queryDTO.getLimit() != null) {
-            wrapper.last("LIMIT " + queryDTO.getLimit());
+        if (cursor != null) {
+            wrapper.apply(older ? "(create_time, id) < ({0}, {1})" : "(create_time, id) > ({0}, {1})",
+                    cursor.getCreateTime(), cursor.getId());
         }
-        List<ChatMessage> messages = chatMessageMapper.selectList(wrapper);
-        return messages.stream().map(msg -> {
+        if (older) {
+            wrapper.orderByDesc(ChatMessage::getCreateTime, ChatMessage::getId);
+        } else {
+            wrapper.orderByAsc(ChatMessage::getCreateTime, ChatMessage::getId);
+        }
+        // 多取一条用于判断是否还有下一页
+        wrapper.last("LIMIT " + (limit + 1));
+
+        // 数据库结果统一转为升序，再合并尚未落库的消息并按游标过滤
+        List<ChatMessage> dbMsgs = new ArrayList<>(chatMessageMapper.selectList(wrapper));
+        dbMsgs.sort(MESSAGE_ORDER);
+        List<ChatMessage> messages = mergePending(sessionId, dbMsgs);
+        if (cursor != null) {
+            messages = messages.stream()
+                    .filter(msg -> older
+                            ? MESSAGE_ORDER.compare(msg, cursor) < 0
+                            : MESSAGE_ORDER.compare(msg, cursor) > 0)
+                    .collect(Collectors.toList());
+        }
+
+        // 向前翻取离游标最近的 limit 条，即升序列表的末尾；向后翻取开头
+        // 是否还有更多只看数据库：多取的那一条存在，或被截掉的是已落库的消息
+        boolean hasMore = dbMsgs.size() > limit;
+        if (messages.size() > limit) {
+            List<ChatMessage> dropped = older
+                    ? messages.subList(0, messages.size() - limit)
+                    : messages.subList(limit, messages.size());
+            Set<String> dbIds = dbMsgs.stream().map(ChatMessage::getId).collect(Collectors.toSet());
+            hasMore = hasMore || dropped.stream().anyMatch(msg -> dbIds.contains(msg.getId()));
+            messages = older
+                    ? messages.subList(messages.size() - limit, messages.size())
+                    : messages.subList(0, limit);
+        }
+
+        List<ChatMessageVO> voList = messages.stream().map(msg -> {
             ChatMessageVO vo = new ChatMessageVO();
             BeanUtil.copyProperties(msg, vo);
             return vo;
         }).collect(Collectors.toList());
+
+        String prevCursor = messages.isEmpty() ? null : encodeCursor(messages.get(0));
+        String nextCursor = messages.isEmpty() ? null : encodeCursor(messages.get(messages.size() - 1));
+        return new CursorResult<>(voList, prevCursor, nextCursor, hasMore);
     }
 
     @Override
     public SseEmitter sendMsg(ChatSendDTO dto) {
         String userId = getCurrentUserId();
+
+        // 0. AI 服务熔断或调用已满、且回复缓存不可能命中时直接返回错误帧，不落库
+        //    可能命中时继续，命中则照常回放；未命中时由 AI 调用的熔断保护返回 AI_UNAVAILABLE
+        if (!aiCircuitBreaker.isCallPermitted() && !chatResponseCache.mayHit(dto.getContent())) {
+            aiCircuitBreaker.recordRejected();
+            log.warn("AI 服务不可用, 拒绝请求: User {}", userId);
+            return errorEmitter(dto.getSessionId(), "AI_UNAVAILABLE", "AI 服务暂时不可用，请稍后重试");
+        }
+
+        // 申请流式名额 (在任何落库操作之前)：排队是异步的，请求线程立即返回 emitter；
+        // 繁忙时推送繁忙帧，拿到名额后在工作线程上准备本轮对话并发起订阅
+        SseEmitter emitter = new SseEmitter(0L);
+        AtomicReference<Disposable> waiting = new AtomicReference<>();
+        AtomicReference<Disposable> subscription = new AtomicReference<>();
+        AtomicReference<ChatStreamExecutor.StreamPermit> held = new AtomicReference<>();
+        AtomicBoolean closed = new AtomicBoolean(false);
+
+        // 连接结束 (正常完成/超时/客户端断开) 时退出排队、取消上游订阅，并归还名额
+        Runnable cleanup = () -> {
+            closed.set(true);
+            for (AtomicReference<Disposable> ref : List.of(waiting, subscription)) {
+                Disposable disposable = ref.get();
+                if (disposable != null) {
+                    disposable.dispose();
+                }
+            }
+            ChatStreamExecutor.StreamPermit permit = held.get();
+            if (permit != null) {
+                permit.release();
+            }
+        };
+        emitter.onCompletion(cleanup);
+        emitter.onTimeout(cleanup);
+        emitter.onError(e -> cleanup.run());
+
+        // 名额可能在归还名额的线程上转交，在请求线程上先包装好 UserContext
+        Runnable start = UserContext.wrap(() -> doSendMsg(dto, userId, emitter, held.get(), subscription));
+        waiting.set(chatStreamExecutor.acquire()
+                .switchIfEmpty(Mono.fromRunnable(() -> {
+                    log.warn("流式对话名额已满, 拒绝请求: User {}", userId);
+                    sendSseError(emitter, dto.getSessionId(), "SERVER_BUSY", "服务器繁忙，请稍后重试");
+                    emitter.complete();
+                }))
+                .subscribe(permit -> {
+                    held.set(permit);
+                    if (closed.get()) {
+                        permit.release();
+                        return;
+                    }
+                    chatStreamExecutor.execute(start);
+                }));
+        return emitter;
+    }
+
+    private void doSendMsg(ChatSendDTO dto, String userId, SseEmitter emitter,
+                           ChatStreamExecutor.StreamPermit permit, AtomicReference<Disposable> subscription) {
+        // 1~4. 处理会话、准备上下文、落库用户消息与 AI 占位
+        ChatTurn turn;
+        try {
+            turn = prepareTurn(dto, userId);
+        } catch (BusinessException | ValidateException e) {
+            String error = e instanceof BusinessException ? "BUSINESS_ERROR" : "VALIDATE_ERROR";
+            sendSseError(emitter, dto.getSessionId(), error, e.getMessage());
+            emitter.complete();
+            return;
+        } catch (RuntimeException e) {
+            log.error("准备对话失败, User {}", userId, e);
+            emitter.completeWithError(e);
+            return;
+        }
+
+        String aiMsgId = turn.getAiMsgId();
+        String finalSessionId = turn.getSessionId();
+        boolean finalIsNewSession = turn.isNewSession();
+        List<Map<String, String>> historyContext = turn.getHistory();
+
+        // 5. 发起订阅 (已在工作线程上)
+        try {
+            // A. 发送首帧
+            if (finalIsNewSession) {
+                sendSseChunk(emitter, finalSessionId, aiMsgId, "");
+            }
+
+            StringBuilder fullResponse = new StringBuilder();
+
+            // B. 调用封装好的 Client
+            // 上游逐字返回，合并后再推送，减少帧数
+            // 命中回复缓存时直接回放，不调用 AI 服务
+            subscription.set(tokenCoalescer.coalesce(chatResponseCache.stream(
+                            dto.getContent(), historyContext, turn.getSummary(), turn.getReferences(), turn.getModel(),
+                            () -> chatStreamMetrics.instrument(
+                                    aiModelClient.streamChat(dto.getContent(), historyContext, turn.getSummary(),
+                                            turn.getReferences()),
+                                    turn.getModel())))
+                    .doOnNext(token -> {
+//                            log.info("【探针】Java收到Python Token: {}", token);
+                        // --- 收到一段文本：推给前端 ---
+                        sendSseChunk(emitter, finalSessionId, aiMsgId, token);
+                        fullResponse.append(token);
+                    })
+                    .doOnError(e -> {
+                        // --- 发生错误 ---
+                        if (e instanceof AiUnavailableException) {
+                            // 熔断 / 舱壁拒绝：未发起调用，推送错误帧后正常关闭
+                            log.warn("AI 服务不可用, SessionId: {}", finalSessionId);
+                            sendSseError(emitter, finalSessionId, "AI_UNAVAILABLE", e.getMessage());
+                            emitter.complete();
+                            return;
+                        }
+                        log.error("AI 服务调用异常, SessionId: {}", finalSessionId, e);
+                        emitter.completeWithError(e);
+                    })
+                    .doOnComplete(() -> {
+                        // --- 流结束：收尾工作 ---
+                        String finalContent = fullResponse.toString();
+
+                        // 1. 发送结束标志
+                        sendSseEnd(emitter, finalSessionId, aiMsgId);
+
+                        // 2. 写入完整回复并更新 Redis 上下文
+                        completeTurn(turn, finalContent);
+
+                        // 3. 关闭连接
+                        emitter.complete();
+                    })
+                    .doFinally(signal -> permit.release())
+                    // 捕获推送线程上的 UserContext，回调切到 IO 线程时自动恢复
+                    .contextCapture()
+                    .subscribe()); // 触发订阅
+
+        } catch (Exception e) {
+            log.error("SSE 线程启动失败", e);
+            permit.release();
+            emitter.completeWithError(e);
+        }
+    }
+
+    @Override
+    public Flux<ServerSentEvent<ChatStreamVO>> streamMsg(ChatSendDTO dto) {
+        // 名额检查前先取出 userId；链路中的 UserContext 由 contextCapture 自动传播
+        String userId = getCurrentUserId();
+
+        // 熔断时先看回复缓存是否可能命中，可能命中时继续 (同 sendMsg)
+        if (!aiCircuitBreaker.isCallPermitted() && !chatResponseCache.mayHit(dto.getContent())) {
+            aiCircuitBreaker.recordRejected();
+            log.warn("AI 服务不可用, 拒绝请求: User {}", userId);
+            return Flux.just(toSse(ChatStreamVO.error(dto.getSessionId(), "AI_UNAVAILABLE", "AI 服务暂时不可用，请稍后重试")));
+        }
+
+        // 异步排队申请名额，不占用请求线程；繁忙时只返回繁忙帧
+        return chatStreamExecutor.acquire()
+                .flatMapMany(permit -> streamTurn(dto, userId).doFinally(signal -> permit.release()))
+                .switchIfEmpty(Flux.defer(() -> {
+                    log.warn("流式对话名额已满, 拒绝请求: User {}", userId);
+                    return Flux.just(toSse(ChatStreamVO.error(dto.getSessionId(), "SERVER_BUSY", "服务器繁忙，请稍后重试")));
+                }))
+                // 在订阅线程 (请求线程) 上捕获 UserContext，切换到持久化 / IO 线程后自动恢复
+                .contextCapture();
+    }
+
+    /**
+     * 响应式链路的一轮对话 (已持有名额)
+     */
+    private Flux<ServerSentEvent<ChatStreamVO>> streamTurn(ChatSendDTO dto, String userId) {
+        // 阻塞的 MyBatis / Redis 操作统一放到有界的持久化调度器上执行，不占用 IO 线程
+        return Mono.fromCallable(() -> prepareTurn(dto, userId))
+                .subscribeOn(chatPersistScheduler)
+                .flatMapMany(turn -> {
+                    String sessionId = turn.getSessionId();
+                    String aiMsgId = turn.getAiMsgId();
+                    StringBuilder fullResponse = new StringBuilder();
+
+                    Flux<ServerSentEvent<ChatStreamVO>> head = turn.isNewSession()
+                            ? Flux.just(toSse(ChatStreamVO.chunk(sessionId, aiMsgId, "")))
+                            : Flux.empty();
+
+                    Flux<ServerSentEvent<ChatStreamVO>> body = tokenCoalescer
+                            .coalesce(chatResponseCache.stream(
+                                    dto.getContent(), turn.getHistory(), turn.getSummary(), turn.getReferences(),
+                                    turn.getModel(),
+                                    () -> chatStreamMetrics.instrument(
+                                            aiModelClient.streamChat(dto.getContent(), turn.getHistory(),
+                                                    turn.getSummary(), turn.getReferences()),
+                                            turn.getModel())))
+                            .doOnNext(fullResponse::append)
+                            .map(token -> toSse(ChatStreamVO.chunk(sessionId, aiMsgId, token)));
+
+                    return head.concatWith(body)
+                            .concatWith(Mono.fromCallable(() -> toSse(ChatStreamVO.end(sessionId, aiMsgId))))
+                            // 正常结束时异步落库，不阻塞结束帧
+                            .doOnComplete(() -> chatPersistScheduler.schedule(
+                                    () -> completeTurn(turn, fullResponse.toString())))
+                            .onErrorResume(AiUnavailableException.class, e -> {
+                                log.warn("AI 服务不可用, SessionId: {}", sessionId);
+                                return Mono.just(toSse(ChatStreamVO.error(sessionId, "AI_UNAVAILABLE", e.getMessage())));
+                            })
+                            .onErrorResume(e -> {
+                                log.error("AI 服务调用异常, SessionId: {}", sessionId, e);
+                                return Mono.just(toSse(ChatStreamVO.error(sessionId, "AI_ERROR", "AI 服务异常，请稍后重试")));
+                            });
+                })
+                .onErrorResume(BusinessException.class,
+                        e -> Flux.just(toSse(ChatStreamVO.error(dto.getSessionId(), "BUSINESS_ERROR", e.getMessage()))))
+                .onErrorResume(ValidateException.class,
+                        e -> Flux.just(toSse(ChatStreamVO.error(dto.getSessionId(), "VALIDATE_ERROR", e.getMessage()))));
+    }
+
+    /**
+     * 准备一轮对话：处理会话、读取上下文、落库用户消息与 AI 占位消息
+     * 全部为阻塞调用，userId 需显式传入 (可能运行在非请求线程上)
+     */
+    private ChatTurn prepareTurn(ChatSendDTO dto, String userId) {
         String sessionId = dto.getSessionId();
 
+        // 空间范围格式错误时在落库之前拒绝
+        GeoRegion region = GeoRegion.fromOptions(dto.getOptions());
+
         // 1. 处理会话
         boolean isNewSession = false;
+        String summary = null;
         if (StrUtil.isBlank(sessionId)) {
             ChatSessionCreateDTO createDTO = new ChatSessionCreateDTO();
             createDTO.setTitle(StrUtil.sub(dto.getContent(), 0, 10));
-            sessionId = createSession(createDTO);
+            sessionId = createSession(userId, createDTO);
             isNewSession = true;
         } else {
-            checkSessionOwner(sessionId);
+            summary = chatSummarizer.getSummary(checkSessionOwner(sessionId, userId));
         }
 
-        // 2. 准备上下文 (Redis 优先策略)
-        List<Map<String, String>> historyContext = getContext(sessionId);
+        // 2. 检索知识库参考资料 (未开启或检索失败时为空，不影响对话)，带空间范围时只在范围内检索
+        List<String> references = retrieveReferences(dto.getContent(), region);
+
+        // 准备上下文 (Redis 优先策略)，按模型的 Token 预算 (扣除摘要与参考资料占用) 选取最近的消息
+        String model = dto.getOptions() == null ? null : StrUtil.toStringOrNull(dto.getOptions().get("model"));
+        List<Map<String, String>> historyContext =
+                chatContextAssembler.assemble(getContext(sessionId), dto.getContent(), model, summary, references);
 
         // 3. 落库用户消息
         ChatMessage userMsg = new ChatMessage();
@@ -165,81 +527,113 @@ public class ChatServiceImpl implements IChatService {
         else if (dto.getFile() != null && !dto.getFile().isEmpty()) userMsg.setCategory("text_file");
         else userMsg.setCategory("text");
 
-        chatMessageMapper.insert(userMsg);
+        // PostgreSQL 时间精度为微秒，这里先截断，保证游标与落库后的值一致
+        userMsg.setCreateTime(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
+        chatMessageJournal.append(userMsg);
 
         // 将用户新消息同步写入 Redis 上下文
         appendContext(sessionId, "user", dto.getContent());
 
-        // 4. 预保存 AI 回复 (占位)
+        // 4. 预分配 AI 回复的 ID 与时间 (不再插入占位行，回复完成后整行写入)
+        String aiMsgId = IdWorker.get32UUID();
+        LocalDateTime aiCreateTime = userMsg.getCreateTime().plusNanos(1000);
+
+        return new ChatTurn(sessionId, aiMsgId, aiCreateTime, isNewSession, historyContext, summary, references,
+                model);
+    }
+
+    /**
+     * 检索知识库，返回参考资料正文
+     */
+    private List<String> retrieveReferences(String query, GeoRegion region) {
+        if (!retrievalService.isEnabled()) {
+            return Collections.emptyList();
+        }
+        try {
+            return retrievalService.retrieve(query, region).stream()
+                    .map(RetrievedChunk::getContent)
+                    .collect(Collectors.toList());
+        } catch (Exception e) {
+            log.warn("知识库检索失败, 本轮不附带参考资料: {}", e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * 一轮对话结束：写入完整回复并追加 Redis 上下文
+     */
+    private void completeTurn(ChatTurn turn, String content) {
         ChatMessage aiMsg = new ChatMessage();
-        aiMsg.setSessionId(sessionId);
+        aiMsg.setId(turn.getAiMsgId());
+        aiMsg.setSessionId(turn.getSessionId());
         aiMsg.setRole("assistant");
-        aiMsg.setContext("");
+        aiMsg.setContext(content);
         aiMsg.setCategory("text");
-        chatMessageMapper.insert(aiMsg);
+        aiMsg.setCreateTime(turn.getAiCreateTime());
+        chatMessageJournal.append(aiMsg);
 
-        String aiMsgId = aiMsg.getId();
-        String finalSessionId = sessionId;
-        boolean finalIsNewSession = isNewSession;
-
-        // 5. 建立 SSE 连接
-        SseEmitter emitter = new SseEmitter(0L);
+        appendContext(turn.getSessionId(), "assistant", content);
+    }
 
-        // 6. 异步执行流式交互
-        sseExecutor.execute(() -> {
-            try {
-                // A. 发送首帧
-                if (finalIsNewSession) {
-                    sendSseChunk(emitter, finalSessionId, aiMsgId, "");
-                }
+    /**
+     * 合并尚未落库的消息 (写后即读)，按创建时间升序去重
+     */
+    private List<ChatMessage> mergePending(String sessionId, List<ChatMessage> dbMsgs) {
+        List<ChatMessage> pending = chatMessageJournal.getPending(sessionId);
+        if (pending.isEmpty()) {
+            return dbMsgs;
+        }
+        Map<String, ChatMessage> merged = new LinkedHashMap<>();
+        dbMsgs.forEach(msg -> merged.put(msg.getId(), msg));
+        pending.forEach(msg -> merged.putIfAbsent(msg.getId(), msg));
+        List<ChatMessage> list = new ArrayList<>(merged.values());
+        list.sort(MESSAGE_ORDER);
+        return list;
+    }
 
-                StringBuilder fullResponse = new StringBuilder();
+    /**
+     * 游标编码：Base64URL("createTime|id")
+     */
+    private String encodeCursor(ChatMessage msg) {
+        String raw = msg.getCreateTime() + "|" + msg.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
 
-                // B. 调用封装好的 Client
-                aiModelClient.streamChat(dto.getContent(), historyContext)
-                        .doOnNext(token -> {
-//                            log.info("【探针】Java收到Python Token: {}", token);
-                            // --- 收到一个字：推给前端 ---
-                            sendSseChunk(emitter, finalSessionId, aiMsgId, token);
-                            fullResponse.append(token);
-                        })
-                        .doOnError(e -> {
-                            // --- 发生错误 ---
-                            log.error("AI 服务调用异常, SessionId: {}", finalSessionId, e);
-                            emitter.completeWithError(e);
-                        })
-                        .doOnComplete(() -> {
-                            // --- 流结束：收尾工作 ---
-                            String finalContent = fullResponse.toString();
-
-                            // 1. 发送结束标志
-                            sendSseEnd(emitter, finalSessionId, aiMsgId);
-
-                            // 2. 更新 DB (完整回复)
-                            ChatMessage updateMsg = new ChatMessage();
-                            updateMsg.setId(aiMsgId);
-                            updateMsg.setContext(finalContent);
-                            chatMessageMapper.updateById(updateMsg);
-
-                            // 3. 更新 Redis (追加上下文)
-                            appendContext(finalSessionId, "assistant", finalContent);
-
-                            // 4. 关闭连接
-                            emitter.complete();
-                        })
-                        .subscribe(); // 触发订阅
+    /**
+     * 游标解码，返回只包含 createTime 和 id 的消息对象
+     */
+    private ChatMessage decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            ChatMessage key = new ChatMessage();
+            key.setCreateTime(LocalDateTime.parse(raw.substring(0, sep)));
+            key.setId(raw.substring(sep + 1));
+            return key;
+        } catch (RuntimeException e) {
+            throw new ValidateException("无效的游标");
+        }
+    }
 
-            } catch (Exception e) {
-                log.error("SSE 线程启动失败", e);
-                emitter.completeWithError(e);
-            }
-        });
+    private ServerSentEvent<ChatStreamVO> toSse(ChatStreamVO vo) {
+        return ServerSentEvent.builder(vo).build();
+    }
 
+    /**
+     * 服务繁忙 / AI 服务不可用时直接返回一帧错误并关闭连接
+     */
+    private SseEmitter errorEmitter(String sessionId, String error, String text) {
+        SseEmitter emitter = new SseEmitter(0L);
+        sendSseError(emitter, sessionId, error, text);
+        emitter.complete();
         return emitter;
     }
 
     private void checkSessionOwner(String sessionId) {
-        String userId = getCurrentUserId();
+        checkSessionOwner(sessionId, getCurrentUserId());
+    }
+
+    private ChatSession checkSessionOwner(String sessionId, String userId) {
         ChatSession session = chatSessionMapper.selectById(sessionId);
 
         if (session == null) {
@@ -252,6 +646,7 @@ public class ChatServiceImpl implements IChatService {
             log.warn("越权访问警告: User {} 尝试访问 Session {}", userId, sessionId);
             throw new BusinessException("无权访问该会话");
         }
+        return session;
     }
 
     /**
@@ -276,13 +671,28 @@ public class ChatServiceImpl implements IChatService {
         }
     }
 
+    private void sendSseError(SseEmitter emitter, String sessionId, String error, String text) {
+        try {
+            emitter.send(ChatStreamVO.error(sessionId, error, text));
+        } catch (IOException e) {
+            log.warn("SSE 发送错误帧失败: {}", e.getMessage());
+        }
+    }
+
     /**
      * 获取上下文 (Cache-Aside)
+     * 本地缓存 -> Redis -> DB 逐级回源
      */
     private List<Map<String, String>> getContext(String sessionId) {
-        String cacheKey = "chat:context:" + sessionId;
+        List<Map<String, String>> nearContext = chatContextCache.get(sessionId);
+        if (nearContext != null) {
+            return nearContext;
+        }
+
+        String cacheKey = ChatConstants.REDIS_CONTEXT_KEY + sessionId;
 
-        List<Object> cachedList = redisUtil.lGet(cacheKey, 0, -1);
+        // 读取并续期在一个脚本中完成 (一次往返)
+        List<Object> cachedList = redisUtil.lGetAllAndExpire(cacheKey, ChatConstants.CONTEXT_TTL);
         List<Map<String, String>> context = new ArrayList<>();
 
         if (cachedList != null && !cachedList.isEmpty()) {
@@ -291,7 +701,7 @@ public class ChatServiceImpl implements IChatService {
                     context.add((Map<String, String>) obj);
                 }
             }
-            redisUtil.expire(cacheKey, CONTEXT_TTL);
+            chatContextCache.put(sessionId, context);
             return context;
         }
 
@@ -300,33 +710,66 @@ public class ChatServiceImpl implements IChatService {
         List<ChatMessage> dbMsgs = chatMessageMapper.selectList(
                 new LambdaQueryWrapper<ChatMessage>()
                         .eq(ChatMessage::getSessionId, sessionId)
-                        .orderByDesc(ChatMessage::getCreateTime)
-                        .last("LIMIT " + MAX_CONTEXT_COUNT)
+                        .orderByDesc(ChatMessage::getCreateTime, ChatMessage::getId)
+                        .last("LIMIT " + ChatConstants.MAX_CONTEXT_COUNT)
         );
 
         Collections.reverse(dbMsgs);
 
+        // 合并尚未落库的消息，再截取最近的 MAX_CONTEXT_COUNT 条
+        dbMsgs = mergePending(sessionId, dbMsgs);
+        if (dbMsgs.size() > ChatConstants.MAX_CONTEXT_COUNT) {
+            dbMsgs = dbMsgs.subList(dbMsgs.size() - ChatConstants.MAX_CONTEXT_COUNT, dbMsgs.size());
+        }
+
         for (ChatMessage msg : dbMsgs) {
-            Map<String, String> item = new HashMap<>();
-            item.put("role", msg.getRole());
-            item.put("content", msg.getContext());
-            context.add(item);
-            redisUtil.lSet(cacheKey, item);
+            context.add(chatContextAssembler.newEntry(msg.getRole(), msg.getContext()));
         }
 
+        // 整体写回 Redis：无论历史多长都只需一次往返
         if (!context.isEmpty()) {
-            redisUtil.expire(cacheKey, CONTEXT_TTL);
+            redisUtil.lReplaceAll(cacheKey, context, ChatConstants.MAX_CONTEXT_COUNT, ChatConstants.CONTEXT_TTL);
         }
+        chatContextCache.put(sessionId, context);
         return context;
     }
 
     private void appendContext(String sessionId, String role, String content) {
-        String cacheKey = "chat:context:" + sessionId;
-        Map<String, String> item = new HashMap<>();
-        item.put("role", role);
-        item.put("content", content);
-        redisUtil.lSet(cacheKey, item);
-        redisUtil.lTrim(cacheKey, MAX_CONTEXT_COUNT);
-        redisUtil.expire(cacheKey, CONTEXT_TTL);
+        String cacheKey = ChatConstants.REDIS_CONTEXT_KEY + sessionId;
+        Map<String, String> item = chatContextAssembler.newEntry(role, content);
+        if (!chatSummarizer.isEnabled()) {
+            // 追加 + 裁剪 + 续期原子执行 (一次往返)
+            redisUtil.lPushAllAndTrim(cacheKey, Collections.singletonList(item),
+                    ChatConstants.MAX_CONTEXT_COUNT, ChatConstants.CONTEXT_TTL);
+            chatContextCache.append(sessionId, item, ChatConstants.MAX_CONTEXT_COUNT);
+            return;
+        }
+
+        // 开启摘要时允许多出一批再统一淘汰，被淘汰的消息交给后台合并进摘要
+        List<Object> evicted = redisUtil.lPushAllAndEvict(cacheKey, Collections.singletonList(item),
+                ChatConstants.MAX_CONTEXT_COUNT, chatSummarizer.getBatchSize(), ChatConstants.CONTEXT_TTL);
+        boolean trimmed = evicted != null && !evicted.isEmpty();
+        if (trimmed) {
+            chatSummarizer.fold(sessionId, evicted);
+        }
+
+        // 同步更新本地副本 (与 Redis 保持相同的淘汰节奏)，并通知其他节点失效
+        chatContextCache.append(sessionId, item, trimmed ? ChatConstants.MAX_CONTEXT_COUNT : Integer.MAX_VALUE);
+    }
+
+    /**
+     * 一轮对话在落库阶段产生的数据
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class ChatTurn {
+        private final String sessionId;
+        private final String aiMsgId;
+        private final LocalDateTime aiCreateTime;
+        private final boolean newSession;
+        private final List<Map<String, String>> history;
+        private final String summary;
+        private final List<String> references;
+        private final String model;
     }
 }
\ No newline at end of file
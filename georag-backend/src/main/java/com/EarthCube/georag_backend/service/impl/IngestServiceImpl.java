@@ -0,0 +1,395 @@
+package com.EarthCube.georag_backend.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import com.EarthCube.georag_backend.common.context.UserContext;
+import com.EarthCube.georag_backend.common.exception.BusinessException;
+import com.EarthCube.georag_backend.common.exception.ValidateException;
+import com.EarthCube.georag_backend.component.DocChunkCopyWriter;
+import com.EarthCube.georag_backend.component.EmbeddingClient;
+import com.EarthCube.georag_backend.config.IngestConfig;
+import com.EarthCube.georag_backend.dto.ingest.IngestUploadDTO;
+import com.EarthCube.georag_backend.entity.DocChunk;
+import com.EarthCube.georag_backend.ingest.DocumentReader;
+import com.EarthCube.georag_backend.ingest.IngestJob;
+import com.EarthCube.georag_backend.ingest.TextChunker;
+import com.EarthCube.georag_backend.mapper.DocChunkMapper;
+import com.EarthCube.georag_backend.retrieval.GeoRegion;
+import com.EarthCube.georag_backend.service.IIngestService;
+import com.EarthCube.georag_backend.service.IRetrievalService;
+import com.EarthCube.georag_backend.util.MinioUtil;
+import com.EarthCube.georag_backend.vo.ingest.IngestJobVO;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 文档入库服务
+ * 上传的文件先流式写入本地临时文件 (不经过 multipart，不整体载入内存)，原件上传 MinIO 后在后台入库：
+ * 1. 读取：按页提取文本并切分为片段，由下游的请求量驱动，读取最多领先 queue-capacity 个片段
+ * 2. 向量化：按 embed-batch-size 分批调用 Embedding 服务，最多 embed-parallelism 批同时进行，结果保持原顺序
+ * 3. 写库：按 copy-batch-size 用 COPY 写入 doc_chunk，随后加入检索索引
+ * 各阶段之间是有界缓冲，下游变慢时上游随之停下，内存占用与文件大小无关
+ * 任务失败时删除该文档 (docId) 已写入 doc_chunk 的片段，不支持断点续传，重新上传即可 (新任务使用新的 docId)；
+ * 已加入检索索引的条目无法删除，回表时找不到片段会被跳过
+ */
+@Slf4j
+@Service
+public class IngestServiceImpl implements IIngestService {
+
+    @Autowired
+    private IngestConfig config;
+
+    @Autowired
+    private MinioUtil minioUtil;
+
+    @Autowired
+    private EmbeddingClient embeddingClient;
+
+    @Autowired
+    private DocChunkCopyWriter copyWriter;
+
+    @Autowired
+    private DocChunkMapper docChunkMapper;
+
+    @Autowired
+    private IRetrievalService retrievalService;
+
+    @Autowired
+    private Scheduler ingestScheduler;
+
+    private Semaphore permits;
+
+    private Cache<String, IngestJob> jobs;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(config.getMaxConcurrentJobs());
+        jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(config.getJobTtl()))
+                .build();
+    }
+
+    @Override
+    public IngestJobVO submit(IngestUploadDTO dto, InputStream body, String contentType) {
+        String userId = UserContext.getUserId();
+        if (userId == null) {
+            throw new BusinessException("用户未登录");
+        }
+        Double[] bbox = resolveBbox(dto);
+        if (!permits.tryAcquire()) {
+            throw new BusinessException(4291, "正在进行的入库任务过多，请稍后重试");
+        }
+        Path file = null;
+        boolean started = false;
+        try {
+            file = receive(body);
+            String sourceObject = minioUtil.uploadDocument(config.getBucketName(), file, dto.getFileName(), contentType);
+            IngestJob job = new IngestJob(IdWorker.get32UUID(), IdWorker.get32UUID(), userId,
+                    dto.getFileName(), Files.size(file));
+            job.setSourceObject(sourceObject);
+            jobs.put(job.getJobId(), job);
+            start(job, file, dto.getTitle(), bbox);
+            started = true;
+            log.info("入库任务已提交, jobId: {}, 文件: {}, 大小: {}", job.getJobId(), job.getFileName(), job.getFileSize());
+            return toVO(job);
+        } catch (IOException e) {
+            log.error("接收上传文件失败: {}", e.getMessage(), e);
+            throw new BusinessException("接收上传文件失败");
+        } finally {
+            if (!started) {
+                deleteQuietly(file);
+                permits.release();
+            }
+        }
+    }
+
+    @Override
+    public IngestJobVO getJob(String jobId) {
+        IngestJob job = jobs.getIfPresent(jobId);
+        if (job == null || !Objects.equals(job.getUserId(), UserContext.getUserId())) {
+            throw new BusinessException("入库任务不存在或已过期");
+        }
+        return toVO(job);
+    }
+
+    /**
+     * 文档的空间范围：bbox 或点位 (min = max)，都没有时为 null
+     * 片段的外包矩形不跨 180° 经线，这里不接受 minLon > maxLon
+     */
+    private Double[] resolveBbox(IngestUploadDTO dto) {
+        if (dto.getBbox() != null) {
+            GeoRegion region = GeoRegion.of(dto.getBbox(), null, null, null, null);
+            if (region.getMinLon() > region.getMaxLon()) {
+                throw new ValidateException("文档的 bbox 不能跨 180° 经线");
+            }
+            return new Double[]{region.getMinLon(), region.getMinLat(), region.getMaxLon(), region.getMaxLat()};
+        }
+        if (dto.getLon() == null && dto.getLat() == null) {
+            return null;
+        }
+        GeoRegion point = GeoRegion.of(null, dto.getLon(), dto.getLat(), null, null);
+        return new Double[]{point.getLon(), point.getLat(), point.getLon(), point.getLat()};
+    }
+
+    /**
+     * 请求体写入临时文件，超过大小上限时中止
+     */
+    private Path receive(InputStream body) throws IOException {
+        Path dir = Paths.get(config.getTempDir());
+        Files.createDirectories(dir);
+        Path file = Files.createTempFile(dir, "upload-", ".tmp");
+        long total = 0;
+        try (OutputStream out = Files.newOutputStream(file)) {
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = body.read(buf)) != -1) {
+                total += n;
+                if (total > config.getMaxFileSize()) {
+                    throw new ValidateException("文件大小超过上限 " + config.getMaxFileSize() + " 字节");
+                }
+                out.write(buf, 0, n);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+        if (total == 0) {
+            deleteQuietly(file);
+            throw new ValidateException("文件内容为空");
+        }
+        return file;
+    }
+
+    /**
+     * 启动后台入库流水线，结束 (成功或失败) 时删除临时文件并释放任务名额
+     */
+    private void start(IngestJob job, Path file, String title, Double[] bbox) {
+        int embedBatch = Math.max(1, config.getEmbedBatchSize());
+        int copyGroups = Math.max(1, config.getCopyBatchSize() / embedBatch);
+
+        Flux.<DocChunk, ChunkSource>generate(
+                        () -> new ChunkSource(job, file, title, bbox),
+                        (source, sink) -> {
+                            try {
+                                DocChunk chunk = source.next();
+                                if (chunk == null) {
+                                    sink.complete();
+                                } else {
+                                    job.getChunksProduced().incrementAndGet();
+                                    sink.next(chunk);
+                                }
+                            } catch (IOException e) {
+                                sink.error(e);
+                            }
+                            return source;
+                        },
+                        ChunkSource::close)
+                .subscribeOn(ingestScheduler)
+                // 读取与向量化之间的有界缓冲
+                .publishOn(ingestScheduler, Math.max(1, config.getQueueCapacity()))
+                .buffer(embedBatch)
+                .flatMapSequential(batch -> Mono.fromCallable(() -> embed(job, batch)).subscribeOn(ingestScheduler),
+                        Math.max(1, config.getEmbedParallelism()), 1)
+                .buffer(copyGroups)
+                .concatMap(groups -> Mono.fromCallable(() -> write(job, groups)).subscribeOn(ingestScheduler), 1)
+                .doFinally(signal -> {
+                    deleteQuietly(file);
+                    permits.release();
+                })
+                .subscribe(
+                        count -> {
+                        },
+                        e -> {
+                            log.error("入库任务失败, jobId: {}, 已入库片段: {}", job.getJobId(), job.getChunksIndexed().get(), e);
+                            discard(job, StrUtil.blankToDefault(e.getMessage(), e.getClass().getSimpleName()));
+                        },
+                        () -> {
+                            // 立即写快照，不等定时任务：快照前崩溃时这批片段需要在启动时重新向量化
+                            try {
+                                retrievalService.snapshot();
+                            } catch (RuntimeException e) {
+                                log.error("入库后写入检索索引快照失败, jobId: {}", job.getJobId(), e);
+                            }
+                            job.complete();
+                            log.info("入库任务完成, jobId: {}, 片段数: {}", job.getJobId(), job.getChunksIndexed().get());
+                        });
+    }
+
+    private EmbeddedBatch embed(IngestJob job, List<DocChunk> chunks) {
+        List<String> texts = new ArrayList<>(chunks.size());
+        for (DocChunk chunk : chunks) {
+            texts.add(chunk.getContent());
+        }
+        List<float[]> vectors = embeddingClient.embedAll(texts, config.getEmbeddingTimeout());
+        job.getChunksEmbedded().addAndGet(chunks.size());
+        return new EmbeddedBatch(chunks, vectors);
+    }
+
+    /**
+     * 一组批次合并为一次 COPY，落库后再加入索引 (索引命中后按 id 回表)
+     */
+    private Integer write(IngestJob job, List<EmbeddedBatch> groups) throws Exception {
+        List<DocChunk> chunks = new ArrayList<>();
+        List<float[]> vectors = new ArrayList<>();
+        for (EmbeddedBatch group : groups) {
+            chunks.addAll(group.chunks);
+            vectors.addAll(group.vectors);
+        }
+        // 与 discard 互斥：任务已失败 (上游出错后仍在执行的写入) 时不再写入
+        synchronized (job) {
+            if (job.getStatus() != IngestJob.Status.RUNNING) {
+                return 0;
+            }
+            copyWriter.write(chunks);
+            retrievalService.index(chunks, vectors);
+        }
+        job.getChunksIndexed().addAndGet(chunks.size());
+        return chunks.size();
+    }
+
+    /**
+     * 任务失败：标记失败并删除该文档已写入的片段
+     * 持有 job 锁，等正在进行的写入结束后再删除，之后的写入看到失败状态直接跳过
+     */
+    private void discard(IngestJob job, String error) {
+        synchronized (job) {
+            job.fail(error);
+            try {
+                int removed = docChunkMapper.delete(new LambdaQueryWrapper<DocChunk>()
+                        .eq(DocChunk::getDocId, job.getDocId()));
+                log.info("入库任务失败, 已删除文档 {} 的 {} 个片段", job.getDocId(), removed);
+            } catch (Exception e) {
+                log.error("删除失败任务的片段失败, docId: {}", job.getDocId(), e);
+            }
+        }
+    }
+
+    private IngestJobVO toVO(IngestJob job) {
+        IngestJobVO vo = new IngestJobVO();
+        vo.setJobId(job.getJobId());
+        vo.setDocId(job.getDocId());
+        vo.setFileName(job.getFileName());
+        vo.setFileSize(job.getFileSize());
+        vo.setSourceObject(job.getSourceObject());
+        vo.setStatus(job.getStatus().name());
+        vo.setError(job.getError());
+        vo.setTotalPages(job.getTotalPages());
+        vo.setPagesRead(job.getPagesRead().get());
+        vo.setChunksProduced(job.getChunksProduced().get());
+        vo.setChunksEmbedded(job.getChunksEmbedded().get());
+        vo.setChunksIndexed(job.getChunksIndexed().get());
+        vo.setStartTime(job.getStartTime());
+        vo.setEndTime(job.getEndTime());
+        return vo;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除临时文件失败: {}", file, e);
+        }
+    }
+
+    /**
+     * 已向量化的一批片段
+     */
+    @AllArgsConstructor
+    private static class EmbeddedBatch {
+        private final List<DocChunk> chunks;
+        private final List<float[]> vectors;
+    }
+
+    /**
+     * 读取阶段的状态：文档读取器 + 切分器，每次取出一个片段
+     */
+    private class ChunkSource {
+        private final IngestJob job;
+        private final String title;
+        private final Double[] bbox;
+        private final DocumentReader reader;
+        private final TextChunker chunker = new TextChunker(config.getChunkSize(), config.getChunkOverlap());
+        private int seq;
+        private boolean exhausted;
+
+        ChunkSource(IngestJob job, Path file, String title, Double[] bbox) throws IOException {
+            this.job = job;
+            this.title = title;
+            this.bbox = bbox;
+            this.reader = DocumentReader.open(file, job.getFileName());
+            job.setTotalPages(reader.totalPages());
+        }
+
+        DocChunk next() throws IOException {
+            while (true) {
+                TextChunker.Piece piece = exhausted ? chunker.finish() : chunker.poll();
+                if (piece != null) {
+                    return toChunk(piece);
+                }
+                if (exhausted) {
+                    return null;
+                }
+                DocumentReader.PageText page = reader.next();
+                if (page == null) {
+                    exhausted = true;
+                    continue;
+                }
+                if (page.getPage() != null) {
+                    job.getPagesRead().incrementAndGet();
+                }
+                chunker.append(page.getText(), page.getPage());
+            }
+        }
+
+        private DocChunk toChunk(TextChunker.Piece piece) {
+            Map<String, Object> metaInfo = new HashMap<>();
+            metaInfo.put("fileName", job.getFileName());
+            if (StrUtil.isNotBlank(title)) {
+                metaInfo.put("title", title);
+            }
+            metaInfo.put("source", config.getBucketName() + "/" + job.getSourceObject());
+            return DocChunk.builder()
+                    .id(IdWorker.get32UUID())
+                    .docId(job.getDocId())
+                    .seq(seq++)
+                    .page(piece.getPage())
+                    .content(piece.getText())
+                    .metaInfo(metaInfo)
+                    .minLon(bbox == null ? null : bbox[0])
+                    .minLat(bbox == null ? null : bbox[1])
+                    .maxLon(bbox == null ? null : bbox[2])
+                    .maxLat(bbox == null ? null : bbox[3])
+                    .build();
+        }
+
+        void close() {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                log.warn("关闭文档读取器失败, jobId: {}", job.getJobId(), e);
+            }
+        }
+    }
+}
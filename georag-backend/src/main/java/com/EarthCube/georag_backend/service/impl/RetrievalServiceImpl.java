@@ -0,0 +1,464 @@
+package com.EarthCube.georag_backend.service.impl;
+
+import com.EarthCube.georag_backend.component.EmbeddingClient;
+import com.EarthCube.georag_backend.config.RetrievalConfig;
+import com.EarthCube.georag_backend.entity.DocChunk;
+import com.EarthCube.georag_backend.mapper.DocChunkMapper;
+import com.EarthCube.georag_backend.retrieval.Bm25Index;
+import com.EarthCube.georag_backend.retrieval.GeoRegion;
+import com.EarthCube.georag_backend.retrieval.HnswIndex;
+import com.EarthCube.georag_backend.retrieval.RTree;
+import com.EarthCube.georag_backend.retrieval.RetrievedChunk;
+import com.EarthCube.georag_backend.retrieval.SearchHit;
+import com.EarthCube.georag_backend.service.IRetrievalService;
+import com.EarthCube.georag_backend.vo.retrieval.GeoChunkVO;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+/**
+ * 知识库检索服务
+ * 进程内 HNSW 向量索引 (向量文件内存映射)，命中后按片段 id 回表取正文
+ * 索引在有新增时定时写快照，停机时再写一次；启动时从快照恢复，
+ * 再把 doc_chunk 中已落库但不在快照里的片段 (快照后崩溃丢失的部分) 在后台重新向量化加入索引
+ * 带空间范围的片段另建 R-tree (以向量节点编号为条目)，启动时从 doc_chunk 重建；
+ * 带空间范围的检索先取范围内的候选节点，再只对候选做向量打分
+ * 片段正文同时写入 BM25 倒排索引 (文档号即节点编号)，检索时与向量结果按倒数排名融合 (RRF)，
+ * 弥补向量检索对地层名、矿物代号、地名等精确字面匹配的不足
+ */
+@Slf4j
+@Service
+public class RetrievalServiceImpl implements IRetrievalService, DisposableBean {
+
+    @Autowired
+    private RetrievalConfig config;
+
+    @Autowired
+    private EmbeddingClient embeddingClient;
+
+    @Autowired
+    private DocChunkMapper docChunkMapper;
+
+    private HnswIndex index;
+
+    private final RTree spatialIndex = new RTree();
+
+    private Bm25Index lexicalIndex;
+
+    // 上次快照后是否有新增
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+
+    private ScheduledExecutorService snapshotter;
+
+    @PostConstruct
+    public void init() throws IOException {
+        HnswIndex.Metric metric = "inner-product".equalsIgnoreCase(config.getMetric())
+                ? HnswIndex.Metric.INNER_PRODUCT : HnswIndex.Metric.COSINE;
+        index = HnswIndex.open(Paths.get(config.getDir()), config.getDimension(), metric,
+                config.getM(), config.getEfConstruction());
+        // 倒排索引以向量索引为准，快照比向量索引新的部分丢弃，旧的部分在下面补齐
+        lexicalIndex = Bm25Index.open(Paths.get(config.getDir()), index.size(), config.getBm25K1(),
+                config.getBm25B(), config.getLexicalFlushDocs(), config.getLexicalMaxSegments());
+        // 纯空间查询 (/api/v1/retrieval/geo) 不受 retrieval.enabled 控制，空间索引总是重建
+        loadSpatialIndex();
+        if (isEnabled()) {
+            catchUpLexicalIndex();
+            // 需要调用 Embedding 服务，放到后台，不阻塞启动
+            Thread catchUp = new Thread(this::catchUpVectorIndex, "retrieval-catch-up");
+            catchUp.setDaemon(true);
+            catchUp.start();
+        }
+
+        long interval = config.getSnapshotInterval();
+        if (interval > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "retrieval-snapshot");
+                t.setDaemon(true);
+                return t;
+            });
+            snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(config.getEnabled());
+    }
+
+    @Override
+    public List<RetrievedChunk> retrieve(String query) {
+        return retrieve(query, null);
+    }
+
+    @Override
+    public List<RetrievedChunk> retrieve(String query, GeoRegion region) {
+        if (!isEnabled() || index.size() == 0 || query == null || query.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        // 先做空间预过滤，范围内没有片段时不必调用 Embedding
+        int[] candidates = null;
+        BitSet allowed = null;
+        if (region != null) {
+            candidates = spatialCandidates(region, Integer.MAX_VALUE);
+            if (candidates.length == 0) {
+                return Collections.emptyList();
+            }
+            allowed = new BitSet(index.size());
+            for (int node : candidates) {
+                allowed.set(node);
+            }
+        }
+
+        boolean hybrid = Boolean.TRUE.equals(config.getLexicalEnabled());
+        int depth = hybrid ? Math.max(config.getTopK(), config.getFusionDepth()) : config.getTopK();
+        List<SearchHit> vectorHits;
+        try {
+            vectorHits = vectorSearch(embeddingClient.embed(query), candidates, allowed, depth).stream()
+                    .filter(hit -> hit.getScore() >= config.getMinScore())
+                    .collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            if (!hybrid) {
+                throw e;
+            }
+            // Embedding 服务不可用时退化为纯全文检索
+            log.warn("向量检索失败, 仅使用全文检索: {}", e.getMessage());
+            vectorHits = Collections.emptyList();
+        }
+        if (!hybrid) {
+            return resolve(vectorHits);
+        }
+        IntPredicate filter = allowed == null ? null : allowed::get;
+        List<SearchHit> lexicalHits = lexicalIndex.search(query, depth, filter, config.getLexicalMinCoverage());
+        return resolve(fuse(vectorHits, lexicalHits));
+    }
+
+    @Override
+    public List<GeoChunkVO> searchRegion(GeoRegion region, int limit) {
+        List<RTree.Neighbor> neighbors;
+        if (region.getType() == GeoRegion.Type.BBOX) {
+            int[] nodes = spatialCandidates(region, limit);
+            neighbors = new ArrayList<>(nodes.length);
+            for (int node : nodes) {
+                neighbors.add(new RTree.Neighbor(node, -1));
+            }
+        } else {
+            neighbors = nearby(region, limit);
+        }
+        if (neighbors.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<String> ids = new ArrayList<>(neighbors.size());
+        for (RTree.Neighbor neighbor : neighbors) {
+            ids.add(index.label(neighbor.getId()));
+        }
+        Map<String, DocChunk> chunks = docChunkMapper.selectBatchIds(ids).stream()
+                .collect(Collectors.toMap(DocChunk::getId, Function.identity()));
+
+        List<GeoChunkVO> result = new ArrayList<>(neighbors.size());
+        for (int i = 0; i < neighbors.size(); i++) {
+            DocChunk chunk = chunks.get(ids.get(i));
+            if (chunk == null) {
+                continue;
+            }
+            GeoChunkVO vo = new GeoChunkVO();
+            vo.setChunkId(chunk.getId());
+            vo.setDocId(chunk.getDocId());
+            vo.setPage(chunk.getPage());
+            vo.setContent(chunk.getContent());
+            vo.setBbox(new Double[]{chunk.getMinLon(), chunk.getMinLat(), chunk.getMaxLon(), chunk.getMaxLat()});
+            double distance = neighbors.get(i).getDistance();
+            vo.setDistance(distance < 0 ? null : distance);
+            result.add(vo);
+        }
+        return result;
+    }
+
+    /**
+     * 串行执行，保证向量索引与倒排索引按相同的节点顺序写入
+     */
+    @Override
+    public synchronized void index(List<DocChunk> chunks, List<float[]> vectors) {
+        if (chunks.size() != vectors.size()) {
+            throw new IllegalArgumentException("片段数与向量数不一致");
+        }
+        try {
+            for (int i = 0; i < chunks.size(); i++) {
+                DocChunk chunk = chunks.get(i);
+                int node = index.add(chunk.getId(), vectors.get(i));
+                lexicalIndex.add(node, chunk.getContent());
+                addSpatial(node, chunk);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入向量索引失败", e);
+        } finally {
+            dirty.set(true);
+        }
+    }
+
+    @Override
+    public synchronized void snapshot() {
+        dirty.set(false);
+        try {
+            index.snapshot();
+            lexicalIndex.snapshot();
+            log.info("检索索引快照已写入, 节点数: {}", index.size());
+        } catch (IOException e) {
+            dirty.set(true);
+            throw new UncheckedIOException("写入检索索引快照失败", e);
+        }
+    }
+
+    /**
+     * 向量检索：不限范围时走 HNSW；有空间候选时，候选少则逐个打分，候选多则带过滤条件走 HNSW
+     */
+    private List<SearchHit> vectorSearch(float[] vector, int[] candidates, BitSet allowed, int k) {
+        if (candidates == null) {
+            return index.search(vector, k, Math.max(config.getEf(), k), null);
+        }
+        if (candidates.length <= config.getGeoBruteForceLimit()) {
+            return index.score(vector, candidates, k);
+        }
+        // 过滤越严格，图遍历时满足条件的节点越稀疏，按候选占比放大搜索宽度 (最多 10 倍)
+        long scaled = (long) config.getEf() * index.size() / candidates.length;
+        int ef = (int) Math.max(Math.max(config.getEf(), k), Math.min(scaled, config.getEf() * 10L));
+        return index.search(vector, k, ef, allowed::get);
+    }
+
+    /**
+     * 倒数排名融合：每一路按排名计 1 / (k + 排名)，累加后取前 top-k
+     * 只看排名不看原始分数，向量相似度与 BM25 分数不必归一化到同一尺度
+     */
+    private List<SearchHit> fuse(List<SearchHit> vectorHits, List<SearchHit> lexicalHits) {
+        Map<Integer, Float> fused = new LinkedHashMap<>();
+        for (List<SearchHit> hits : List.of(vectorHits, lexicalHits)) {
+            for (int rank = 0; rank < hits.size(); rank++) {
+                fused.merge(hits.get(rank).getNode(), 1f / (config.getRrfK() + rank + 1), Float::sum);
+            }
+        }
+        return fused.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Float>comparingByValue().reversed())
+                .limit(config.getTopK())
+                .map(e -> new SearchHit(e.getKey(), index.label(e.getKey()), e.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 空间范围内的候选节点 (最多 limit 个)
+     */
+    private int[] spatialCandidates(GeoRegion region, int limit) {
+        if (region.getType() != GeoRegion.Type.BBOX) {
+            return nearby(region, limit).stream().mapToInt(RTree.Neighbor::getId).toArray();
+        }
+        int[][] buffer = {new int[64]};
+        int[] count = {0};
+        spatialIndex.search(region.getMinLon(), region.getMinLat(), region.getMaxLon(), region.getMaxLat(), node -> {
+            if (count[0] >= limit) {
+                return;
+            }
+            if (count[0] == buffer[0].length) {
+                buffer[0] = Arrays.copyOf(buffer[0], count[0] * 2);
+            }
+            buffer[0][count[0]++] = node;
+        });
+        return Arrays.copyOf(buffer[0], count[0]);
+    }
+
+    /**
+     * 半径 / 最近邻查询，按距离升序
+     */
+    private List<RTree.Neighbor> nearby(GeoRegion region, int limit) {
+        if (region.getType() == GeoRegion.Type.RADIUS) {
+            return spatialIndex.within(region.getLon(), region.getLat(), region.getRadius(), limit);
+        }
+        int k = region.getK() == null ? config.getGeoNearestK() : region.getK();
+        return spatialIndex.nearest(region.getLon(), region.getLat(), Math.min(k, limit));
+    }
+
+    /**
+     * 片段带空间范围时加入空间索引，范围不完整或不合法时忽略
+     */
+    private void addSpatial(int node, DocChunk chunk) {
+        if (chunk.getMinLon() == null || chunk.getMinLat() == null
+                || chunk.getMaxLon() == null || chunk.getMaxLat() == null) {
+            return;
+        }
+        try {
+            spatialIndex.insert(node, chunk.getMinLon(), chunk.getMinLat(), chunk.getMaxLon(), chunk.getMaxLat());
+        } catch (IllegalArgumentException e) {
+            log.warn("片段 {} 的空间范围不合法, 不加入空间索引: {}", chunk.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 倒排索引快照比向量索引旧时 (两者快照之间停机)，从 doc_chunk 补齐缺少的节点
+     */
+    private void catchUpLexicalIndex() {
+        int from = lexicalIndex.maxDoc();
+        int to = index.size();
+        if (from >= to) {
+            return;
+        }
+        try {
+            for (int start = from; start < to; start += 500) {
+                int end = Math.min(to, start + 500);
+                List<String> ids = new ArrayList<>(end - start);
+                for (int node = start; node < end; node++) {
+                    ids.add(index.label(node));
+                }
+                Map<String, String> contents = new HashMap<>(ids.size() * 2);
+                for (DocChunk chunk : docChunkMapper.selectBatchIds(ids)) {
+                    contents.put(chunk.getId(), chunk.getContent());
+                }
+                for (int node = start; node < end; node++) {
+                    lexicalIndex.add(node, contents.get(ids.get(node - start)));
+                }
+            }
+            dirty.set(true);
+            log.info("倒排索引已补齐: 节点 {} ~ {}", from, to - 1);
+        } catch (Exception e) {
+            log.error("补齐倒排索引失败", e);
+        }
+    }
+
+    /**
+     * 向量索引快照后崩溃时，之后落库的片段不在索引中：找出这些片段，重新向量化后加入索引
+     * 失败时只记录日志，下次启动再补
+     */
+    private void catchUpVectorIndex() {
+        try {
+            Set<String> indexed = new HashSet<>(index.size() * 2);
+            for (int node = 0, size = index.size(); node < size; node++) {
+                indexed.add(index.label(node));
+            }
+            List<String> missing = docChunkMapper.selectObjs(new LambdaQueryWrapper<DocChunk>()
+                            .select(DocChunk::getId)
+                            .orderByAsc(DocChunk::getDocId, DocChunk::getSeq))
+                    .stream()
+                    .map(String::valueOf)
+                    .filter(id -> !indexed.contains(id))
+                    .collect(Collectors.toList());
+            if (missing.isEmpty()) {
+                return;
+            }
+            log.info("发现 {} 个已落库但不在向量索引中的片段, 开始补齐", missing.size());
+            int batchSize = Math.max(1, config.getCatchUpBatchSize());
+            for (int start = 0; start < missing.size(); start += batchSize) {
+                List<String> ids = missing.subList(start, Math.min(missing.size(), start + batchSize));
+                List<DocChunk> chunks = docChunkMapper.selectBatchIds(ids).stream()
+                        .filter(chunk -> chunk.getContent() != null)
+                        .collect(Collectors.toList());
+                if (chunks.isEmpty()) {
+                    continue;
+                }
+                List<float[]> vectors = embeddingClient.embedAll(
+                        chunks.stream().map(DocChunk::getContent).collect(Collectors.toList()),
+                        config.getCatchUpTimeout());
+                index(chunks, vectors);
+            }
+            snapshot();
+            log.info("向量索引已补齐, 节点数: {}", index.size());
+        } catch (Exception e) {
+            log.error("补齐向量索引失败, 下次启动时重试", e);
+        }
+    }
+
+    /**
+     * 启动时从 doc_chunk 重建空间索引，只处理已进入向量索引的片段
+     * 失败时只记录日志，检索仍可用，带空间范围的检索结果会偏少
+     */
+    private void loadSpatialIndex() {
+        int size = index.size();
+        if (size == 0) {
+            return;
+        }
+        try {
+            Map<String, Integer> nodes = new HashMap<>(size * 2);
+            for (int node = 0; node < size; node++) {
+                nodes.put(index.label(node), node);
+            }
+            List<DocChunk> located = docChunkMapper.selectList(new LambdaQueryWrapper<DocChunk>()
+                    .select(DocChunk::getId, DocChunk::getMinLon, DocChunk::getMinLat,
+                            DocChunk::getMaxLon, DocChunk::getMaxLat)
+                    .isNotNull(DocChunk::getMinLon));
+            for (DocChunk chunk : located) {
+                Integer node = nodes.get(chunk.getId());
+                if (node != null) {
+                    addSpatial(node, chunk);
+                }
+            }
+            log.info("空间索引已重建, 条目数: {}", spatialIndex.size());
+        } catch (Exception e) {
+            log.error("重建空间索引失败", e);
+        }
+    }
+
+    /**
+     * 回表取正文，并按总字数上限截断
+     */
+    private List<RetrievedChunk> resolve(List<SearchHit> kept) {
+        if (kept.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, DocChunk> chunks = docChunkMapper.selectBatchIds(
+                        kept.stream().map(SearchHit::getLabel).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(DocChunk::getId, Function.identity()));
+
+        List<RetrievedChunk> result = new ArrayList<>(kept.size());
+        int remaining = config.getMaxReferenceChars();
+        for (SearchHit hit : kept) {
+            DocChunk chunk = chunks.get(hit.getLabel());
+            if (chunk == null || chunk.getContent() == null) {
+                continue;
+            }
+            if (chunk.getContent().length() > remaining) {
+                break;
+            }
+            remaining -= chunk.getContent().length();
+            result.add(new RetrievedChunk(chunk.getId(), chunk.getDocId(), chunk.getPage(),
+                    chunk.getContent(), hit.getScore()));
+        }
+        return result;
+    }
+
+    private void snapshotQuietly() {
+        if (!dirty.get()) {
+            return;
+        }
+        try {
+            snapshot();
+        } catch (Exception e) {
+            log.error("定时写入向量索引快照失败", e);
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+            snapshotter.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        if (dirty.get()) {
+            snapshot();
+        }
+        lexicalIndex.close();
+        index.close();
+    }
+}
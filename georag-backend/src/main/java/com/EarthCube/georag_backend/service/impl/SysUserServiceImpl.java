@@ -6,6 +6,7 @@ import cn.hutool.core.util.StrUtil;
 import com.EarthCube.georag_backend.common.context.UserContext;
 import com.EarthCube.georag_backend.common.exception.BusinessException;
 import com.EarthCube.georag_backend.common.exception.ValidateException;
+import com.EarthCube.georag_backend.component.UserPrincipalCache;
 import com.EarthCube.georag_backend.constant.UserConstants;
 import com.EarthCube.georag_backend.dto.user.*;
 import com.EarthCube.georag_backend.entity.SysUser;
@@ -43,6 +44,9 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
     private MinioUtil minioUtil;
     @Autowired
     private EmailUtil emailUtil;
+    // 鉴权用的登录用户信息缓存，用户状态 / 密码 / 资料变更后需失效
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
 
     @Override
     public void sendRegisterCode(SendRegisterCodeDTO dto) {
@@ -169,6 +173,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
             updateUser.setId(userId);
             updateUser.setAvatar(avatarUrl);
             this.updateById(updateUser);
+            userPrincipalCache.invalidate(userId);
 
             return new AvatarUploadVO(avatarUrl);
 
@@ -221,6 +226,7 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
 
         // 只有非空字段会被更新 (MyBatis Plus 默认策略)
         this.updateById(user);
+        userPrincipalCache.invalidate(userId);
     }
 
     @Override
@@ -242,5 +248,6 @@ public class SysUserServiceImpl extends ServiceImpl<SysUserMapper, SysUser> impl
         // 2. 逻辑删除 (状态改为注销)
         user.setStatus(UserStatusEnum.DELETED);
         this.updateById(user);
+        userPrincipalCache.invalidate(userId);
     }
 }
\ No newline at end of file
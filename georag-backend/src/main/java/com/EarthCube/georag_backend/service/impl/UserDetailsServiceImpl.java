@@ -1,9 +1,13 @@
 package com.EarthCube.georag_backend.service.impl;
 
+import com.EarthCube.georag_backend.component.UserPrincipalCache;
+import com.EarthCube.georag_backend.config.IngestConfig;
 import com.EarthCube.georag_backend.entity.SysUser;
+import com.EarthCube.georag_backend.enums.UserStatusEnum;
 import com.EarthCube.georag_backend.mapper.SysUserMapper;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -11,6 +15,7 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Spring Security 专用适配器
@@ -23,6 +28,11 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     // 直接注入 Mapper，或者注入 SysUserService 都可以
     private final SysUserMapper sysUserMapper;
 
+    // 按用户 ID 缓存的登录用户信息
+    private final UserPrincipalCache userPrincipalCache;
+
+    private final IngestConfig ingestConfig;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         // 1. 去数据库查用户 (复用你现有的逻辑)
@@ -34,19 +44,41 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             throw new UsernameNotFoundException("用户不存在: " + username);
         }
 
+        return toUserDetails(sysUser);
+    }
+
+    /**
+     * 根据用户 ID (JWT subject) 加载用户，优先读本地缓存
+     * 鉴权过滤器走这里，缓存命中时不查询数据库
+     */
+    public UserDetails loadUserById(String userId) throws UsernameNotFoundException {
+        return userPrincipalCache.get(userId, id -> {
+            SysUser sysUser = sysUserMapper.selectById(id);
+            if (sysUser == null) {
+                throw new UsernameNotFoundException("用户不存在: " + id);
+            }
+            return toUserDetails(sysUser);
+        });
+    }
+
+    private UserDetails toUserDetails(SysUser sysUser) {
         // 2. 把你的 SysUser "翻译" 成 Spring Security 的 UserDetails
         return User.builder()
                 .username(sysUser.getUsername())
                 .password(sysUser.getPassword()) // 注意：这里必须是加密后的密码 (BCrypt)
 
                 // 这里处理账号状态，如果你的 StatusEnum 不一样，需要转换一下
-                .disabled(false) // 是否被禁用？可以根据 sysUser.getStatus() 判断
+                // 禁用 / 注销的账号视为不可用 (状态变更时会主动失效缓存)
+                .disabled(UserStatusEnum.BANNED.equals(sysUser.getStatus())
+                        || UserStatusEnum.DELETED.equals(sysUser.getStatus()))
                 .accountExpired(false)
                 .credentialsExpired(false)
                 .accountLocked(false)
 
-                // 权限列表 (暂时给空，以后可以加 ROLE_USER, ROLE_ADMIN)
-                .authorities(Collections.emptyList())
+                // 权限列表：ingest.admin-usernames 中的用户为知识库管理员 (ROLE_ADMIN)，其余为空
+                .authorities(ingestConfig.getAdminUsernames().contains(sysUser.getUsername())
+                        ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+                        : Collections.emptyList())
                 .build();
     }
 }
\ No newline at end of file
@@ -1,6 +1,10 @@
 package com.EarthCube.georag_backend.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Value;
@@ -8,8 +12,11 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
-import java.util.function.Function;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.annotation.PostConstruct;
 
@@ -25,11 +32,21 @@ public class JwtUtil {
     @Value("${jwt.expiration:604800000}")
     private long expiration;
 
+    // 已验签 Claims 缓存的条数上限
+    @Value("${jwt.claims-cache-size:10000}")
+    private long claimsCacheSize;
+
+    // 签名密钥与解析器只在启动时构建一次 (均为线程安全)
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    // 已验签的 Claims: Token 摘要 -> Claims，在 Token 的 exp 时刻过期
+    private Cache<String, Claims> claimsCache;
+
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        return signingKey;
     }
 
-
     /**
      * 生成 Token
      * @param userId 用户ID
@@ -48,22 +65,13 @@ public class JwtUtil {
 
     /**
      * 解析 Token 获取 Claims
+     * 同一个 Token 只验签一次，之后直到过期都从缓存读取；验签失败不缓存，异常照常抛出
+     * 已过期的 Token 解析时抛出 ExpiredJwtException，缓存条目也在 exp 时刻失效，调用方无需再单独校验过期
      * @param token JWT 字符串
      * @return Claims 载荷
      */
     public Claims parseToken(String token) {
-    return Jwts.parser()
-            .verifyWith(getSigningKey())
-            .build()
-            .parseSignedClaims(token)
-            .getPayload();
-    }
-
-    /**
-     * 校验 Token 是否过期
-     */
-    public boolean isTokenExpired(String token) {
-        return parseToken(token).getExpiration().before(new Date());
+        return claimsCache.get(digest(token), k -> jwtParser.parseSignedClaims(token).getPayload());
     }
 
     @PostConstruct
@@ -73,5 +81,46 @@ public class JwtUtil {
             throw new IllegalStateException("JWT secret must be at least 32 bytes for HS256; current length=" +
                     (secret == null ? 0 : secret.getBytes(StandardCharsets.UTF_8).length));
         }
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        jwtParser = Jwts.parser().verifyWith(signingKey).build();
+        claimsCache = Caffeine.newBuilder()
+                .maximumSize(claimsCacheSize)
+                .expireAfter(new ClaimsExpiry())
+                .build();
+    }
+
+    /**
+     * Token 摘要 (SHA-256)，缓存中不保存 Token 原文
+     */
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 缓存条目在 Token 的 exp 时刻过期；没有 exp 时按默认有效期
+     */
+    private class ClaimsExpiry implements Expiry<String, Claims> {
+
+        @Override
+        public long expireAfterCreate(String key, Claims claims, long currentTime) {
+            Date exp = claims.getExpiration();
+            long ttl = exp == null ? expiration : exp.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttl));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 }
\ No newline at end of file
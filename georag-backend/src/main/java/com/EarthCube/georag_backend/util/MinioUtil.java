@@ -1,5 +1,7 @@
 package com.EarthCube.georag_backend.util;
 
+import io.minio.BucketExistsArgs;
+import io.minio.MakeBucketArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
 import jakarta.annotation.Resource;
@@ -9,7 +11,11 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Component
@@ -24,6 +30,9 @@ public class MinioUtil {
     @Value("${minio.endpoint}")
     private String endpoint;
 
+    // 已确认存在的桶
+    private final Set<String> knownBuckets = ConcurrentHashMap.newKeySet();
+
     /**
      * 上传文件
      * @param file 前端上传的文件
@@ -57,4 +66,48 @@ public class MinioUtil {
             throw new RuntimeException("文件上传服务异常");
         }
     }
+
+    /**
+     * 上传知识库文档原件到私有桶 (流式读取本地文件，不整体载入内存)
+     * 桶不存在时创建 (MinIO 新建的桶默认私有)，对象不对外暴露访问地址
+     * @param bucket 文档桶，与头像桶分开
+     * @param file 本地文件
+     * @param fileName 原始文件名，用于保留后缀
+     * @param contentType 文件类型，可为空
+     * @return 对象名 (桶内路径)
+     */
+    public String uploadDocument(String bucket, Path file, String fileName, String contentType) {
+        String suffix = fileName != null && fileName.contains(".")
+                ? fileName.substring(fileName.lastIndexOf("."))
+                : "";
+        String objectName = "document/" + UUID.randomUUID().toString().replace("-", "") + suffix;
+
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            ensureBucket(bucket);
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(objectName)
+                            .stream(inputStream, Files.size(file), -1)
+                            .contentType(contentType != null ? contentType : "application/octet-stream")
+                            .build()
+            );
+            return objectName;
+
+        } catch (Exception e) {
+            log.error("文档上传失败: {}", e.getMessage(), e);
+            throw new RuntimeException("文件上传服务异常");
+        }
+    }
+
+    private void ensureBucket(String bucket) throws Exception {
+        if (knownBuckets.contains(bucket)) {
+            return;
+        }
+        if (!minioClient.bucketExists(BucketExistsArgs.builder().bucket(bucket).build())) {
+            minioClient.makeBucket(MakeBucketArgs.builder().bucket(bucket).build());
+            log.info("已创建 MinIO 桶: {}", bucket);
+        }
+        knownBuckets.add(bucket);
+    }
 }
@@ -2,8 +2,13 @@ package com.EarthCube.georag_backend.util;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
@@ -13,6 +18,54 @@ public class RedisUtil {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
+    /**
+     * 追加 + 裁剪 + 续期 (原子执行，一次往返)
+     * KEYS[1]: List 键; ARGV[1]: 保留条数; ARGV[2]: 过期秒数; ARGV[3..n]: 追加的元素
+     */
+    private static final DefaultRedisScript<Long> LIST_PUSH_TRIM_SCRIPT = new DefaultRedisScript<>(
+            "if #ARGV > 2 then redis.call('RPUSH', KEYS[1], unpack(ARGV, 3)) end " +
+            "redis.call('LTRIM', KEYS[1], -tonumber(ARGV[1]), -1) " +
+            "if tonumber(ARGV[2]) > 0 then redis.call('EXPIRE', KEYS[1], tonumber(ARGV[2])) end " +
+            "return redis.call('LLEN', KEYS[1])", Long.class);
+
+    /**
+     * 整体替换 + 裁剪 + 续期 (原子执行，一次往返)，参数同上
+     */
+    private static final DefaultRedisScript<Long> LIST_REPLACE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "if #ARGV > 2 then redis.call('RPUSH', KEYS[1], unpack(ARGV, 3)) end " +
+            "redis.call('LTRIM', KEYS[1], -tonumber(ARGV[1]), -1) " +
+            "if tonumber(ARGV[2]) > 0 then redis.call('EXPIRE', KEYS[1], tonumber(ARGV[2])) end " +
+            "return redis.call('LLEN', KEYS[1])", Long.class);
+
+    /**
+     * 追加 + 批量淘汰 + 续期 (原子执行，一次往返)
+     * 长度超过 保留条数 + 余量 时，一次性淘汰到只剩保留条数，并返回被淘汰的元素
+     * KEYS[1]: List 键; ARGV[1]: 保留条数; ARGV[2]: 余量; ARGV[3]: 过期秒数; ARGV[4..n]: 追加的元素
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> LIST_PUSH_EVICT_SCRIPT = new DefaultRedisScript<>(
+            "if #ARGV > 3 then redis.call('RPUSH', KEYS[1], unpack(ARGV, 4)) end " +
+            "local keep = tonumber(ARGV[1]) " +
+            "local len = redis.call('LLEN', KEYS[1]) " +
+            "local evicted = {} " +
+            "if len > keep + tonumber(ARGV[2]) then " +
+            "  evicted = redis.call('LRANGE', KEYS[1], 0, len - keep - 1) " +
+            "  redis.call('LTRIM', KEYS[1], -keep, -1) " +
+            "end " +
+            "if tonumber(ARGV[3]) > 0 then redis.call('EXPIRE', KEYS[1], tonumber(ARGV[3])) end " +
+            "return evicted", List.class);
+
+    /**
+     * 读取全部 + 续期 (一次往返)
+     * KEYS[1]: List 键; ARGV[1]: 过期秒数
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> LIST_GET_EXPIRE_SCRIPT = new DefaultRedisScript<>(
+            "local items = redis.call('LRANGE', KEYS[1], 0, -1) " +
+            "if #items > 0 and tonumber(ARGV[1]) > 0 then redis.call('EXPIRE', KEYS[1], tonumber(ARGV[1])) end " +
+            "return items", List.class);
+
     /**
      * 普通缓存获取
      */
@@ -37,6 +90,17 @@ public class RedisUtil {
         }
     }
 
+    /**
+     * 删除缓存
+     */
+    public void del(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * 判断 key 是否存在
      */
@@ -130,4 +194,111 @@ public class RedisUtil {
             return false;
         }
     }
+
+    /**
+     * 发布消息 (Pub/Sub)
+     * @param channel 频道
+     * @param message 消息
+     */
+    public void publish(String channel, Object message) {
+        try {
+            redisTemplate.convertAndSend(channel, message);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 批量追加 List 元素，只保留最新的 count 条并续期 (用于追加上下文)
+     * @param key 键
+     * @param values 追加的元素
+     * @param count 保留的条数
+     * @param time 过期时间(秒)
+     * @return 追加后的 List 长度，失败返回 -1
+     */
+    public long lPushAllAndTrim(String key, List<?> values, long count, long time) {
+        return executeListScript(LIST_PUSH_TRIM_SCRIPT, key, values, count, time);
+    }
+
+    /**
+     * 用给定元素整体替换 List，只保留最新的 count 条并续期 (用于从 DB 重建上下文)
+     * @return 替换后的 List 长度，失败返回 -1
+     */
+    public long lReplaceAll(String key, List<?> values, long count, long time) {
+        return executeListScript(LIST_REPLACE_SCRIPT, key, values, count, time);
+    }
+
+    /**
+     * 读取 List 全部内容并续期 (用于读取上下文)
+     * @param key 键
+     * @param time 过期时间(秒)
+     * @return List<Object>，失败返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> lGetAllAndExpire(String key, long time) {
+        try {
+            List<Object> items = redisTemplate.execute(LIST_GET_EXPIRE_SCRIPT, RedisSerializer.byteArray(),
+                    (RedisSerializer<List>) (RedisSerializer<?>) redisTemplate.getValueSerializer(),
+                    Collections.singletonList(key), toBytes(time));
+            return items == null ? Collections.emptyList() : items;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * 批量追加 List 元素，长度超过 count + slack 时淘汰到只剩最新的 count 条并续期
+     * 用于需要拿到被淘汰元素的场景 (如滚动摘要)
+     * @param key 键
+     * @param values 追加的元素
+     * @param count 保留的条数
+     * @param slack 允许超出的余量，超出后才批量淘汰
+     * @param time 过期时间(秒)
+     * @return 被淘汰的元素 (按时间升序)，没有淘汰返回空列表，失败返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public List<Object> lPushAllAndEvict(String key, List<?> values, long count, long slack, long time) {
+        try {
+            RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+            List<Object> args = new ArrayList<>(values.size() + 3);
+            args.add(toBytes(count));
+            args.add(toBytes(slack));
+            args.add(toBytes(time));
+            for (Object value : values) {
+                args.add(valueSerializer.serialize(value));
+            }
+            List<Object> evicted = redisTemplate.execute(LIST_PUSH_EVICT_SCRIPT, RedisSerializer.byteArray(),
+                    (RedisSerializer<List>) (RedisSerializer<?>) valueSerializer,
+                    Collections.singletonList(key), args.toArray());
+            return evicted == null ? Collections.emptyList() : evicted;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private long executeListScript(DefaultRedisScript<Long> script, String key, List<?> values, long count, long time) {
+        try {
+            // 参数统一预先序列化为字节：数字按字符串，元素按 value 序列化器 (与 lSet 写入的格式一致)
+            RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+            List<Object> args = new ArrayList<>(values.size() + 2);
+            args.add(toBytes(count));
+            args.add(toBytes(time));
+            for (Object value : values) {
+                args.add(valueSerializer.serialize(value));
+            }
+            Long size = redisTemplate.execute(script, RedisSerializer.byteArray(), null,
+                    Collections.singletonList(key), args.toArray());
+            return size == null ? -1 : size;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private static byte[] toBytes(long number) {
+        return String.valueOf(number).getBytes(StandardCharsets.UTF_8);
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.EarthCube.georag_backend.vo.chat;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -29,13 +30,23 @@ public class ChatStreamVO {
      */
     private Boolean finish;
 
+    /**
+     * 错误码 (仅异常帧返回，如 SERVER_BUSY)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String error;
+
     // --- 辅助静态方法，方便 Service 层调用 ---
 
     public static ChatStreamVO chunk(String sessionId, String msgId, String text) {
-        return new ChatStreamVO(sessionId, msgId, text, false);
+        return new ChatStreamVO(sessionId, msgId, text, false, null);
     }
 
     public static ChatStreamVO end(String sessionId, String msgId) {
-        return new ChatStreamVO(sessionId, msgId, "", true);
+        return new ChatStreamVO(sessionId, msgId, "", true, null);
+    }
+
+    public static ChatStreamVO error(String sessionId, String error, String text) {
+        return new ChatStreamVO(sessionId, null, text, true, error);
     }
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+package com.EarthCube.georag_backend.vo.ingest;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+public class IngestJobVO {
+
+    private String jobId;
+
+    private String docId;
+
+    private String fileName;
+
+    private Long fileSize;
+
+    // 原文件在 MinIO 私有桶中的对象名 (不提供直接访问地址)
+    private String sourceObject;
+
+    // RUNNING / COMPLETED / FAILED
+    private String status;
+
+    // 失败原因
+    private String error;
+
+    // 总页数 (纯文本为空)
+    private Integer totalPages;
+
+    private Integer pagesRead;
+
+    private Long chunksProduced;
+
+    private Long chunksEmbedded;
+
+    // 已写库并进入检索索引的片段数
+    private Long chunksIndexed;
+
+    private LocalDateTime startTime;
+
+    private LocalDateTime endTime;
+}
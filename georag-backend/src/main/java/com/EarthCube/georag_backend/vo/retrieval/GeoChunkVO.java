@@ -0,0 +1,21 @@
+package com.EarthCube.georag_backend.vo.retrieval;
+
+import lombok.Data;
+
+@Data
+public class GeoChunkVO {
+
+    private String chunkId;
+
+    private String docId;
+
+    private Integer page;
+
+    private String content;
+
+    // 空间范围 [minLon, minLat, maxLon, maxLat]
+    private Double[] bbox;
+
+    // 到查询中心点的距离 (米)，矩形查询时为空
+    private Double distance;
+}
@@ -0,0 +1,162 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.common.exception.AiUnavailableException;
+import com.EarthCube.georag_backend.config.AiServiceConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AiCircuitBreakerTest {
+
+    private static final long OPEN_DURATION = 100;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        AiCircuitBreaker breaker = create(10);
+        succeed(breaker);
+        succeed(breaker);
+        fail(breaker);
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState());
+        fail(breaker);
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getState());
+
+        StepVerifier.create(breaker.protect(Flux.just("x")))
+                .expectError(AiUnavailableException.class)
+                .verify();
+        assertEquals(1.0, rejected("open"));
+    }
+
+    @Test
+    void isCallPermittedHasNoSideEffects() {
+        AiCircuitBreaker breaker = create(10);
+        for (int i = 0; i < 4; i++) {
+            fail(breaker);
+        }
+        assertFalse(breaker.isCallPermitted());
+        assertFalse(breaker.isCallPermitted());
+        assertEquals(0.0, rejected("open"));
+
+        breaker.recordRejected();
+        assertEquals(1.0, rejected("open"));
+    }
+
+    @Test
+    void halfOpenAllowsLimitedTrialsAndClosesWhenAllSucceed() throws Exception {
+        AiCircuitBreaker breaker = create(10);
+        openCircuit(breaker);
+        Thread.sleep(OPEN_DURATION + 20);
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        Sinks.Many<String> first = Sinks.many().unicast().onBackpressureBuffer();
+        Sinks.Many<String> second = Sinks.many().unicast().onBackpressureBuffer();
+        Disposable a = breaker.protect(first.asFlux()).subscribe();
+        Disposable b = breaker.protect(second.asFlux()).subscribe();
+
+        // 两个试探名额都在进行中，第三个调用被拒绝
+        assertFalse(breaker.isCallPermitted());
+        StepVerifier.create(breaker.protect(Flux.just("x")))
+                .expectError(AiUnavailableException.class)
+                .verify();
+
+        // 收到首个 Token 即记为成功，但成功的试探仍占用名额，直到全部成功
+        first.tryEmitNext("t");
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted());
+
+        second.tryEmitNext("t");
+        assertEquals(AiCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.isCallPermitted());
+        a.dispose();
+        b.dispose();
+    }
+
+    @Test
+    void failedTrialReopens() throws Exception {
+        AiCircuitBreaker breaker = create(10);
+        openCircuit(breaker);
+        Thread.sleep(OPEN_DURATION + 20);
+
+        fail(breaker);
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.isCallPermitted());
+    }
+
+    @Test
+    void cancelledTrialReturnsItsSlot() throws Exception {
+        AiCircuitBreaker breaker = create(10);
+        openCircuit(breaker);
+        Thread.sleep(OPEN_DURATION + 20);
+
+        Disposable a = breaker.protect(Flux.never()).subscribe();
+        Disposable b = breaker.protect(Flux.never()).subscribe();
+        assertFalse(breaker.isCallPermitted());
+
+        a.dispose();
+        assertTrue(breaker.isCallPermitted());
+        assertEquals(AiCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        b.dispose();
+    }
+
+    @Test
+    void bulkheadRejectsBeyondConcurrentLimit() {
+        AiCircuitBreaker breaker = create(1);
+        Disposable running = breaker.protect(Flux.never()).subscribe();
+
+        assertFalse(breaker.isCallPermitted());
+        StepVerifier.create(breaker.protect(Flux.just("x")))
+                .expectError(AiUnavailableException.class)
+                .verify();
+        assertEquals(1.0, rejected("bulkhead"));
+
+        running.dispose();
+        assertTrue(breaker.isCallPermitted());
+        StepVerifier.create(breaker.protect(Flux.just("x")))
+                .expectNext("x")
+                .verifyComplete();
+    }
+
+    private AiCircuitBreaker create(int bulkhead) {
+        AiServiceConfig config = new AiServiceConfig();
+        config.setCircuitSlidingWindowSize(4);
+        config.setCircuitMinimumCalls(4);
+        config.setCircuitFailureRateThreshold(50);
+        config.setCircuitOpenDuration(OPEN_DURATION);
+        config.setCircuitHalfOpenCalls(2);
+        config.setBulkheadMaxConcurrentCalls(bulkhead);
+        return new AiCircuitBreaker(config, registry);
+    }
+
+    private static void openCircuit(AiCircuitBreaker breaker) {
+        for (int i = 0; i < 4; i++) {
+            fail(breaker);
+        }
+        assertEquals(AiCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private static void succeed(AiCircuitBreaker breaker) {
+        StepVerifier.create(breaker.protect(Flux.just("t")))
+                .expectNext("t")
+                .verifyComplete();
+    }
+
+    private static void fail(AiCircuitBreaker breaker) {
+        StepVerifier.create(breaker.protect(Flux.error(new TimeoutException("first token"))))
+                .expectError()
+                .verify();
+    }
+
+    private double rejected(String reason) {
+        Counter counter = registry.find("georag.ai.circuit.rejected").tag("reason", reason).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,180 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.config.ChatJournalConfig;
+import com.EarthCube.georag_backend.entity.ChatMessage;
+import com.EarthCube.georag_backend.mapper.ChatMessageMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ChatMessageJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<ChatMessageJournal> journals = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws Exception {
+        for (ChatMessageJournal journal : journals) {
+            journal.destroy();
+        }
+    }
+
+    @Test
+    void replaysUnflushedSegmentsAfterRestart() throws Exception {
+        FakeMapper down = new FakeMapper();
+        down.outage = true;
+        ChatMessageJournal crashed = open(down, 3);
+        for (int i = 0; i < 3; i++) {
+            crashed.append(message("s1", "m" + i));
+        }
+        // 数据库不可用：消息留在队列与日志中，不算作失败次数
+        for (int i = 0; i < 5; i++) {
+            crashed.flush();
+        }
+        assertEquals(3, crashed.getPending("s1").size());
+        assertFalse(Files.exists(deadLetter()));
+        // 模拟进程崩溃：不调用 destroy，直接丢弃
+        journals.remove(crashed);
+
+        FakeMapper up = new FakeMapper();
+        ChatMessageJournal restarted = open(up, 3);
+        assertEquals(List.of("m0", "m1", "m2"), ids(restarted.getPending("s1")));
+
+        restarted.flush();
+
+        assertEquals(List.of("m0", "m1", "m2"), up.insertedIds());
+        assertTrue(restarted.getPending("s1").isEmpty());
+        // 只剩当前 (空的) 分段
+        assertEquals(1, segments().size());
+    }
+
+    @Test
+    void constraintViolationGoesToDeadLetterWithoutBlockingOthers() throws Exception {
+        FakeMapper mapper = new FakeMapper();
+        mapper.violates = msg -> msg.getId().equals("bad");
+        ChatMessageJournal journal = open(mapper, 3);
+        journal.append(message("s1", "a"));
+        journal.append(message("s1", "bad"));
+        journal.append(message("s2", "b"));
+
+        journal.flush();
+
+        assertEquals(List.of("a", "b"), mapper.insertedIds());
+        assertTrue(journal.getPending("s1").isEmpty());
+        assertTrue(journal.getPending("s2").isEmpty());
+        List<String> dead = Files.readAllLines(deadLetter(), StandardCharsets.UTF_8);
+        assertEquals(1, dead.size());
+        assertTrue(dead.get(0).contains("\"id\":\"bad\""));
+    }
+
+    @Test
+    void repeatedFailureIsDeadLetteredAfterMaxRetries() throws Exception {
+        FakeMapper mapper = new FakeMapper();
+        mapper.fails = msg -> msg.getId().equals("flaky");
+        ChatMessageJournal journal = open(mapper, 2);
+        journal.append(message("s1", "flaky"));
+
+        // 每轮都有其他消息写入成功，说明数据库可用，失败只算在 flaky 头上
+        for (int round = 1; round <= 3; round++) {
+            journal.append(message("s2", "ok" + round));
+            journal.flush();
+            boolean pending = ids(journal.getPending("s1")).contains("flaky");
+            assertEquals(round <= 2, pending, "round " + round);
+        }
+
+        assertEquals(List.of("ok1", "ok2", "ok3"), mapper.insertedIds());
+        assertTrue(Files.readString(deadLetter()).contains("\"id\":\"flaky\""));
+        // 待重试的消息重新写入当前分段，旧分段都已删除
+        assertEquals(1, segments().size());
+    }
+
+    private ChatMessageJournal open(FakeMapper fake, int maxRetries) throws Exception {
+        ChatMessageMapper mapper = mock(ChatMessageMapper.class);
+        when(mapper.insertBatch(anyList())).thenAnswer(inv -> fake.insertBatch(inv.getArgument(0)));
+        ChatJournalConfig config = new ChatJournalConfig();
+        config.setDir(dir.toString());
+        config.setBatchSize(100);
+        // 测试中手动 flush，定时任务不参与
+        config.setFlushInterval(3_600_000L);
+        config.setMaxRetries(maxRetries);
+        ChatMessageJournal journal = new ChatMessageJournal();
+        ReflectionTestUtils.setField(journal, "config", config);
+        ReflectionTestUtils.setField(journal, "chatMessageMapper", mapper);
+        journal.init();
+        journals.add(journal);
+        return journal;
+    }
+
+    private Path deadLetter() {
+        return dir.resolve("dead-letter").resolve("chat-message-dead.log");
+    }
+
+    private List<Path> segments() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).collect(Collectors.toList());
+        }
+    }
+
+    private static ChatMessage message(String sessionId, String id) {
+        ChatMessage msg = new ChatMessage();
+        msg.setId(id);
+        msg.setSessionId(sessionId);
+        msg.setRole("user");
+        msg.setContext("内容 " + id);
+        msg.setCategory("text");
+        return msg;
+    }
+
+    private static List<String> ids(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * 按条件模拟数据库行为：整体不可用 / 违反约束 / 与具体消息相关的其他失败
+     * 批量写入时只要有一条出错，整批失败 (同一事务)
+     */
+    private static class FakeMapper {
+        boolean outage;
+        Predicate<ChatMessage> violates = msg -> false;
+        Predicate<ChatMessage> fails = msg -> false;
+        final List<ChatMessage> inserted = new ArrayList<>();
+
+        int insertBatch(List<ChatMessage> list) {
+            if (outage) {
+                throw new DataAccessResourceFailureException("connection refused");
+            }
+            for (ChatMessage msg : list) {
+                if (violates.test(msg)) {
+                    throw new DataIntegrityViolationException("violates check constraint");
+                }
+                if (fails.test(msg)) {
+                    throw new IllegalStateException("bad value");
+                }
+            }
+            inserted.addAll(list);
+            return list.size();
+        }
+
+        List<String> insertedIds() {
+            return ids(inserted);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.config.ChatStreamConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChatStreamExecutorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ChatStreamExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    void acquireTakesNoPermitUntilSubscribed() {
+        executor = create(1, 10, 1000);
+        Mono<ChatStreamExecutor.StreamPermit> acquire = executor.acquire();
+        assertEquals(0, executor.getActiveStreams());
+
+        ChatStreamExecutor.StreamPermit first = acquire.block();
+        assertNotNull(first);
+        assertEquals(1, executor.getActiveStreams());
+
+        // 同一个 Mono 再次订阅会各自申请名额，名额已满时排队
+        AtomicReference<ChatStreamExecutor.StreamPermit> second = new AtomicReference<>();
+        Disposable waiting = acquire.subscribe(second::set);
+        assertEquals(1, executor.getQueuedStreams());
+        assertNull(second.get());
+
+        first.release();
+        assertNotNull(second.get());
+        assertEquals(1, executor.getActiveStreams());
+        second.get().release();
+        assertEquals(0, executor.getActiveStreams());
+        waiting.dispose();
+    }
+
+    @Test
+    void releasedPermitIsHandedToOldestWaiter() {
+        executor = create(1, 10, 1000);
+        ChatStreamExecutor.StreamPermit held = executor.acquire().block();
+
+        List<String> order = new ArrayList<>();
+        AtomicReference<ChatStreamExecutor.StreamPermit> a = new AtomicReference<>();
+        AtomicReference<ChatStreamExecutor.StreamPermit> b = new AtomicReference<>();
+        executor.acquire().subscribe(p -> {
+            order.add("a");
+            a.set(p);
+        });
+        executor.acquire().subscribe(p -> {
+            order.add("b");
+            b.set(p);
+        });
+        assertEquals(2, executor.getQueuedStreams());
+
+        held.release();
+        // 重复归还只生效一次，不会多放出一个名额给 b
+        held.release();
+        assertEquals(List.of("a"), order);
+        assertEquals(1, executor.getActiveStreams());
+
+        a.get().release();
+        assertEquals(List.of("a", "b"), order);
+        b.get().release();
+        assertEquals(0, executor.getActiveStreams());
+        assertEquals(0, executor.getQueuedStreams());
+    }
+
+    @Test
+    void queueTimeoutCompletesEmpty() {
+        executor = create(1, 10, 50);
+        ChatStreamExecutor.StreamPermit held = executor.acquire().block();
+
+        StepVerifier.create(executor.acquire())
+                .expectComplete()
+                .verify(Duration.ofSeconds(5));
+        assertEquals(0, executor.getQueuedStreams());
+        assertEquals(1.0, registry.get("georag.chat.streams.rejected").counter().count());
+
+        // 超时的排队者不会拿走之后归还的名额
+        held.release();
+        assertEquals(0, executor.getActiveStreams());
+    }
+
+    @Test
+    void fullQueueRejectsImmediately() {
+        executor = create(1, 1, 1000);
+        ChatStreamExecutor.StreamPermit held = executor.acquire().block();
+        Disposable queued = executor.acquire().subscribe();
+
+        StepVerifier.create(executor.acquire())
+                .expectComplete()
+                .verify(Duration.ofMillis(500));
+
+        queued.dispose();
+        held.release();
+    }
+
+    @Test
+    void cancelledWaiterDoesNotKeepPermit() {
+        executor = create(1, 10, 1000);
+        ChatStreamExecutor.StreamPermit held = executor.acquire().block();
+        Disposable waiting = executor.acquire().subscribe(p -> fail("取消后不应拿到名额"));
+        waiting.dispose();
+
+        held.release();
+        assertEquals(0, executor.getActiveStreams());
+        assertNotNull(executor.acquire().block());
+    }
+
+    @Test
+    void concurrentAcquireAndReleaseNeverExceedsLimit() throws Exception {
+        int limit = 4;
+        executor = create(limit, 2000, 10_000);
+        AtomicInteger inUse = new AtomicInteger();
+        AtomicInteger maxInUse = new AtomicInteger();
+        AtomicInteger served = new AtomicInteger();
+        int tasks = 2000;
+        CountDownLatch done = new CountDownLatch(tasks);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            for (int i = 0; i < tasks; i++) {
+                pool.execute(() -> executor.acquire()
+                        .doFinally(signal -> done.countDown())
+                        .subscribe(permit -> {
+                            maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+                            served.incrementAndGet();
+                            // 在其他线程上归还 (两次，验证幂等)，与新的申请交错
+                            pool.execute(() -> {
+                                inUse.decrementAndGet();
+                                permit.release();
+                                permit.release();
+                            });
+                        }));
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+        assertEquals(tasks, served.get());
+        assertTrue(maxInUse.get() <= limit, "max in use = " + maxInUse.get());
+        assertEquals(0, executor.getActiveStreams());
+        assertEquals(0, executor.getQueuedStreams());
+    }
+
+    private ChatStreamExecutor create(int maxStreams, int queueCapacity, long queueTimeout) {
+        ChatStreamConfig config = new ChatStreamConfig();
+        config.setMaxConcurrentStreams(maxStreams);
+        config.setQueueCapacity(queueCapacity);
+        config.setQueueTimeout(queueTimeout);
+        config.setWorkerThreads(1);
+        return new ChatStreamExecutor(config, registry);
+    }
+}
@@ -0,0 +1,108 @@
+package com.EarthCube.georag_backend.component;
+
+import com.EarthCube.georag_backend.config.ChatStreamConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TokenCoalescerTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(30);
+
+    @Test
+    void firstTokenPassesThroughAndRestIsMergedPerWindow() {
+        TokenCoalescer coalescer = create(30, 1024);
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.withVirtualTime(() -> coalescer.coalesce(tokens.asFlux()))
+                .then(() -> tokens.tryEmitNext("龙"))
+                .expectNext("龙")
+                .then(() -> {
+                    tokens.tryEmitNext("马");
+                    tokens.tryEmitNext("溪");
+                })
+                .expectNoEvent(WINDOW.minusMillis(1))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext("马溪")
+                .then(() -> tokens.tryEmitNext("组"))
+                .thenAwait(WINDOW)
+                .expectNext("组")
+                // 没有 Token 时不下发空帧
+                .thenAwait(WINDOW.multipliedBy(3))
+                .expectNoEvent(WINDOW)
+                .then(() -> {
+                    tokens.tryEmitNext("页");
+                    tokens.tryEmitComplete();
+                })
+                // 结束时剩余的 Token 立即下发，不等窗口
+                .expectNext("页")
+                .verifyComplete();
+    }
+
+    @Test
+    void byteLimitFlushesBeforeWindowEnds() {
+        TokenCoalescer coalescer = create(30, 6);
+        Sinks.Many<String> tokens = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.withVirtualTime(() -> coalescer.coalesce(tokens.asFlux()))
+                .then(() -> tokens.tryEmitNext("a"))
+                .expectNext("a")
+                .then(() -> {
+                    // 每个汉字 3 字节，两个即达到上限
+                    tokens.tryEmitNext("页");
+                    tokens.tryEmitNext("岩");
+                    tokens.tryEmitNext("气");
+                })
+                .expectNext("页岩")
+                .expectNoEvent(WINDOW.minusMillis(1))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext("气")
+                .then(tokens::tryEmitComplete)
+                .verifyComplete();
+    }
+
+    @Test
+    void upstreamErrorPropagates() {
+        TokenCoalescer coalescer = create(30, 1024);
+
+        StepVerifier.withVirtualTime(() -> coalescer.coalesce(
+                        Flux.just("a", "b", "c").concatWith(Flux.error(new IllegalStateException("upstream")))))
+                .expectNext("a")
+                .expectErrorMessage("upstream")
+                .verify();
+    }
+
+    @Test
+    void contextReachesUpstream() {
+        TokenCoalescer coalescer = create(30, 1024);
+        Flux<String> tokens = Flux.deferContextual(ctx -> Flux.just(ctx.<String>get("user"), "-", "x"));
+
+        StepVerifier.create(coalescer.coalesce(tokens).contextWrite(Context.of("user", "u1")))
+                .expectNext("u1")
+                .expectNext("-x")
+                .verifyComplete();
+    }
+
+    @Test
+    void zeroWindowDisablesCoalescing() {
+        TokenCoalescer coalescer = create(0, 1024);
+        Flux<String> tokens = Flux.just("a", "b");
+        assertSame(tokens, coalescer.coalesce(tokens));
+    }
+
+    private static TokenCoalescer create(long window, int maxBytes) {
+        ChatStreamConfig config = new ChatStreamConfig();
+        config.setCoalesceWindow(window);
+        config.setCoalesceMaxBytes(maxBytes);
+        TokenCoalescer coalescer = new TokenCoalescer();
+        ReflectionTestUtils.setField(coalescer, "config", config);
+        return coalescer;
+    }
+}
@@ -0,0 +1,68 @@
+package com.EarthCube.georag_backend.controller;
+
+import com.EarthCube.georag_backend.service.IChatService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Flux;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * 流式对话接口不受全局异步超时 (spring.mvc.async.request-timeout) 限制
+ */
+class ChatControllerTest {
+
+    private static final String BODY = "{\"content\":\"龙马溪组的岩性\"}";
+
+    private IChatService chatService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        chatService = mock(IChatService.class);
+        ChatController controller = new ChatController();
+        ReflectionTestUtils.setField(controller, "chatService", chatService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setAsyncRequestTimeout(30000)
+                .build();
+    }
+
+    @Test
+    void reactiveStreamHasNoAsyncTimeout() throws Exception {
+        when(chatService.streamMsg(any())).thenReturn(Flux.never());
+
+        MvcResult result = mockMvc.perform(post("/api/v1/chat/completions/reactive")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        long timeout = result.getRequest().getAsyncContext().getTimeout();
+        assertTrue(timeout <= 0, "timeout = " + timeout);
+    }
+
+    @Test
+    void emitterStreamHasNoAsyncTimeout() throws Exception {
+        when(chatService.sendMsg(any())).thenReturn(new SseEmitter(0L));
+
+        MvcResult result = mockMvc.perform(post("/api/v1/chat/completions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(BODY))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        long timeout = result.getRequest().getAsyncContext().getTimeout();
+        assertTrue(timeout <= 0, "timeout = " + timeout);
+    }
+}
@@ -0,0 +1,119 @@
+package com.EarthCube.georag_backend.ingest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextChunkerTest {
+
+    @Test
+    void cutsAtSentenceBoundaries() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 30; i++) {
+            text.append("第").append(i).append("句话的内容。");
+        }
+        TextChunker chunker = new TextChunker(20, 0);
+        chunker.append(text.toString(), 1);
+
+        List<TextChunker.Piece> pieces = drain(chunker);
+        StringBuilder joined = new StringBuilder();
+        for (TextChunker.Piece piece : pieces) {
+            assertTrue(piece.getText().length() <= 20, piece.getText());
+            assertTrue(piece.getText().endsWith("。"), piece.getText());
+            joined.append(piece.getText());
+        }
+        assertEquals(text.toString(), joined.toString());
+    }
+
+    @Test
+    void prefersParagraphOverSentenceBreak() {
+        TextChunker chunker = new TextChunker(20, 0);
+        chunker.append("第一段第一句。第一段\n\n第二段。第二段第二句。第二段第三句。", null);
+
+        List<TextChunker.Piece> pieces = drain(chunker);
+        assertEquals("第一段第一句。第一段", pieces.get(0).getText());
+        assertNull(pieces.get(0).getPage());
+    }
+
+    @Test
+    void adjacentPiecesOverlap() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        TextChunker chunker = new TextChunker(10, 3);
+        chunker.append(text.toString(), 1);
+
+        List<TextChunker.Piece> pieces = drain(chunker);
+        assertEquals(text.substring(0, 10), pieces.get(0).getText());
+        for (int i = 1; i < pieces.size(); i++) {
+            String prev = pieces.get(i - 1).getText();
+            String cur = pieces.get(i).getText();
+            assertTrue(cur.length() <= 10);
+            assertTrue(cur.startsWith(prev.substring(prev.length() - 3)), prev + " / " + cur);
+        }
+        String last = pieces.get(pieces.size() - 1).getText();
+        assertTrue(text.toString().endsWith(last));
+    }
+
+    @Test
+    void pieceTakesPageOfItsStart() {
+        TextChunker chunker = new TextChunker(20, 0);
+        chunker.append("A".repeat(30), 1);
+        chunker.append("B".repeat(30), 2);
+
+        List<TextChunker.Piece> pieces = drain(chunker);
+        assertEquals(3, pieces.size());
+        assertEquals("A".repeat(20), pieces.get(0).getText());
+        assertEquals(1, pieces.get(0).getPage());
+        // 跨页片段记为起始位置所在的页
+        assertEquals("A".repeat(10) + "B".repeat(10), pieces.get(1).getText());
+        assertEquals(1, pieces.get(1).getPage());
+        assertEquals("B".repeat(20), pieces.get(2).getText());
+        assertEquals(2, pieces.get(2).getPage());
+    }
+
+    @Test
+    void doesNotSplitSurrogatePairs() {
+        TextChunker chunker = new TextChunker(5, 1);
+        chunker.append("🌍".repeat(10), 1);
+
+        for (TextChunker.Piece piece : drain(chunker)) {
+            String text = piece.getText();
+            assertFalse(Character.isLowSurrogate(text.charAt(0)), text);
+            assertFalse(Character.isHighSurrogate(text.charAt(text.length() - 1)), text);
+        }
+    }
+
+    @Test
+    void finishSkipsTrailingOverlap() {
+        TextChunker chunker = new TextChunker(10, 3);
+        chunker.append("abcdefghijk", 1);
+
+        assertEquals("abcdefghij", chunker.poll().getText());
+        assertNull(chunker.poll());
+        assertEquals("hijk", chunker.finish().getText());
+        assertNull(chunker.finish());
+
+        TextChunker exact = new TextChunker(10, 3);
+        exact.append("abcdefghij", 1);
+        assertNull(exact.poll());
+        assertEquals("abcdefghij", exact.finish().getText());
+        assertNull(exact.finish());
+    }
+
+    private static List<TextChunker.Piece> drain(TextChunker chunker) {
+        List<TextChunker.Piece> pieces = new ArrayList<>();
+        TextChunker.Piece piece;
+        while ((piece = chunker.poll()) != null) {
+            pieces.add(piece);
+        }
+        while ((piece = chunker.finish()) != null) {
+            pieces.add(piece);
+        }
+        return pieces;
+    }
+}
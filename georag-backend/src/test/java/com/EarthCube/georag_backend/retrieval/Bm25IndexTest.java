@@ -0,0 +1,151 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Bm25IndexTest {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void scoresMatchBruteForceAcrossSegmentsAndBuffer() throws Exception {
+        List<String> docs = randomDocs(new Random(5), 500);
+        // 每 37 个文档落一个段，段数上限 3，查询时既有合并后的段也有内存缓冲
+        try (Bm25Index index = Bm25Index.open(dir, Integer.MAX_VALUE, K1, B, 37, 3)) {
+            for (int doc = 0; doc < docs.size(); doc++) {
+                index.add(doc, docs.get(doc));
+            }
+            assertMatchesBruteForce(index, docs);
+        }
+    }
+
+    @Test
+    void snapshotRestoresScoresAndTruncatesToLimit() throws Exception {
+        List<String> docs = randomDocs(new Random(9), 300);
+        try (Bm25Index index = Bm25Index.open(dir, Integer.MAX_VALUE, K1, B, 50, 2)) {
+            for (int doc = 0; doc < docs.size(); doc++) {
+                index.add(doc, docs.get(doc));
+            }
+            index.snapshot();
+        }
+
+        try (Bm25Index restored = Bm25Index.open(dir, Integer.MAX_VALUE, K1, B, 50, 2)) {
+            assertEquals(docs.size(), restored.maxDoc());
+            assertMatchesBruteForce(restored, docs);
+        }
+        // 向量索引只恢复到 120 个文档时，倒排索引丢弃其后的文档
+        try (Bm25Index truncated = Bm25Index.open(dir, 120, K1, B, 50, 2)) {
+            assertEquals(120, truncated.maxDoc());
+            assertMatchesBruteForce(truncated, docs.subList(0, 120));
+        }
+    }
+
+    @Test
+    void filterAndCoverageThreshold() throws Exception {
+        try (Bm25Index index = Bm25Index.open(dir, Integer.MAX_VALUE, K1, B, 1000, 8)) {
+            index.add(0, "龙马溪组页岩");
+            index.add(1, "页岩气");
+            index.add(2, "龙马溪组");
+            for (int doc = 3; doc < 20; doc++) {
+                index.add(doc, "页岩 样品 " + doc);
+            }
+
+            // 词频相同时短文档分数更高
+            assertEquals(List.of(2, 0), nodes(index.search("龙马溪组", 10, doc -> true)));
+            assertEquals(List.of(2), nodes(index.search("龙马溪组", 10, doc -> doc != 0)));
+
+            // 只命中高频词 "页岩" 的文档覆盖度低，不返回
+            List<Integer> covered = nodes(index.search("龙马溪组页岩", 10, null, 0.5));
+            assertEquals(Set.of(0, 2), new HashSet<>(covered));
+            assertTrue(nodes(index.search("龙马溪组页岩", 30, null, 0)).size() > 2);
+        }
+    }
+
+    private static void assertMatchesBruteForce(Bm25Index index, List<String> docs) {
+        Random random = new Random(1);
+        for (int q = 0; q < 30; q++) {
+            String query = "w" + random.nextInt(20) + " w" + random.nextInt(60) + " w" + random.nextInt(60);
+            Map<Integer, Double> expected = bruteForce(docs, query);
+            List<SearchHit> hits = index.search(query, docs.size(), null);
+            assertEquals(expected.size(), hits.size(), query);
+            for (int i = 0; i < hits.size(); i++) {
+                SearchHit hit = hits.get(i);
+                assertEquals(expected.get(hit.getNode()), hit.getScore(), 1e-3, query);
+                if (i > 0) {
+                    assertTrue(hits.get(i - 1).getScore() >= hit.getScore());
+                }
+            }
+        }
+    }
+
+    /**
+     * 参考实现：逐文档按 BM25 公式打分
+     * idf = ln(1 + (N - df + 0.5) / (df + 0.5))，tf 部分 = tf (k1 + 1) / (tf + k1 (1 - b + b · len / avgLen))
+     */
+    private static Map<Integer, Double> bruteForce(List<String> docs, String query) {
+        List<Map<String, Integer>> tfs = new ArrayList<>();
+        long total = 0;
+        for (String doc : docs) {
+            List<String> tokens = ChineseTokenizer.tokenize(doc);
+            Map<String, Integer> tf = new HashMap<>();
+            tokens.forEach(t -> tf.merge(t, 1, Integer::sum));
+            tfs.add(tf);
+            total += tokens.size();
+        }
+        double avgLength = Math.max(1.0, (double) total / docs.size());
+        Map<String, Integer> queryTerms = new HashMap<>();
+        ChineseTokenizer.tokenize(query).forEach(t -> queryTerms.merge(t, 1, Integer::sum));
+
+        Map<Integer, Double> scores = new HashMap<>();
+        for (Map.Entry<String, Integer> term : queryTerms.entrySet()) {
+            long df = tfs.stream().filter(tf -> tf.containsKey(term.getKey())).count();
+            if (df == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (docs.size() - df + 0.5) / (df + 0.5));
+            for (int doc = 0; doc < docs.size(); doc++) {
+                Integer tf = tfs.get(doc).get(term.getKey());
+                if (tf == null) {
+                    continue;
+                }
+                int length = tfs.get(doc).values().stream().mapToInt(Integer::intValue).sum();
+                double score = term.getValue() * idf * tf * (K1 + 1)
+                        / (tf + K1 * (1 - B + B * length / avgLength));
+                scores.merge(doc, score, Double::sum);
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * 词表大小 60，词频服从偏斜分布，文档长度 5 ~ 40 个词
+     */
+    private static List<String> randomDocs(Random random, int count) {
+        List<String> docs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = 5 + random.nextInt(36);
+            StringBuilder sb = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                int term = Math.min(random.nextInt(60), random.nextInt(60));
+                sb.append('w').append(term).append(' ');
+            }
+            docs.add(sb.toString());
+        }
+        return docs;
+    }
+
+    private static List<Integer> nodes(List<SearchHit> hits) {
+        List<Integer> nodes = new ArrayList<>();
+        hits.forEach(hit -> nodes.add(hit.getNode()));
+        return nodes;
+    }
+}
@@ -0,0 +1,152 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recallAgainstBruteForce() throws Exception {
+        Random random = new Random(42);
+        List<float[]> data = randomVectors(random, 3000);
+        try (HnswIndex index = HnswIndex.open(dir, DIMENSION, HnswIndex.Metric.COSINE, 16, 200)) {
+            for (int i = 0; i < data.size(); i++) {
+                index.add("c" + i, data.get(i));
+            }
+
+            int k = 10;
+            int found = 0;
+            int queries = 100;
+            for (int q = 0; q < queries; q++) {
+                float[] query = randomVector(random);
+                Set<Integer> expected = bruteForce(data, query, k, node -> true);
+                for (SearchHit hit : index.search(query, k, 100, null)) {
+                    if (expected.contains(hit.getNode())) {
+                        found++;
+                    }
+                }
+            }
+            double recall = (double) found / (queries * k);
+            assertTrue(recall >= 0.95, "recall@10 = " + recall);
+        }
+    }
+
+    @Test
+    void filteredSearchOnlyReturnsAllowedNodes() throws Exception {
+        Random random = new Random(8);
+        List<float[]> data = randomVectors(random, 1000);
+        try (HnswIndex index = HnswIndex.open(dir, DIMENSION, HnswIndex.Metric.COSINE, 16, 200)) {
+            for (int i = 0; i < data.size(); i++) {
+                index.add("c" + i, data.get(i));
+            }
+            float[] query = randomVector(random);
+            List<SearchHit> hits = index.search(query, 10, 200, node -> node % 3 == 0);
+            assertEquals(10, hits.size());
+            hits.forEach(hit -> assertEquals(0, hit.getNode() % 3));
+
+            // 小候选集精确打分与暴力计算一致
+            int[] nodes = {1, 5, 9, 100, 500, 999};
+            Set<Integer> expected = bruteForce(data, query, 3, node -> Arrays.stream(nodes).anyMatch(n -> n == node));
+            assertEquals(expected, index.score(query, nodes, 3).stream().map(SearchHit::getNode)
+                    .collect(Collectors.toSet()));
+        }
+    }
+
+    @Test
+    void snapshotRoundTrip() throws Exception {
+        Random random = new Random(17);
+        List<float[]> data = randomVectors(random, 500);
+        List<float[]> queries = randomVectors(random, 20);
+        List<List<SearchHit>> before = new ArrayList<>();
+        try (HnswIndex index = HnswIndex.open(dir, DIMENSION, HnswIndex.Metric.COSINE, 8, 100)) {
+            for (int i = 0; i < data.size(); i++) {
+                index.add("c" + i, data.get(i));
+            }
+            index.snapshot();
+            for (float[] query : queries) {
+                before.add(index.search(query, 5, 50, null));
+            }
+            // 快照之后写入的节点没有进入快照，恢复时丢弃
+            index.add("uncommitted", randomVector(random));
+        }
+
+        try (HnswIndex restored = HnswIndex.open(dir, DIMENSION, HnswIndex.Metric.COSINE, 8, 100)) {
+            assertEquals(data.size(), restored.size());
+            assertEquals("c123", restored.label(123));
+            for (int q = 0; q < queries.size(); q++) {
+                assertEquals(before.get(q), restored.search(queries.get(q), 5, 50, null));
+            }
+            int node = restored.add("next", data.get(0));
+            assertEquals(data.size(), node);
+            assertEquals("next", restored.label(node));
+        }
+    }
+
+    @Test
+    void openRejectsSnapshotWithDifferentParameters() throws Exception {
+        try (HnswIndex index = HnswIndex.open(dir, DIMENSION, HnswIndex.Metric.COSINE, 8, 100)) {
+            index.add("c0", randomVector(new Random(1)));
+            index.snapshot();
+        }
+        assertThrows(IOException.class, () -> HnswIndex.open(dir, DIMENSION * 2, HnswIndex.Metric.COSINE, 8, 100));
+        assertThrows(IOException.class, () -> HnswIndex.open(dir, DIMENSION, HnswIndex.Metric.INNER_PRODUCT, 8, 100));
+    }
+
+    private static Set<Integer> bruteForce(List<float[]> data, float[] query, int k,
+                                           java.util.function.IntPredicate filter) {
+        float[] q = normalize(query);
+        List<Integer> nodes = new ArrayList<>();
+        for (int i = 0; i < data.size(); i++) {
+            if (filter.test(i)) {
+                nodes.add(i);
+            }
+        }
+        nodes.sort(Comparator.comparingDouble(i -> -dot(normalize(data.get(i)), q)));
+        return new HashSet<>(nodes.subList(0, Math.min(k, nodes.size())));
+    }
+
+    private static List<float[]> randomVectors(Random random, int count) {
+        List<float[]> vectors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            vectors.add(randomVector(random));
+        }
+        return vectors;
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+
+    private static float[] normalize(float[] v) {
+        double norm = Math.sqrt(dot(v, v));
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) {
+            out[i] = (float) (v[i] / norm);
+        }
+        return out;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,141 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LexicalSegmentTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void vIntRoundTripAcrossByteBoundaries() {
+        // 词频覆盖 1 ~ 5 字节的编码长度，文档号差值有大有小
+        int[] docs = {0, 127, 128, 16_511, 16_512, 2_113_663, 2_113_664, 270_549_119, 270_549_120, Integer.MAX_VALUE};
+        Map<String, LexicalSegment.Postings> buffer = new HashMap<>();
+        LexicalSegment.Postings postings = new LexicalSegment.Postings();
+        for (int i = 0; i < docs.length; i++) {
+            postings.add(docs[i], docs[docs.length - 1 - i]);
+        }
+        buffer.put("t", postings);
+
+        LexicalSegment segment = LexicalSegment.build("s", buffer, 0, Integer.MAX_VALUE);
+
+        List<int[]> decoded = decode(segment, "t");
+        assertEquals(docs.length, decoded.size());
+        for (int i = 0; i < docs.length; i++) {
+            assertEquals(docs[i], decoded.get(i)[0]);
+            assertEquals(docs[docs.length - 1 - i], decoded.get(i)[1]);
+        }
+        assertEquals(docs.length, segment.docFreqs[segment.find("t")]);
+    }
+
+    @Test
+    void mergeMatchesSegmentBuiltFromAllDocuments() {
+        Random random = new Random(7);
+        Map<String, LexicalSegment.Postings> first = randomPostings(random, 0, 300);
+        Map<String, LexicalSegment.Postings> second = randomPostings(random, 300, 700);
+
+        LexicalSegment merged = LexicalSegment.merge("m",
+                LexicalSegment.build("a", first, 0, 299),
+                LexicalSegment.build("b", second, 300, 699));
+
+        Map<String, LexicalSegment.Postings> all = new HashMap<>();
+        for (Map<String, LexicalSegment.Postings> part : List.of(first, second)) {
+            part.forEach((term, list) -> {
+                LexicalSegment.Postings target = all.computeIfAbsent(term, k -> new LexicalSegment.Postings());
+                for (int i = 0; i < list.size; i += 2) {
+                    target.add(list.data[i], list.data[i + 1]);
+                }
+            });
+        }
+        assertSameContent(LexicalSegment.build("x", all, 0, 699), merged);
+        assertEquals(0, merged.minDoc);
+        assertEquals(699, merged.maxDoc);
+    }
+
+    @Test
+    void retainBelowDropsDocumentsAtOrAboveLimit() {
+        Random random = new Random(11);
+        Map<String, LexicalSegment.Postings> buffer = randomPostings(random, 0, 500);
+        LexicalSegment segment = LexicalSegment.build("s", buffer, 0, 499);
+
+        LexicalSegment retained = segment.retainBelow("r", 200);
+
+        Map<String, LexicalSegment.Postings> expected = new HashMap<>();
+        buffer.forEach((term, list) -> {
+            for (int i = 0; i < list.size; i += 2) {
+                if (list.data[i] < 200) {
+                    expected.computeIfAbsent(term, k -> new LexicalSegment.Postings()).add(list.data[i], list.data[i + 1]);
+                }
+            }
+        });
+        assertSameContent(LexicalSegment.build("x", expected, 0, 199), retained);
+        assertTrue(retained.maxDoc < 200);
+        assertSame(segment, segment.retainBelow("r", 500));
+    }
+
+    @Test
+    void writeAndReadRoundTrip() throws Exception {
+        LexicalSegment segment = LexicalSegment.build("s", randomPostings(new Random(3), 100, 400), 100, 399);
+        Path file = dir.resolve("s.seg");
+
+        segment.write(file);
+        LexicalSegment read = LexicalSegment.read("s", file);
+
+        assertSameContent(segment, read);
+        assertEquals(100, read.minDoc);
+        assertEquals(399, read.maxDoc);
+        assertTrue(read.persisted);
+    }
+
+    /**
+     * 文档号 [from, to) 内随机生成倒排表，文档间隔不定，部分词只出现在个别文档
+     */
+    private static Map<String, LexicalSegment.Postings> randomPostings(Random random, int from, int to) {
+        Map<String, LexicalSegment.Postings> buffer = new HashMap<>();
+        for (int doc = from; doc < to; doc++) {
+            for (int t = 0; t < 40; t++) {
+                if (random.nextInt(t + 2) == 0) {
+                    buffer.computeIfAbsent("term" + t, k -> new LexicalSegment.Postings())
+                            .add(doc, 1 + random.nextInt(300));
+                }
+            }
+        }
+        return buffer;
+    }
+
+    private static void assertSameContent(LexicalSegment expected, LexicalSegment actual) {
+        assertArrayEquals(expected.terms, actual.terms);
+        assertArrayEquals(expected.docFreqs, actual.docFreqs);
+        for (String term : expected.terms) {
+            List<int[]> a = decode(expected, term);
+            List<int[]> b = decode(actual, term);
+            assertEquals(a.size(), b.size(), term);
+            for (int i = 0; i < a.size(); i++) {
+                assertArrayEquals(a.get(i), b.get(i), term);
+            }
+        }
+    }
+
+    private static List<int[]> decode(LexicalSegment segment, String term) {
+        int t = segment.find(term);
+        assertTrue(t >= 0, term);
+        List<int[]> entries = new ArrayList<>();
+        int[] read = new int[1];
+        int pos = segment.offsets[t];
+        int doc = 0;
+        while (pos < segment.offsets[t + 1]) {
+            pos = LexicalSegment.readVInt(segment.postings, pos, read);
+            doc += read[0];
+            pos = LexicalSegment.readVInt(segment.postings, pos, read);
+            entries.add(new int[]{doc, read[0]});
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,45 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedVectorStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void addGetAndDot() throws Exception {
+        try (MappedVectorStore store = new MappedVectorStore(dir.resolve("v.bin"), 5, 0)) {
+            assertEquals(0, store.add(new float[]{1, 2, 3, 4, 5}));
+            assertEquals(1, store.add(new float[]{5, 4, 3, 2, 1}));
+            assertEquals(2, store.size());
+            assertArrayEquals(new float[]{5, 4, 3, 2, 1}, store.get(1));
+            assertEquals(35f, store.dot(0, 1));
+            assertEquals(15f, store.dot(0, new float[]{1, 1, 1, 1, 1}));
+            assertThrows(IllegalArgumentException.class, () -> store.add(new float[]{1, 2}));
+        }
+    }
+
+    @Test
+    void reopenKeepsCommittedVectorsOnly() throws Exception {
+        Path file = dir.resolve("v.bin");
+        try (MappedVectorStore store = new MappedVectorStore(file, 4, 0)) {
+            for (int i = 0; i < 10; i++) {
+                store.add(new float[]{i, i + 1, i + 2, i + 3});
+            }
+        }
+
+        // 快照只记录了前 6 个向量，其后的视为未提交，会被新写入覆盖
+        try (MappedVectorStore store = new MappedVectorStore(file, 4, 6)) {
+            assertEquals(6, store.size());
+            assertArrayEquals(new float[]{5, 6, 7, 8}, store.get(5));
+            assertEquals(6, store.add(new float[]{-1, -1, -1, -1}));
+            assertArrayEquals(new float[]{-1, -1, -1, -1}, store.get(6));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.EarthCube.georag_backend.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RTreeTest {
+
+    private static final int COUNT = 5000;
+
+    @Test
+    void nearestMatchesLinearScan() {
+        Random random = new Random(21);
+        double[][] points = randomPoints(random, 73, 18, 135, 54);
+        RTree tree = build(points);
+        assertEquals(COUNT, tree.size());
+
+        for (int q = 0; q < 50; q++) {
+            double lon = 73 + random.nextDouble() * 62;
+            double lat = 18 + random.nextDouble() * 36;
+            List<RTree.Neighbor> hits = tree.nearest(lon, lat, 20);
+            double[] expected = sortedDistances(points, lon, lat);
+
+            assertEquals(20, hits.size());
+            for (int i = 0; i < hits.size(); i++) {
+                RTree.Neighbor hit = hits.get(i);
+                assertEquals(expected[i], hit.getDistance(), 1e-6);
+                double[] p = points[hit.getId()];
+                assertEquals(RTree.distance(lon, lat, p[0], p[1]), hit.getDistance(), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void withinMatchesLinearScan() {
+        Random random = new Random(22);
+        double[][] points = randomPoints(random, 73, 18, 135, 54);
+        RTree tree = build(points);
+
+        for (int q = 0; q < 50; q++) {
+            double lon = 73 + random.nextDouble() * 62;
+            double lat = 18 + random.nextDouble() * 36;
+            double radius = 50_000 + random.nextDouble() * 300_000;
+            List<RTree.Neighbor> hits = tree.within(lon, lat, radius, Integer.MAX_VALUE);
+
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < points.length; i++) {
+                if (RTree.distance(lon, lat, points[i][0], points[i][1]) <= radius) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected, hits.stream().map(RTree.Neighbor::getId).collect(Collectors.toSet()));
+            for (int i = 1; i < hits.size(); i++) {
+                assertTrue(hits.get(i - 1).getDistance() <= hits.get(i).getDistance());
+            }
+            // limit 截断时保留最近的
+            List<RTree.Neighbor> limited = tree.within(lon, lat, radius, 5);
+            assertEquals(hits.subList(0, Math.min(5, hits.size())).stream().map(RTree.Neighbor::getDistance)
+                    .collect(Collectors.toList()), limited.stream().map(RTree.Neighbor::getDistance)
+                    .collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void boxSearchMatchesLinearScan() {
+        Random random = new Random(23);
+        RTree tree = new RTree();
+        double[][] boxes = new double[COUNT][];
+        for (int i = 0; i < COUNT; i++) {
+            double lon = -180 + random.nextDouble() * 359;
+            double lat = -85 + random.nextDouble() * 169;
+            boxes[i] = new double[]{lon, lat, lon + random.nextDouble(), lat + random.nextDouble()};
+            tree.insert(i, boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            double minLon = -180 + random.nextDouble() * 340;
+            double minLat = -85 + random.nextDouble() * 150;
+            double maxLon = minLon + random.nextDouble() * 20;
+            double maxLat = minLat + random.nextDouble() * 20;
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < COUNT; i++) {
+                if (intersects(boxes[i], minLon, minLat, maxLon, maxLat)) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected, search(tree, minLon, minLat, maxLon, maxLat));
+        }
+
+        // 跨 180° 经线的矩形拆成两段
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < COUNT; i++) {
+            if (intersects(boxes[i], 170, -10, 180, 10) || intersects(boxes[i], -180, -10, -170, 10)) {
+                expected.add(i);
+            }
+        }
+        assertEquals(expected, search(tree, 170, -10, -170, 10));
+    }
+
+    @Test
+    void pointInsideBoxHasZeroDistance() {
+        RTree tree = new RTree();
+        tree.insert(1, 110, 30, 112, 32);
+        tree.insert(2, 100, 30, 100, 30);
+
+        List<RTree.Neighbor> hits = tree.nearest(111, 31, 2);
+        assertEquals(1, hits.get(0).getId());
+        assertEquals(0, hits.get(0).getDistance());
+        assertEquals(2, hits.get(1).getId());
+        assertThrows(IllegalArgumentException.class, () -> tree.insert(3, 10, 0, 5, 1));
+    }
+
+    private static RTree build(double[][] points) {
+        RTree tree = new RTree();
+        for (int i = 0; i < points.length; i++) {
+            tree.insert(i, points[i][0], points[i][1], points[i][0], points[i][1]);
+        }
+        return tree;
+    }
+
+    private static double[][] randomPoints(Random random, double minLon, double minLat, double maxLon, double maxLat) {
+        double[][] points = new double[COUNT][];
+        for (int i = 0; i < COUNT; i++) {
+            points[i] = new double[]{minLon + random.nextDouble() * (maxLon - minLon),
+                    minLat + random.nextDouble() * (maxLat - minLat)};
+        }
+        return points;
+    }
+
+    private static double[] sortedDistances(double[][] points, double lon, double lat) {
+        double[] distances = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            distances[i] = RTree.distance(lon, lat, points[i][0], points[i][1]);
+        }
+        Arrays.sort(distances);
+        return distances;
+    }
+
+    private static boolean intersects(double[] box, double minLon, double minLat, double maxLon, double maxLat) {
+        return box[0] <= maxLon && box[2] >= minLon && box[1] <= maxLat && box[3] >= minLat;
+    }
+
+    private static Set<Integer> search(RTree tree, double minLon, double minLat, double maxLon, double maxLat) {
+        Set<Integer> found = new HashSet<>();
+        tree.search(minLon, minLat, maxLon, maxLat, found::add);
+        return found;
+    }
+}
@@ -0,0 +1,45 @@
+package com.EarthCube.georag_benchmark;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.EarthCube.georag_backend.entity.ChatMessage;
+import com.EarthCube.georag_backend.vo.chat.ChatMessageVO;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实体 -> VO 的属性复制开销 (历史消息每页每条一次)
+ * manual 为手写 getter / setter，作为下限参照
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BeanCopyBenchmark {
+
+    private ChatMessage message;
+
+    @Setup
+    public void setup() {
+        message = Fixtures.message();
+    }
+
+    @Benchmark
+    public ChatMessageVO copyProperties() {
+        ChatMessageVO vo = new ChatMessageVO();
+        BeanUtil.copyProperties(message, vo);
+        return vo;
+    }
+
+    @Benchmark
+    public ChatMessageVO manual() {
+        ChatMessageVO vo = new ChatMessageVO();
+        vo.setId(message.getId());
+        vo.setRole(message.getRole());
+        vo.setContext(message.getContext());
+        vo.setCategory(message.getCategory());
+        vo.setPhoto(message.getPhoto());
+        vo.setFile(message.getFile());
+        vo.setCreateTime(message.getCreateTime());
+        return vo;
+    }
+}
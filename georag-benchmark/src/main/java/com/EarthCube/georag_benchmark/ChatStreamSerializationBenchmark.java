@@ -0,0 +1,38 @@
+package com.EarthCube.georag_benchmark;
+
+import com.EarthCube.georag_backend.vo.chat.ChatStreamVO;
+import org.openjdk.jmh.annotations.*;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每一帧 SSE 的序列化开销
+ * Spring MVC 写 SSE 时使用 Jackson 3 的 JsonMapper，这里按同样的方式序列化
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ChatStreamSerializationBenchmark {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+
+    private static final String SESSION_ID = "0a1b2c3d-4e5f-6071-8293-a4b5c6d7e8f9";
+    private static final String MESSAGE_ID = "6f1c2b3a4d5e6f708192a3b4c5d6e7f8";
+
+    @Benchmark
+    public byte[] chunk() {
+        return jsonMapper.writeValueAsBytes(ChatStreamVO.chunk(SESSION_ID, MESSAGE_ID, Fixtures.CHUNK_TEXT));
+    }
+
+    /** 未合并时每个字符一帧 */
+    @Benchmark
+    public byte[] singleCharChunk() {
+        return jsonMapper.writeValueAsBytes(ChatStreamVO.chunk(SESSION_ID, MESSAGE_ID, "岩"));
+    }
+
+    @Benchmark
+    public byte[] end() {
+        return jsonMapper.writeValueAsBytes(ChatStreamVO.end(SESSION_ID, MESSAGE_ID));
+    }
+}
@@ -0,0 +1,65 @@
+package com.EarthCube.georag_benchmark;
+
+import com.EarthCube.georag_backend.component.ChatContextAssembler;
+import com.EarthCube.georag_backend.config.ChatContextConfig;
+import com.EarthCube.georag_backend.constant.ChatConstants;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 从 Redis 读到的上下文条目组装出发给 AI 服务的历史
+ * fromRedis 包含反序列化 (与 RedisTemplate 使用同一个序列化器)，assemble 只测按 Token 预算选取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ContextAssemblyBenchmark {
+
+    private final RedisSerializer<Object> serializer = RedisSerializer.json();
+
+    private ChatContextAssembler assembler;
+    private List<byte[]> redisEntries;
+    private List<Map<String, String>> history;
+
+    @Setup
+    public void setup() {
+        assembler = new ChatContextAssembler();
+        Fixtures.inject(assembler, "config", new ChatContextConfig());
+
+        // 上下文缓存写满时的条数，问答交替
+        redisEntries = new ArrayList<>();
+        history = new ArrayList<>();
+        for (int i = 0; i < ChatConstants.MAX_CONTEXT_COUNT; i++) {
+            Map<String, String> item = i % 2 == 0
+                    ? assembler.newEntry("user", Fixtures.QUERY)
+                    : assembler.newEntry("assistant", Fixtures.CHUNK_TEXT.repeat(8));
+            history.add(item);
+            redisEntries.add(serializer.serialize(item));
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public List<Map<String, String>> fromRedis() {
+        List<Map<String, String>> context = new ArrayList<>(redisEntries.size());
+        for (byte[] entry : redisEntries) {
+            context.add((Map<String, String>) serializer.deserialize(entry));
+        }
+        return assembler.assemble(context, Fixtures.QUERY, null, null);
+    }
+
+    @Benchmark
+    public List<Map<String, String>> assemble() {
+        return assembler.assemble(history, Fixtures.QUERY, null, null);
+    }
+
+    @Benchmark
+    public Map<String, String> newEntry() {
+        return assembler.newEntry("assistant", Fixtures.CHUNK_TEXT.repeat(8));
+    }
+}
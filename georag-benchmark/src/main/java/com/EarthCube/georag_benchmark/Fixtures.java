@@ -0,0 +1,65 @@
+package com.EarthCube.georag_benchmark;
+
+import com.EarthCube.georag_backend.entity.ChatMessage;
+
+import java.lang.reflect.Field;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 基准测试共用的样例数据与工具方法
+ * 被测组件都是 Spring Bean，这里不启动容器，直接通过反射注入它们依赖的字段
+ */
+final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    /** 一段典型的中文回答片段 (合并后的一帧) */
+    static final String CHUNK_TEXT = "四川盆地须家河组以三角洲前缘砂体为主，";
+
+    /** 一条典型的用户提问 */
+    static final String QUERY = "请结合最近的钻井资料，分析川中地区须家河组二段储层的孔隙度分布特征。";
+
+    static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("无法注入字段: " + fieldName, e);
+        }
+    }
+
+    static List<String> photos() {
+        return Arrays.asList(
+                "http://localhost:9000/chat/photo/2026/01/3f2a9c1e.png",
+                "http://localhost:9000/chat/photo/2026/01/8b7d4e0f.jpg");
+    }
+
+    static List<Map<String, Object>> files() {
+        List<Map<String, Object>> files = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Map<String, Object> file = new LinkedHashMap<>();
+            file.put("name", "钻井报告-" + i + ".pdf");
+            file.put("url", "http://localhost:9000/chat/file/2026/01/report-" + i + ".pdf");
+            file.put("size", 1048576 + i);
+            file.put("type", "application/pdf");
+            files.add(file);
+        }
+        return files;
+    }
+
+    static ChatMessage message() {
+        ChatMessage msg = new ChatMessage();
+        msg.setId("6f1c2b3a4d5e6f708192a3b4c5d6e7f8");
+        msg.setSessionId("0a1b2c3d-4e5f-6071-8293-a4b5c6d7e8f9");
+        msg.setRole("assistant");
+        msg.setContext(CHUNK_TEXT.repeat(20));
+        msg.setCategory("text_file");
+        msg.setPhoto(photos());
+        msg.setFile(files());
+        msg.setCreateTime(LocalDateTime.of(2026, 1, 15, 10, 30, 0, 123456000));
+        return msg;
+    }
+}
@@ -0,0 +1,79 @@
+package com.EarthCube.georag_benchmark;
+
+import com.EarthCube.georag_backend.handler.MybatisJsonTypeHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MybatisJsonTypeHandler 处理 chat_message.photo / file 字段的开销
+ * 用动态代理模拟 JDBC 的 ResultSet / PreparedStatement，只测 JSON 转换本身
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonTypeHandlerBenchmark {
+
+    private MybatisJsonTypeHandler handler;
+    private List<String> photos;
+    private List<?> files;
+    private ResultSet photoResult;
+    private ResultSet fileResult;
+    private PreparedStatement statement;
+
+    // 模拟 setString 写入的值，防止被 JIT 消除
+    private Object written;
+
+    @Setup
+    public void setup() throws Exception {
+        // 字段声明类型为 List，MyBatis 按字段类型构造处理器
+        handler = new MybatisJsonTypeHandler(List.class);
+        photos = Fixtures.photos();
+        files = Fixtures.files();
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        photoResult = resultSet(objectMapper.writeValueAsString(photos));
+        fileResult = resultSet(objectMapper.writeValueAsString(files));
+        statement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+                    if ("setString".equals(method.getName())) {
+                        written = args[1];
+                    }
+                    return null;
+                });
+    }
+
+    @Benchmark
+    public Object serializePhoto() throws SQLException {
+        handler.setNonNullParameter(statement, 1, photos, null);
+        return written;
+    }
+
+    @Benchmark
+    public Object serializeFile() throws SQLException {
+        handler.setNonNullParameter(statement, 1, files, null);
+        return written;
+    }
+
+    @Benchmark
+    public Object parsePhoto() throws SQLException {
+        return handler.getNullableResult(photoResult, "photo");
+    }
+
+    @Benchmark
+    public Object parseFile() throws SQLException {
+        return handler.getNullableResult(fileResult, "file");
+    }
+
+    private ResultSet resultSet(String json) {
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) ->
+                        "getString".equals(method.getName()) ? json : null);
+    }
+}
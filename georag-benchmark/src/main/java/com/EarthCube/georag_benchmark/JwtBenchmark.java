@@ -0,0 +1,50 @@
+package com.EarthCube.georag_benchmark;
+
+import com.EarthCube.georag_backend.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token 解析开销
+ * parseToken 为每个请求实际走的路径 (命中已验签缓存)；verify 为完整验签，即缓存未命中时的代价
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JwtBenchmark {
+
+    private static final String SECRET = "EarthCube_GeoRag_Backend_Secret_Key_For_2026_Project_Security";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtil = new JwtUtil();
+        Fixtures.inject(jwtUtil, "secret", SECRET);
+        Fixtures.inject(jwtUtil, "expiration", 604800000L);
+        Fixtures.inject(jwtUtil, "claimsCacheSize", 10000L);
+        jwtUtil.validateSecret();
+        token = jwtUtil.createToken("0a1b2c3d-4e5f-6071-8293-a4b5c6d7e8f9", "geologist");
+    }
+
+    @Benchmark
+    public Claims parseToken() {
+        return jwtUtil.parseToken(token);
+    }
+
+    /** 每次重建密钥与解析器并验签 */
+    @Benchmark
+    public Claims verify() {
+        return Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)))
+                .build()
+                .parseSignedClaims(token)
+                .getPayload();
+    }
+}
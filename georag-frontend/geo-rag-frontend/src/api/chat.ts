@@ -10,6 +10,13 @@ export interface PageResult<T> {
   total: number;
 }
 
+export interface CursorResult<T> {
+  records: T[];
+  prevCursor: string | null;
+  nextCursor: string | null;
+  hasMore: boolean;
+}
+
 export interface ChatSession {
   id: string;
   title: string;
@@ -65,9 +72,9 @@ export const chatApi = {
   },
 
   /**
-   * 获取指定会话的历史消息
+   * 获取指定会话的历史消息 (游标分页，不传 cursor 返回最新一页)
    */
-  getSessionMessages(sessionId: string): Promise<ApiResponse<ChatMessage[]>> {
-    return request.get(`/chat/sessions/${sessionId}/messages`);
+  getSessionMessages(sessionId: string, cursor?: string, direction: 'before' | 'after' = 'before'): Promise<ApiResponse<CursorResult<ChatMessage>>> {
+    return request.get(`/chat/sessions/${sessionId}/messages`, { params: { cursor, direction } });
   }
 };
\ No newline at end of file
@@ -11,6 +11,10 @@ export function useChat() {
     const currentSessionId = ref<string>('');
     const messages = ref<ChatMessage[]>([]);
     const loadingHistory = ref(false);
+    // 历史消息按游标分页，向上翻页时带上最早一条的游标
+    const prevCursor = ref<string | null>(null);
+    const hasMoreHistory = ref(false);
+    const loadingEarlier = ref(false);
 
     // --- 辅助：滚动到底部 ---
     const scrollToBottom = async () => {
@@ -33,21 +37,29 @@ export function useChat() {
         }
     };
 
+    // 适配后端字段 context -> content
+    const toMessages = (records: ChatMessage[]) => records.map((item: any) => ({
+        ...item,
+        content: item.context
+    }));
+
     // --- 逻辑 2: 切换会话 ---
     const switchSession = async (sessionId: string) => {
         if (currentSessionId.value === sessionId) return;
 
         currentSessionId.value = sessionId;
         messages.value = [];
+        prevCursor.value = null;
+        hasMoreHistory.value = false;
         loadingHistory.value = true;
 
         try {
             const res = await chatApi.getSessionMessages(sessionId);
-            if (res.code === 200) {
-                messages.value = res.data.map((item: any) => ({
-                    ...item,
-                    content: item.context // 适配后端字段 context -> content
-                }));
+            // 加载期间已切到别的会话时丢弃结果
+            if (res.code === 200 && currentSessionId.value === sessionId) {
+                messages.value = toMessages(res.data.records);
+                prevCursor.value = res.data.prevCursor;
+                hasMoreHistory.value = res.data.hasMore;
                 await scrollToBottom();
             }
         } catch (error) {
@@ -57,10 +69,38 @@ export function useChat() {
         }
     };
 
+    // --- 逻辑 2.1: 加载更早的消息 (插到列表头部，保持当前阅读位置) ---
+    const loadEarlier = async () => {
+        const sessionId = currentSessionId.value;
+        if (!sessionId || !hasMoreHistory.value || !prevCursor.value || loadingEarlier.value) return;
+
+        loadingEarlier.value = true;
+        try {
+            const res = await chatApi.getSessionMessages(sessionId, prevCursor.value, 'before');
+            if (res.code === 200 && currentSessionId.value === sessionId) {
+                const container = chatContainer.value;
+                const previousHeight = container ? container.scrollHeight : 0;
+                messages.value = [...toMessages(res.data.records), ...messages.value];
+                prevCursor.value = res.data.prevCursor;
+                hasMoreHistory.value = res.data.hasMore;
+                await nextTick();
+                if (container) {
+                    container.scrollTop += container.scrollHeight - previousHeight;
+                }
+            }
+        } catch (error) {
+            console.error('History Error:', error);
+        } finally {
+            loadingEarlier.value = false;
+        }
+    };
+
     // --- 逻辑 3: 新建会话 ---
     const createNewChat = () => {
         currentSessionId.value = '';
         messages.value = [];
+        prevCursor.value = null;
+        hasMoreHistory.value = false;
         inputMessage.value = '';
         isTyping.value = false;
     };
@@ -214,8 +254,11 @@ export function useChat() {
         currentSessionId,
         messages,
         loadingHistory,
+        hasMoreHistory,
+        loadingEarlier,
         loadSessions,
         switchSession,
+        loadEarlier,
         createNewChat,
         deleteSession,
         handleSend,
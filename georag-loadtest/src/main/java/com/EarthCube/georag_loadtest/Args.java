@@ -0,0 +1,52 @@
+package com.EarthCube.georag_loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 命令行参数，格式为 --key=value 或 --flag
+ */
+final class Args {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    static Args parse(String[] argv, int from) {
+        Args args = new Args();
+        for (int i = from; i < argv.length; i++) {
+            String arg = argv[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("无法识别的参数: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                args.values.put(arg.substring(2), "true");
+            } else {
+                args.values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return args;
+    }
+
+    boolean has(String key) {
+        return values.containsKey(key);
+    }
+
+    String get(String key, String defaultValue) {
+        return values.getOrDefault(key, defaultValue);
+    }
+
+    int getInt(String key, int defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    long getLong(String key, long defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Long.parseLong(value);
+    }
+
+    double getDouble(String key, double defaultValue) {
+        String value = values.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+}
@@ -0,0 +1,246 @@
+package com.EarthCube.georag_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SSE 压测客户端
+ * 启动 N 个虚拟用户，各自循环调用 /api/v1/chat/completions，逐帧读取响应并统计首字延迟、整体耗时与错误
+ * 每个虚拟用户默认沿用第一轮返回的会话 (上下文随轮数增长)，--new-session 时每轮新建会话
+ */
+class LoadGenerator {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final String baseUrl;
+    private final String endpoint;
+    private final int concurrency;
+    private final long durationSeconds;
+    private final long maxRequests;
+    private final long rampUpMillis;
+    private final Duration streamTimeout;
+    private final String content;
+    private final String model;
+    private final boolean newSession;
+
+    private final HttpClient client;
+    private final ScheduledExecutorService watchdog;
+    private final LoadReport report = new LoadReport();
+
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+    private final AtomicLong issued = new AtomicLong();
+
+    private String token;
+
+    LoadGenerator(Args args) {
+        this.baseUrl = args.get("base-url", "http://localhost:8080");
+        this.endpoint = args.get("endpoint", "/api/v1/chat/completions");
+        this.concurrency = args.getInt("concurrency", 50);
+        this.durationSeconds = args.getLong("duration", 60);
+        this.maxRequests = args.getLong("requests", -1);
+        this.rampUpMillis = TimeUnit.SECONDS.toMillis(args.getLong("ramp-up", 0));
+        this.streamTimeout = Duration.ofSeconds(args.getLong("timeout", 120));
+        this.content = args.get("content", "请介绍一下四川盆地须家河组的沉积特征。");
+        this.model = args.get("model", null);
+        this.newSession = args.has("new-session");
+        this.token = args.get("token", null);
+
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newCachedThreadPool(daemon("http-client")))
+                .build();
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(daemon("stream-watchdog"));
+
+        if (token == null && args.has("account")) {
+            this.token = login(args.get("account", null), args.get("password", ""));
+        }
+        if (token == null) {
+            throw new IllegalArgumentException("需要 --token，或 --account 与 --password 用于登录");
+        }
+    }
+
+    /**
+     * 执行压测并返回结果
+     */
+    LoadReport run() throws InterruptedException {
+        System.out.printf("开始压测: %s%s, 并发 %d, %s%n", baseUrl, endpoint, concurrency,
+                maxRequests > 0 ? "共 " + maxRequests + " 次请求" : "持续 " + durationSeconds + " 秒");
+
+        ScheduledFuture<?> progress = watchdog.scheduleAtFixedRate(
+                () -> System.out.println(report.progress()), 5, 5, TimeUnit.SECONDS);
+        if (maxRequests <= 0) {
+            watchdog.schedule(() -> stopped.set(true), durationSeconds, TimeUnit.SECONDS);
+        }
+
+        List<Thread> users = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Thread user = new Thread(this::userLoop, "virtual-user-" + i);
+            users.add(user);
+            user.start();
+            if (rampUpMillis > 0) {
+                Thread.sleep(rampUpMillis / concurrency);
+            }
+        }
+        for (Thread user : users) {
+            user.join();
+        }
+
+        progress.cancel(false);
+        watchdog.shutdownNow();
+        return report;
+    }
+
+    private void userLoop() {
+        String sessionId = null;
+        while (!stopped.get()) {
+            if (maxRequests > 0 && issued.incrementAndGet() > maxRequests) {
+                return;
+            }
+            String returned = runStream(newSession ? null : sessionId);
+            if (returned != null) {
+                sessionId = returned;
+            }
+        }
+    }
+
+    /**
+     * 执行一次流式请求
+     *
+     * @return 响应中的会话 ID (用于后续轮次)
+     */
+    private String runStream(String sessionId) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("content", content);
+        if (sessionId != null) {
+            body.put("sessionId", sessionId);
+        }
+        if (model != null) {
+            body.put("options", Collections.singletonMap("model", model));
+        }
+
+        report.streamStarted();
+        long start = System.nanoTime();
+        String returnedSessionId = null;
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoint))
+                    .timeout(streamTimeout)
+                    .header("Content-Type", "application/json")
+                    .header("Accept", "text/event-stream")
+                    .header("Authorization", "Bearer " + token)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            if (response.statusCode() != 200) {
+                response.body().close();
+                report.error("http_" + response.statusCode());
+                return null;
+            }
+
+            // 读取阻塞时由看门狗关闭连接，保证单条流不超过超时时间
+            InputStream in = response.body();
+            ScheduledFuture<?> timeout = watchdog.schedule(() -> closeQuietly(in),
+                    streamTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            long ttft = -1;
+            boolean finished = false;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+                String line;
+                while (!finished && (line = reader.readLine()) != null) {
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    JsonNode frame = objectMapper.readTree(line.substring(5).trim());
+                    if (frame.hasNonNull("sessionId")) {
+                        returnedSessionId = frame.get("sessionId").asText();
+                    }
+                    if (frame.hasNonNull("error")) {
+                        report.error(frame.get("error").asText());
+                        return returnedSessionId;
+                    }
+                    String text = frame.path("text").asText("");
+                    if (!text.isEmpty()) {
+                        if (ttft < 0) {
+                            ttft = System.nanoTime() - start;
+                        }
+                        report.frame(text.length());
+                    }
+                    finished = frame.path("finish").asBoolean(false);
+                }
+            } finally {
+                timeout.cancel(false);
+            }
+
+            if (finished) {
+                report.success(ttft, System.nanoTime() - start);
+            } else {
+                report.error(System.nanoTime() - start >= streamTimeout.toNanos() ? "timeout" : "incomplete");
+            }
+        } catch (HttpTimeoutException e) {
+            report.error("timeout");
+        } catch (IOException e) {
+            report.error(System.nanoTime() - start >= streamTimeout.toNanos() ? "timeout" : "io");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped.set(true);
+        } finally {
+            report.streamFinished();
+        }
+        return returnedSessionId;
+    }
+
+    private String login(String account, String password) {
+        try {
+            Map<String, String> body = new HashMap<>();
+            body.put("account", account);
+            body.put("password", password);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/auth/login"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            JsonNode token = objectMapper.readTree(response.body()).path("data").path("token");
+            if (token.isMissingNode() || token.isNull()) {
+                throw new IllegalStateException("登录失败: " + response.body());
+            }
+            return token.asText();
+        } catch (IOException e) {
+            throw new IllegalStateException("登录请求失败", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("登录被中断", e);
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ignored) {
+            // 超时关闭，忽略
+        }
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicLong index = new AtomicLong();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + index.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
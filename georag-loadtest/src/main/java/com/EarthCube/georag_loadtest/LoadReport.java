@@ -0,0 +1,111 @@
+package com.EarthCube.georag_loadtest;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测结果统计 (线程安全)
+ */
+class LoadReport {
+
+    private final ConcurrentLinkedQueue<Long> ttftNanos = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Long> durationNanos = new ConcurrentLinkedQueue<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder frames = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    private final long startNanos = System.nanoTime();
+
+    void streamStarted() {
+        activeStreams.incrementAndGet();
+    }
+
+    void streamFinished() {
+        activeStreams.decrementAndGet();
+    }
+
+    /**
+     * 收到一帧文本
+     */
+    void frame(int textLength) {
+        frames.increment();
+        chars.add(textLength);
+    }
+
+    void success(long ttft, long duration) {
+        succeeded.increment();
+        if (ttft >= 0) {
+            ttftNanos.add(ttft);
+        }
+        durationNanos.add(duration);
+    }
+
+    void error(String type) {
+        failed.increment();
+        errors.computeIfAbsent(type, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 进度行 (运行期间定时打印)
+     */
+    String progress() {
+        double elapsed = elapsedSeconds();
+        return String.format("[%6.1fs] 进行中 %d, 成功 %d, 失败 %d, 吞吐 %.1f 流/秒",
+                elapsed, activeStreams.get(), succeeded.sum(), failed.sum(), succeeded.sum() / elapsed);
+    }
+
+    /**
+     * 最终报告
+     */
+    String summary() {
+        double elapsed = elapsedSeconds();
+        long ok = succeeded.sum();
+        StringBuilder sb = new StringBuilder();
+        sb.append("========== 压测结果 ==========\n");
+        sb.append(String.format("耗时:       %.1f 秒%n", elapsed));
+        sb.append(String.format("请求:       成功 %d, 失败 %d%n", ok, failed.sum()));
+        sb.append(String.format("吞吐:       %.2f 流/秒, %.1f 帧/秒, %.1f 字/秒%n",
+                ok / elapsed, frames.sum() / elapsed, chars.sum() / elapsed));
+        sb.append("首字延迟:   ").append(percentiles(ttftNanos)).append('\n');
+        sb.append("整体耗时:   ").append(percentiles(durationNanos)).append('\n');
+        if (errors.isEmpty()) {
+            sb.append("错误:       无\n");
+        } else {
+            sb.append("错误:\n");
+            new TreeMap<>(errors).forEach((type, count) ->
+                    sb.append(String.format("  %-24s %d%n", type, count.sum())));
+        }
+        return sb.toString();
+    }
+
+    private double elapsedSeconds() {
+        return Math.max(1e-3, (System.nanoTime() - startNanos) / 1e9);
+    }
+
+    private static String percentiles(Collection<Long> samples) {
+        if (samples.isEmpty()) {
+            return "无样本";
+        }
+        long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+        return String.format("p50 %s, p90 %s, p95 %s, p99 %s, max %s (n=%d)",
+                ms(sorted, 0.50), ms(sorted, 0.90), ms(sorted, 0.95), ms(sorted, 0.99),
+                format(sorted[sorted.length - 1]), sorted.length);
+    }
+
+    private static String ms(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return format(sorted[Math.max(0, Math.min(index, sorted.length - 1))]);
+    }
+
+    private static String format(long nanos) {
+        return String.format("%.1fms", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
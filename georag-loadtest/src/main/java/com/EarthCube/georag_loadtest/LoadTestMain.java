@@ -0,0 +1,61 @@
+package com.EarthCube.georag_loadtest;
+
+/**
+ * 压测入口
+ * <pre>
+ * 只启动替身 AI 服务 (代替 Python 服务，后端按默认配置连接 8000 端口):
+ *   java -jar loadtest.jar stub --port=8000 --first-token-delay=1000 --tokens-per-second=20
+ *
+ * 压测后端 (可同时在本进程内启动替身服务):
+ *   java -jar loadtest.jar run --base-url=http://localhost:8080 --account=test --password=123456 \
+ *        --concurrency=200 --duration=60 --stub-port=8000
+ * </pre>
+ */
+public class LoadTestMain {
+
+    public static void main(String[] argv) throws Exception {
+        if (argv.length == 0) {
+            usage();
+            return;
+        }
+        Args args = Args.parse(argv, 1);
+        switch (argv[0]) {
+            case "stub":
+                StubAiServer stub = StubAiServer.fromArgs(args, 8000);
+                stub.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(stub::stop));
+                Thread.currentThread().join();
+                break;
+            case "run":
+                StubAiServer embedded = null;
+                if (args.has("stub-port")) {
+                    embedded = StubAiServer.fromArgs(args, 8000);
+                    embedded.start();
+                }
+                try {
+                    LoadReport report = new LoadGenerator(args).run();
+                    System.out.print(report.summary());
+                    if (embedded != null) {
+                        System.out.printf("替身服务:   共收到 %d 次调用%n", embedded.getTotalRequests());
+                    }
+                } finally {
+                    if (embedded != null) {
+                        embedded.stop();
+                    }
+                }
+                break;
+            default:
+                usage();
+        }
+    }
+
+    private static void usage() {
+        System.out.println("用法:");
+        System.out.println("  stub [--port=8000] [--first-token-delay=1000] [--tokens-per-second=20] [--reply-chars=0]");
+        System.out.println("  run  [--base-url=http://localhost:8080] [--endpoint=/api/v1/chat/completions]");
+        System.out.println("       (--token=... | --account=... --password=...)");
+        System.out.println("       [--concurrency=50] [--duration=60 | --requests=N] [--ramp-up=0] [--timeout=120]");
+        System.out.println("       [--content=...] [--model=...] [--new-session]");
+        System.out.println("       [--stub-port=8000 --first-token-delay=1000 --tokens-per-second=20 --reply-chars=0]");
+    }
+}
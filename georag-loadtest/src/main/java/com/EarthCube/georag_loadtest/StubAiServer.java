@@ -0,0 +1,167 @@
+package com.EarthCube.georag_loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 本地替身 AI 服务
+ * 与 georag-agent/test/mock_ai_service.py 行为一致：POST /chat/stream，接收 {query, history}，
+ * 等待首字延迟后按固定速率逐字返回 SSE (data: 字)，首字延迟与速率可配置
+ */
+public class StubAiServer {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final int port;
+    private final long firstTokenDelayMs;
+    private final double tokensPerSecond;
+    private final int replyChars;
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicLong totalRequests = new AtomicLong();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param port              监听端口
+     * @param firstTokenDelayMs 首字延迟 (毫秒)
+     * @param tokensPerSecond   每秒返回的字数，<= 0 表示不限速
+     * @param replyChars        回复字数，<= 0 时使用与 Python 版相同的模板
+     */
+    public StubAiServer(int port, long firstTokenDelayMs, double tokensPerSecond, int replyChars) {
+        this.port = port;
+        this.firstTokenDelayMs = firstTokenDelayMs;
+        this.tokensPerSecond = tokensPerSecond;
+        this.replyChars = replyChars;
+    }
+
+    static StubAiServer fromArgs(Args args, int defaultPort) {
+        return new StubAiServer(
+                args.getInt("stub-port", args.getInt("port", defaultPort)),
+                args.getLong("first-token-delay", 1000),
+                args.getDouble("tokens-per-second", 20),
+                args.getInt("reply-chars", 0));
+    }
+
+    public void start() throws IOException {
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 每条流占用一个线程 (逐字 sleep)，线程数随并发流数增长
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "stub-stream-" + threadIndex.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server = HttpServer.create(new InetSocketAddress(port), 4096);
+        server.createContext("/chat/stream", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        System.out.printf("替身 AI 服务已启动: http://localhost:%d/chat/stream (首字延迟 %d ms, %.1f 字/秒)%n",
+                port, firstTokenDelayMs, tokensPerSecond);
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+
+    public long getTotalRequests() {
+        return totalRequests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        totalRequests.incrementAndGet();
+        activeStreams.incrementAndGet();
+        try {
+            String reply = buildReply(objectMapper.readTree(exchange.getRequestBody().readAllBytes()));
+
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream;charset=UTF-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            // 长度为 0 表示分块传输
+            exchange.sendResponseHeaders(200, 0);
+
+            long interval = tokensPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond) : 0;
+            try (OutputStream out = exchange.getResponseBody()) {
+                sleepNanos(TimeUnit.MILLISECONDS.toNanos(firstTokenDelayMs));
+                long next = System.nanoTime();
+                for (int i = 0; i < reply.length(); ) {
+                    int cp = reply.codePointAt(i);
+                    i += Character.charCount(cp);
+                    out.write(frame(new String(Character.toChars(cp))));
+                    out.flush();
+                    // 按绝对时间推进，避免误差累积
+                    next += interval;
+                    sleepNanos(next - System.nanoTime());
+                }
+            }
+        } catch (IOException e) {
+            // 调用方断开连接，直接结束
+        } finally {
+            activeStreams.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private String buildReply(JsonNode request) {
+        String query = request.path("query").asText("");
+        int historySize = request.path("history").size();
+        String reply = "你好！我收到了你的问题：“" + query + "”。\n"
+                + "结合你之前的 " + historySize + " 条历史记录，"
+                + "经过复杂的地理空间分析，结果如下：\n"
+                + "1. 这是一个模拟的流式回复。\n"
+                + "2. 我正在一个字一个字地吐出数据。\n"
+                + "3. 你的 Spring Boot 后端应该能实时收到这些字符。";
+        if (replyChars <= 0) {
+            return reply;
+        }
+        StringBuilder sb = new StringBuilder(replyChars);
+        while (sb.length() < replyChars) {
+            sb.append(reply);
+        }
+        return sb.substring(0, replyChars);
+    }
+
+    /**
+     * SSE 帧；换行符需拆成两行 data，接收端解码后还原为 "\n"
+     */
+    private static byte[] frame(String token) {
+        String data = "\n".equals(token) ? "data: \ndata: \n\n" : "data: " + token + "\n\n";
+        return data.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void sleepNanos(long nanos) throws IOException {
+        if (nanos <= 0) {
+            return;
+        }
+        LockSupport.parkNanos(nanos);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new IOException("替身服务已停止");
+        }
+    }
+}